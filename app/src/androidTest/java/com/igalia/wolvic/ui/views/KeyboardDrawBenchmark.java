@@ -0,0 +1,106 @@
+package com.igalia.wolvic.ui.views;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.igalia.wolvic.R;
+import com.igalia.wolvic.input.CustomKeyboard;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the frame time of typing on the keyboard when the widget has a proxy surface, drawing
+ * the view once per surface (as UIWidget used to do) and drawing it once and replaying the
+ * recording in both surfaces. Results are written to logcat.
+ *
+ * This is a synthetic comparison of the two drawing strategies: the keyboard is drawn in a bare
+ * FrameLayout into two bitmaps, not through UIWidget and its surface textures, and every frame is
+ * drawn whole. It doesn't include the cost of locking the surfaces nor the partial redraws.
+ */
+@RunWith(AndroidJUnit4.class)
+public class KeyboardDrawBenchmark {
+    private static final String LOGTAG = "KeyboardDrawBenchmark";
+    private static final int FRAME_COUNT = 300;
+    private static final int WIDTH = 1540;
+    private static final int HEIGHT = 560;
+
+    private FrameLayout mContainer;
+    private CustomKeyboardView mKeyboardView;
+    private int mKeyCount;
+    private Canvas mLayerCanvas;
+    private Canvas mProxyCanvas;
+
+    @Before
+    public void setUp() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            Context context = ApplicationProvider.getApplicationContext();
+            CustomKeyboard keyboard = new CustomKeyboard(context, R.xml.keyboard_qwerty);
+            mKeyCount = keyboard.getKeys().size();
+            mKeyboardView = new CustomKeyboardView(context, null);
+            mKeyboardView.setKeyboard(keyboard);
+            mContainer = new FrameLayout(context);
+            mContainer.setBackgroundResource(R.drawable.keyboard_background);
+            mContainer.addView(mKeyboardView);
+            mContainer.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+            mContainer.layout(0, 0, WIDTH, HEIGHT);
+        });
+        mLayerCanvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        mProxyCanvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+    }
+
+    private long[] typeKeys(boolean aSharedDrawing) {
+        long[] frameTimes = new long[FRAME_COUNT];
+        Picture picture = new Picture();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            for (int i = 0; i < FRAME_COUNT; i++) {
+                // Each frame presses a key, like the hover and press feedback while typing.
+                mKeyboardView.invalidateKey(i % mKeyCount);
+                long start = SystemClock.elapsedRealtimeNanos();
+                if (aSharedDrawing) {
+                    mContainer.draw(picture.beginRecording(WIDTH, HEIGHT));
+                    picture.endRecording();
+                    mLayerCanvas.drawPicture(picture);
+                    mProxyCanvas.drawPicture(picture);
+                } else {
+                    mContainer.draw(mLayerCanvas);
+                    mContainer.draw(mProxyCanvas);
+                }
+                frameTimes[i] = SystemClock.elapsedRealtimeNanos() - start;
+            }
+        });
+        Arrays.sort(frameTimes);
+        return frameTimes;
+    }
+
+    private static String summary(long[] aSortedTimes) {
+        return "p50=" + TimeUnit.NANOSECONDS.toMicros(aSortedTimes[aSortedTimes.length / 2]) + "us" +
+                " p99=" + TimeUnit.NANOSECONDS.toMicros(aSortedTimes[(aSortedTimes.length * 99) / 100]) + "us" +
+                " max=" + TimeUnit.NANOSECONDS.toMicros(aSortedTimes[aSortedTimes.length - 1]) + "us";
+    }
+
+    @Test
+    public void typingFrameTimes() {
+        // Warm up the keyboard buffer and the text caches.
+        typeKeys(false);
+        typeKeys(true);
+
+        Log.i(LOGTAG, "Drawing once per surface: " + summary(typeKeys(false)));
+        Log.i(LOGTAG, "Drawing once and sharing it: " + summary(typeKeys(true)));
+    }
+}
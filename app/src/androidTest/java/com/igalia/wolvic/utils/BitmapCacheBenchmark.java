@@ -0,0 +1,127 @@
+package com.igalia.wolvic.utils;
+
+import static org.junit.Assert.assertNotNull;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of thumbnail reads served by the disk tier while many thumbnail writes are
+ * in progress. Results are written to logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BitmapCacheBenchmark {
+    private static final String LOGTAG = "BitmapCacheBenchmark";
+    private static final int READ_COUNT = 40;
+    private static final int WRITE_COUNT = 200;
+
+    private ExecutorService mIOExecutor;
+    private BitmapCache mCache;
+    private Bitmap mThumbnail;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        mIOExecutor = Executors.newSingleThreadExecutor();
+        mCache = new BitmapCache(context, mIOExecutor, Runnable::run);
+        mCache.onCreate();
+        mThumbnail = Bitmap.createBitmap(500, 280, Bitmap.Config.ARGB_8888);
+        for (int y = 0; y < mThumbnail.getHeight(); y++) {
+            for (int x = 0; x < mThumbnail.getWidth(); x++) {
+                mThumbnail.setPixel(x, y, Color.rgb(x % 256, y % 256, (x * y) % 256));
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (int i = 0; i < READ_COUNT; i++) {
+            mCache.removeBitmap(readKey(i));
+        }
+        for (int i = 0; i < WRITE_COUNT; i++) {
+            mCache.removeBitmap(writeKey(i));
+        }
+        mCache.onDestroy();
+        mIOExecutor.shutdown();
+    }
+
+    private static String readKey(int aIndex) {
+        return "benchmark-read-" + aIndex;
+    }
+
+    private static String writeKey(int aIndex) {
+        return "benchmark-write-" + aIndex;
+    }
+
+    // Drops the in-memory tiers so that reads have to go to the disk tier.
+    private void dropMemoryTiers() {
+        mCache.initMemoryCache();
+        mCache.initCompressedCache();
+    }
+
+    private void waitForDiskEntries() throws Exception {
+        long deadline = SystemClock.elapsedRealtime() + 30000;
+        while (SystemClock.elapsedRealtime() < deadline) {
+            dropMemoryTiers();
+            boolean ready = true;
+            for (int i = 0; i < READ_COUNT && ready; i++) {
+                ready = mCache.getBitmap(readKey(i)).get(5, TimeUnit.SECONDS) != null;
+            }
+            if (ready) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Timed out waiting for the disk tier");
+    }
+
+    @Test
+    public void readLatencyDuringWrites() throws Exception {
+        // The disk cache is opened in the IO executor, it is open once the tasks queued before finish.
+        mIOExecutor.submit(() -> {}).get(30, TimeUnit.SECONDS);
+        for (int i = 0; i < READ_COUNT; i++) {
+            mCache.addBitmap(readKey(i), mThumbnail);
+        }
+        waitForDiskEntries();
+        dropMemoryTiers();
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < WRITE_COUNT; i++) {
+                mCache.addBitmap(writeKey(i), mThumbnail);
+            }
+        });
+        writer.start();
+
+        long[] latencies = new long[READ_COUNT];
+        for (int i = 0; i < READ_COUNT; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            Bitmap bitmap = mCache.getBitmap(readKey(i)).get(30, TimeUnit.SECONDS);
+            latencies[i] = SystemClock.elapsedRealtimeNanos() - start;
+            assertNotNull(bitmap);
+        }
+        writer.join();
+
+        Arrays.sort(latencies);
+        Log.i(LOGTAG, "Disk read latency with " + WRITE_COUNT + " concurrent writes:" +
+                " p50=" + TimeUnit.NANOSECONDS.toMicros(latencies[READ_COUNT / 2]) + "us" +
+                " p99=" + TimeUnit.NANOSECONDS.toMicros(latencies[(READ_COUNT * 99) / 100]) + "us" +
+                " max=" + TimeUnit.NANOSECONDS.toMicros(latencies[READ_COUNT - 1]) + "us");
+        Log.i(LOGTAG, "Cache stats: " + mCache.getStats());
+    }
+}
@@ -1,6 +1,11 @@
 package com.igalia.wolvic.browser.api.impl;
 
 import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+import android.view.PixelCopy;
 import android.view.Surface;
 
 import androidx.annotation.NonNull;
@@ -9,13 +14,38 @@ import androidx.annotation.Nullable;
 import com.igalia.wolvic.browser.api.WDisplay;
 import com.igalia.wolvic.browser.api.WResult;
 import com.igalia.wolvic.browser.api.WSession;
+import com.igalia.wolvic.utils.SystemUtils;
 
 import org.chromium.wolvic.TabCompositorView;
 
+import java.util.ArrayList;
+
 public class DisplayImpl implements WDisplay {
+    private static final String LOGTAG = SystemUtils.createLogtag(DisplayImpl.class);
+    // Shared by all the displays, readback and scaling never run on the UI thread.
+    private static HandlerThread sCaptureThread;
+    private static Handler sCaptureHandler;
+
     @NonNull SessionImpl mSession;
     private int mWidth = 1;
+    private int mHeight = 1;
     private TabCompositorView mTabCompositorView;
+    private final Handler mUiHandler = new Handler(Looper.getMainLooper());
+    private Surface mSurface;
+    // Reused between captures as long as the surface size does not change.
+    private Bitmap mReadbackBuffer;
+    // Requests waiting for the capture in flight, accessed from the UI thread only.
+    private ArrayList<CaptureRequest> mPendingCaptures;
+
+    private static class CaptureRequest {
+        final ResultImpl<Bitmap> result;
+        final int width;
+
+        CaptureRequest(@NonNull ResultImpl<Bitmap> aResult, int aWidth) {
+            result = aResult;
+            width = aWidth;
+        }
+    }
 
     public DisplayImpl(@NonNull SessionImpl session,  @NonNull TabCompositorView TabCompositorView) {
         mSession = session;
@@ -25,6 +55,8 @@ public class DisplayImpl implements WDisplay {
     @Override
     public void surfaceChanged(@NonNull Surface surface, int width, int height) {
         mWidth = width;
+        mHeight = height;
+        mSurface = surface;
         mTabCompositorView.surfaceChanged(surface, width, height);
         mTabCompositorView.insertVisualStateCallback(updated -> {
             if (updated) {
@@ -43,6 +75,7 @@ public class DisplayImpl implements WDisplay {
 
     @Override
     public void surfaceDestroyed() {
+        mSurface = null;
         mTabCompositorView.surfaceDestroyed();
     }
 
@@ -55,7 +88,101 @@ public class DisplayImpl implements WDisplay {
     @NonNull
     @Override
     public WResult<Bitmap> capturePixelsWithAspectPreservingSize(int width) {
-        // TODO: Implement
-        return new ResultImpl<>();
+        ResultImpl<Bitmap> result = new ResultImpl<>();
+        if (mPendingCaptures != null) {
+            // Only one readback in flight per display, later requests share its pixels.
+            mPendingCaptures.add(new CaptureRequest(result, width));
+            return result;
+        }
+        if (mSurface == null || !mSurface.isValid()) {
+            result.completeExceptionally(new IllegalStateException("Display surface is not available"));
+            return result;
+        }
+
+        if (mReadbackBuffer == null || mReadbackBuffer.getWidth() != mWidth || mReadbackBuffer.getHeight() != mHeight) {
+            if (mReadbackBuffer != null) {
+                mReadbackBuffer.recycle();
+            }
+            mReadbackBuffer = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+        }
+
+        mPendingCaptures = new ArrayList<>();
+        mPendingCaptures.add(new CaptureRequest(result, width));
+        final Bitmap buffer = mReadbackBuffer;
+        try {
+            PixelCopy.request(mSurface, buffer, copyResult -> {
+                // Runs on the capture thread.
+                if (copyResult != PixelCopy.SUCCESS) {
+                    Log.e(LOGTAG, "Failed to read back display pixels: " + copyResult);
+                }
+                mUiHandler.post(() -> onReadbackFinished(buffer, copyResult == PixelCopy.SUCCESS));
+            }, getCaptureHandler());
+        } catch (IllegalArgumentException e) {
+            Log.e(LOGTAG, "Failed to request display pixels: " + e.getMessage());
+            onReadbackFinished(buffer, false);
+        }
+        return result;
+    }
+
+    private void onReadbackFinished(@NonNull Bitmap aBuffer, boolean aSuccess) {
+        ArrayList<CaptureRequest> requests = mPendingCaptures;
+        mPendingCaptures = null;
+        if (requests == null) {
+            return;
+        }
+        if (!aSuccess) {
+            for (CaptureRequest request : requests) {
+                request.result.completeExceptionally(new IllegalStateException("Display pixels readback failed"));
+            }
+            return;
+        }
+
+        // Scaling keeps the readback buffer busy, so block new readbacks until it finishes.
+        mPendingCaptures = new ArrayList<>();
+        getCaptureHandler().post(() -> {
+            for (CaptureRequest request : requests) {
+                try {
+                    request.result.complete(scaleToWidth(aBuffer, request.width));
+                } catch (Exception e) {
+                    request.result.completeExceptionally(e);
+                }
+            }
+            mUiHandler.post(() -> {
+                ArrayList<CaptureRequest> queued = mPendingCaptures;
+                mPendingCaptures = null;
+                if (queued != null) {
+                    for (CaptureRequest request : queued) {
+                        capturePixelsWithAspectPreservingSize(request.width).then(bitmap -> {
+                            request.result.complete(bitmap);
+                            return null;
+                        }).exceptionally(throwable -> {
+                            request.result.completeExceptionally(throwable);
+                            return null;
+                        });
+                    }
+                }
+            });
+        });
+    }
+
+    @NonNull
+    private static Bitmap scaleToWidth(@NonNull Bitmap aSource, int aWidth) {
+        int width = Math.max(1, Math.min(aWidth, aSource.getWidth()));
+        int height = Math.max(1, Math.round((float) aSource.getHeight() * width / aSource.getWidth()));
+        if (width == aSource.getWidth() && height == aSource.getHeight()) {
+            // The readback buffer is reused, never hand it out.
+            return aSource.copy(Bitmap.Config.ARGB_8888, false);
+        }
+        return Bitmap.createScaledBitmap(aSource, width, height, true);
+    }
+
+    @NonNull
+    private static synchronized Handler getCaptureHandler() {
+        if (sCaptureThread == null) {
+            sCaptureThread = new HandlerThread("DisplayCapture");
+            sCaptureThread.start();
+            sCaptureHandler = new Handler(sCaptureThread.getLooper());
+        }
+        return sCaptureHandler;
     }
 }
@@ -0,0 +1,252 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package com.igalia.wolvic;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Buffer of commands for the render thread. Commands are stored in preallocated arrays, and the
+ * render thread is woken up with a single queued runnable that executes every command appended
+ * until it runs, instead of one runnable and one JNI transition per command.
+ *
+ * Commands carrying objects can be appended as runnables, they keep their order relative to the
+ * typed ones. Commands of a coalesced type replace the pending command of that type, if there is
+ * one, so only the latest value reaches the render thread.
+ *
+ * Runnables queued in the render thread without going through this queue may run before commands
+ * appended earlier, so every runnable for the render thread must be posted here.
+ */
+public class RenderCommandQueue {
+
+    /**
+     * Executes typed commands in the render thread.
+     */
+    public interface CommandHandler {
+        void onCommand(int aType, @NonNull Command aCommand);
+    }
+
+    /**
+     * Arguments of a command, only valid during {@link CommandHandler#onCommand}.
+     */
+    public static class Command {
+        public int int0;
+        public int int1;
+        public float float0;
+        public float float1;
+        public float float2;
+        public float float3;
+        public long long0;
+    }
+
+    public static class Stats {
+        public long commands;
+        public long coalesced;
+        public long drains;
+        public int maxDepth;
+        public long totalDrainNs;
+        public long maxDrainNs;
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "commands=%d coalesced=%d drains=%d maxDepth=%d meanDrain=%.1fus maxDrain=%.1fus",
+                    commands, coalesced, drains, maxDepth,
+                    drains > 0 ? totalDrainNs / (drains * 1000f) : 0f, maxDrainNs / 1000f);
+        }
+    }
+
+    // Command types used internally, typed commands must use positive values.
+    private static final int TYPE_RUNNABLE = -1;
+    private static final int TYPE_REPLACED = -2;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int FLOAT_ARGS = 4;
+
+    private static class Buffer {
+        int size;
+        int[] types = new int[INITIAL_CAPACITY];
+        int[] ints = new int[INITIAL_CAPACITY * 2];
+        float[] floats = new float[INITIAL_CAPACITY * FLOAT_ARGS];
+        long[] longs = new long[INITIAL_CAPACITY];
+        Runnable[] runnables = new Runnable[INITIAL_CAPACITY];
+
+        int append(int aType) {
+            if (size == types.length) {
+                int capacity = types.length * 2;
+                types = Arrays.copyOf(types, capacity);
+                ints = Arrays.copyOf(ints, capacity * 2);
+                floats = Arrays.copyOf(floats, capacity * FLOAT_ARGS);
+                longs = Arrays.copyOf(longs, capacity);
+                runnables = Arrays.copyOf(runnables, capacity);
+            }
+            types[size] = aType;
+            return size++;
+        }
+
+        int lastIndexOf(int aType) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (types[i] == aType) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void clear() {
+            Arrays.fill(runnables, 0, size, null);
+            size = 0;
+        }
+    }
+
+    private final CommandHandler mHandler;
+    private final Consumer<Runnable> mRenderThreadQueue;
+    private Buffer mPending = new Buffer();
+    private Buffer mExecuting = new Buffer();
+    private final Command mCommand = new Command();
+    private boolean mDrainQueued;
+    private final Stats mStats = new Stats();
+    private final Runnable mDrainRunnable = this::drain;
+
+    /**
+     * @param aHandler Executes the typed commands in the render thread.
+     * @param aRenderThreadQueue Queues a runnable in the render thread.
+     */
+    public RenderCommandQueue(@NonNull CommandHandler aHandler, @NonNull Consumer<Runnable> aRenderThreadQueue) {
+        mHandler = aHandler;
+        mRenderThreadQueue = aRenderThreadQueue;
+    }
+
+    public void post(@NonNull Runnable aRunnable) {
+        synchronized (this) {
+            int index = mPending.append(TYPE_RUNNABLE);
+            mPending.runnables[index] = aRunnable;
+            onAppended();
+        }
+    }
+
+    public void post(int aType) {
+        post(aType, 0, 0);
+    }
+
+    public void post(int aType, int aInt0) {
+        post(aType, aInt0, 0);
+    }
+
+    public void post(int aType, int aInt0, int aInt1) {
+        synchronized (this) {
+            int index = mPending.append(aType);
+            mPending.ints[index * 2] = aInt0;
+            mPending.ints[index * 2 + 1] = aInt1;
+            onAppended();
+        }
+    }
+
+    public void post(int aType, long aLong0) {
+        synchronized (this) {
+            int index = mPending.append(aType);
+            mPending.longs[index] = aLong0;
+            onAppended();
+        }
+    }
+
+    public void post(int aType, int aInt0, float aFloat0, float aFloat1, float aFloat2, float aFloat3) {
+        synchronized (this) {
+            int index = mPending.append(aType);
+            mPending.ints[index * 2] = aInt0;
+            setFloats(index, aFloat0, aFloat1, aFloat2, aFloat3);
+            onAppended();
+        }
+    }
+
+    /**
+     * Appends a command with float arguments that replaces the pending command of the same type,
+     * if there is one. The command is moved to the end, so it still runs after the commands
+     * appended before it. Only for commands where the latest value is the only one that matters.
+     */
+    public void postCoalesced(int aType, float aFloat0, float aFloat1) {
+        synchronized (this) {
+            int replaced = mPending.lastIndexOf(aType);
+            if (replaced >= 0) {
+                mPending.types[replaced] = TYPE_REPLACED;
+                mStats.coalesced++;
+            }
+            int index = mPending.append(aType);
+            setFloats(index, aFloat0, aFloat1, 0, 0);
+            onAppended();
+        }
+    }
+
+    @NonNull
+    public synchronized Stats getStats() {
+        Stats result = new Stats();
+        result.commands = mStats.commands;
+        result.coalesced = mStats.coalesced;
+        result.drains = mStats.drains;
+        result.maxDepth = mStats.maxDepth;
+        result.totalDrainNs = mStats.totalDrainNs;
+        result.maxDrainNs = mStats.maxDrainNs;
+        return result;
+    }
+
+    private void setFloats(int aIndex, float aFloat0, float aFloat1, float aFloat2, float aFloat3) {
+        int offset = aIndex * FLOAT_ARGS;
+        mPending.floats[offset] = aFloat0;
+        mPending.floats[offset + 1] = aFloat1;
+        mPending.floats[offset + 2] = aFloat2;
+        mPending.floats[offset + 3] = aFloat3;
+    }
+
+    private void onAppended() {
+        mStats.commands++;
+        mStats.maxDepth = Math.max(mStats.maxDepth, mPending.size);
+        if (!mDrainQueued) {
+            mDrainQueued = true;
+            mRenderThreadQueue.accept(mDrainRunnable);
+        }
+    }
+
+    private void drain() {
+        long start = SystemClock.elapsedRealtimeNanos();
+        Buffer buffer;
+        synchronized (this) {
+            mDrainQueued = false;
+            buffer = mPending;
+            mPending = mExecuting;
+            mExecuting = buffer;
+        }
+
+        for (int i = 0; i < buffer.size; i++) {
+            int type = buffer.types[i];
+            if (type == TYPE_RUNNABLE) {
+                buffer.runnables[i].run();
+                continue;
+            } else if (type == TYPE_REPLACED) {
+                continue;
+            }
+            mCommand.int0 = buffer.ints[i * 2];
+            mCommand.int1 = buffer.ints[i * 2 + 1];
+            mCommand.float0 = buffer.floats[i * FLOAT_ARGS];
+            mCommand.float1 = buffer.floats[i * FLOAT_ARGS + 1];
+            mCommand.float2 = buffer.floats[i * FLOAT_ARGS + 2];
+            mCommand.float3 = buffer.floats[i * FLOAT_ARGS + 3];
+            mCommand.long0 = buffer.longs[i];
+            mHandler.onCommand(type, mCommand);
+        }
+        buffer.clear();
+
+        long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+        synchronized (this) {
+            mStats.drains++;
+            mStats.totalDrainNs += elapsed;
+            mStats.maxDrainNs = Math.max(mStats.maxDrainNs, elapsed);
+        }
+    }
+}
@@ -31,6 +31,7 @@ import android.os.Looper;
 import android.os.Process;
 import android.util.Log;
 import android.util.Pair;
+import android.view.Choreographer;
 import android.view.KeyEvent;
 import android.view.Surface;
 import android.view.View;
@@ -58,10 +59,12 @@ import com.igalia.wolvic.browser.api.WRuntime;
 import com.igalia.wolvic.browser.api.WSession;
 import com.igalia.wolvic.browser.engine.EngineProvider;
 import com.igalia.wolvic.browser.engine.Session;
+import com.igalia.wolvic.browser.engine.SessionEventBus;
 import com.igalia.wolvic.browser.engine.SessionStore;
 import com.igalia.wolvic.crashreporting.CrashReporterService;
 import com.igalia.wolvic.crashreporting.GlobalExceptionHandler;
 import com.igalia.wolvic.geolocation.GeolocationWrapper;
+import com.igalia.wolvic.input.ControllerInputQueue;
 import com.igalia.wolvic.input.MotionEventGenerator;
 import com.igalia.wolvic.search.SearchEngineWrapper;
 import com.igalia.wolvic.speech.SpeechRecognizer;
@@ -72,8 +75,10 @@ import com.igalia.wolvic.ui.adapters.Language;
 import com.igalia.wolvic.ui.widgets.AppServicesProvider;
 import com.igalia.wolvic.ui.widgets.KeyboardWidget;
 import com.igalia.wolvic.ui.widgets.NavigationBarWidget;
+import com.igalia.wolvic.ui.widgets.RenderStatsWidget;
 import com.igalia.wolvic.ui.widgets.RootWidget;
 import com.igalia.wolvic.ui.widgets.TrayWidget;
+import com.igalia.wolvic.ui.widgets.UIRedrawScheduler;
 import com.igalia.wolvic.ui.widgets.UISurfaceTextureRenderer;
 import com.igalia.wolvic.ui.widgets.UIWidget;
 import com.igalia.wolvic.ui.widgets.WebXRInterstitialWidget;
@@ -99,17 +104,16 @@ import com.igalia.wolvic.utils.SystemUtils;
 import org.json.JSONObject;
 
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 public class VRBrowserActivity extends PlatformActivity implements WidgetManagerDelegate,
@@ -195,12 +199,33 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
     static final int SwipeDelay = 1000; // milliseconds
     static final long RESET_CRASH_COUNT_DELAY = 5000;
     static final int UPDATE_NATIVE_WIDGETS_DELAY = 50; // milliseconds
+    static final int NATIVE_WIDGET_UPDATE_BUFFER_SIZE = 4096; // bytes
 
     // Passthrough was enabled on Pico version 5.7.1, via XR_FB_passthrough extension
     static final String kPicoVersionPassthroughUpdate = "5.7.1";
 
     static final String LOGTAG = SystemUtils.createLogtag(VRBrowserActivity.class);
     ConcurrentHashMap<Integer, Widget> mWidgets;
+    private ControllerInputQueue mInputQueue;
+    private UIRedrawScheduler mRedrawScheduler;
+    private RenderStatsWidget mRenderStats;
+
+    // Typed commands of mRenderCommands, executed in onRenderCommand().
+    private static final int COMMAND_RUN_CALLBACK = 1;
+    private static final int COMMAND_DELETE_CALLBACK = 2;
+    private static final int COMMAND_REMOVE_WIDGET = 3;
+    private static final int COMMAND_UPDATE_VISIBLE_WIDGETS = 4;
+    private static final int COMMAND_RECREATE_WIDGET_SURFACE = 5;
+    private static final int COMMAND_START_WIDGET_RESIZE = 6;
+    private static final int COMMAND_FINISH_WIDGET_RESIZE = 7;
+    private static final int COMMAND_START_WIDGET_MOVE = 8;
+    private static final int COMMAND_FINISH_WIDGET_MOVE = 9;
+    private static final int COMMAND_SET_WORLD_BRIGHTNESS = 10;
+    private static final int COMMAND_TRIGGER_HAPTIC_FEEDBACK = 11;
+    private static final int COMMAND_SET_CONTROLLERS_VISIBLE = 12;
+    private static final int COMMAND_SET_CYLINDER_DENSITY = 13;
+    private static final int COMMAND_REQUEST_FRAME_CALLBACK = 14;
+    private final RenderCommandQueue mRenderCommands = new RenderCommandQueue(this::onRenderCommand, this::queueRunnable);
     private int mWidgetHandleIndex = 1;
     AudioEngine mAudioEngine;
     OffscreenDisplay mOffscreenDisplay;
@@ -238,9 +263,14 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
     private float mCurrentCylinderDensity = 0;
     private boolean mHideWebXRIntersitial = false;
     private FragmentController mFragmentController;
-    private LinkedHashMap<Integer, WidgetPlacement> mPendingNativeWidgetUpdates = new LinkedHashMap<>();
-    private ScheduledThreadPoolExecutor mPendingNativeWidgetUpdatesExecutor = new ScheduledThreadPoolExecutor(1);
-    private ScheduledFuture<?> mNativeWidgetUpdatesTask = null;
+    // Placements waiting to be sent to native, coalesced per widget handle.
+    private final ConcurrentHashMap<Integer, WidgetPlacement> mPendingNativeWidgetUpdates = new ConcurrentHashMap<>();
+    private final AtomicBoolean mNativeWidgetUpdatesScheduled = new AtomicBoolean(false);
+    // Direct buffers used to send the placements to native, given back by the render thread.
+    private final ConcurrentLinkedQueue<ByteBuffer> mNativeWidgetUpdateBuffers = new ConcurrentLinkedQueue<>();
+    private final ArrayList<Integer> mFlushedWidgetHandles = new ArrayList<>();
+    private final ArrayList<WidgetPlacement> mFlushedWidgetPlacements = new ArrayList<>();
+    private final Choreographer.FrameCallback mFlushNativeWidgetUpdates = frameTimeNanos -> flushNativeWidgetUpdates();
     private Media mPrevActiveMedia = null;
     private boolean mIsPassthroughEnabled = false;
     private long mLastBatteryUpdate = System.nanoTime();
@@ -325,6 +355,8 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
         mBrightnessQueue = new LinkedList<>();
         mCurrentBrightness = Pair.create(null, 1.0f);
         mWidgets = new ConcurrentHashMap<>();
+        mInputQueue = new ControllerInputQueue(mInputQueueDelegate, this::runOnUiThread);
+        mRedrawScheduler = new UIRedrawScheduler(() -> mRenderCommands.post(COMMAND_REQUEST_FRAME_CALLBACK));
 
         super.onCreate(savedInstanceState);
 
@@ -347,12 +379,12 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
         mPrefs = PreferenceManager.getDefaultSharedPreferences(this);
         mPrefs.registerOnSharedPreferenceChangeListener(this);
 
-        queueRunnable(() -> {
+        mRenderCommands.post(() -> {
             createOffscreenDisplay();
             createCaptureSurface();
         });
         final String tempPath = getCacheDir().getAbsolutePath();
-        queueRunnable(() -> setTemporaryFilePath(tempPath));
+        mRenderCommands.post(() -> setTemporaryFilePath(tempPath));
 
         initializeWidgets();
 
@@ -438,7 +470,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
                 @CPULevelFlags int cpuLevel = mWindows.isVideoAvailable() ? WidgetManagerDelegate.CPU_LEVEL_HIGH :
                         WidgetManagerDelegate.CPU_LEVEL_NORMAL;
 
-                queueRunnable(() -> setCPULevelNative(cpuLevel));
+                mRenderCommands.post(() -> setCPULevelNative(cpuLevel));
             }
         });
 
@@ -640,6 +672,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
     @Override
     protected void onResume() {
         UISurfaceTextureRenderer.setRenderActive(true);
+        mInputQueue.clear();
         MotionEventGenerator.clearDevices();
         mWidgetContainer.getViewTreeObserver().addOnGlobalFocusChangeListener(globalFocusListener);
         if (mOffscreenDisplay != null) {
@@ -946,9 +979,10 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
             case ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE:
             case ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW:
             case ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL:
-                // It looks like these come in all at the same time so just always suspend inactive Sessions.
+                // It looks like these come in all at the same time, the suspension policy decides
+                // how many inactive Sessions need to be suspended for each level.
                 Log.d(LOGTAG, "Memory pressure, suspending inactive sessions.");
-                SessionStore.get().suspendAllInactiveSessions();
+                SessionStore.get().onTrimMemory(level);
                 break;
             default:
                 Log.e(LOGTAG, "onTrimMemory unknown level: " + level);
@@ -975,7 +1009,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
     @Deprecated
     public void onBackPressed() {
         if (mIsPresentingImmersive) {
-            queueRunnable(this::exitImmersiveNative);
+            mRenderCommands.post(this::exitImmersiveNative);
             return;
         }
         if (mBackHandlers.size() > 0) {
@@ -1036,7 +1070,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
 
     private void exitImmersiveSync() {
         synchronized (mWaitLock) {
-            queueRunnable(mExitImmersive);
+            mRenderCommands.post(mExitImmersive);
             try {
                 mWaitLock.wait();
             } catch (InterruptedException e) {
@@ -1085,7 +1119,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
 
             FinalizerRunnable firstDrawCallback = new FinalizerRunnable(() -> {
                 if (aNativeCallback != 0) {
-                    queueRunnable(() -> runCallbackNative(aNativeCallback));
+                    mRenderCommands.post(COMMAND_RUN_CALLBACK, aNativeCallback);
                 }
                 if (aSurface != null && !widget.isFirstPaintReady()) {
                     widget.setFirstPaintReady(true);
@@ -1094,7 +1128,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
             },
             () -> {
                 if (aNativeCallback != 0) {
-                    queueRunnable(() -> deleteCallbackNative(aNativeCallback));
+                    mRenderCommands.post(COMMAND_DELETE_CALLBACK, aNativeCallback);
                 }
             });
 
@@ -1115,13 +1149,27 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
     @Keep
     @SuppressWarnings("unused")
     void handleMotionEvent(final int aHandle, final int aDevice, final boolean aFocused, final boolean aPressed, final float aX, final float aY) {
-        runOnUiThread(() -> {
+        mInputQueue.queueMotionEvent(aHandle, aDevice, aFocused, aPressed, aX, aY);
+    }
+
+    @Keep
+    @SuppressWarnings("unused")
+    void handleScrollEvent(final int aHandle, final int aDevice, final float aX, final float aY) {
+        mInputQueue.queueScrollEvent(aHandle, aDevice, aX, aY);
+    }
+
+    private final ControllerInputQueue.Delegate mInputQueueDelegate = new ControllerInputQueue.Delegate() {
+        // Reused for every event, input is dispatched one event at a time in the UI thread.
+        private final ControllerInputQueue.History mWidgetHistory = new ControllerInputQueue.History();
+
+        @Override
+        public void onMotionEvent(int aHandle, int aDevice, boolean aFocused, boolean aPressed, float aX, float aY, @NonNull ControllerInputQueue.History aHistory, long aInputTimeNs) {
             Widget widget = mWidgets.get(aHandle);
             if (!isWidgetInputEnabled(widget)) {
                 widget = null; // Fallback to mRootWidget in order to allow world clicks to dismiss UI.
             }
 
-            float scale = widget != null ? widget.getPlacement().textureScale : SettingsStore.getInstance(this).getDisplayDpi() / 100.0f;
+            float scale = widget != null ? widget.getPlacement().textureScale : SettingsStore.getInstance(VRBrowserActivity.this).getDisplayDpi() / 100.0f;
             // We shouldn't divide the scale factor when we pass the motion event to the web engine
             if (widget instanceof WindowWidget) {
                 WindowWidget windowWidget = (WindowWidget) widget;
@@ -1129,26 +1177,19 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
                     scale = 1.0f;
                 }
             }
-            final float x = aX / scale;
-            final float y = aY / scale;
+            final float border = widget != null ? widget.getBorderWidth() : 0;
 
-            if (widget == null) {
-                MotionEventGenerator.dispatch(this, mRootWidget, aDevice, aFocused, aPressed, x, y);
-
-            } else if (widget.getBorderWidth() > 0) {
-                final int border = widget.getBorderWidth();
-                MotionEventGenerator.dispatch(this, widget, aDevice, aFocused, aPressed, x - border, y - border);
-
-            } else {
-                MotionEventGenerator.dispatch(this, widget, aDevice, aFocused, aPressed, x, y);
+            mWidgetHistory.clear();
+            for (int i = 0; i < aHistory.size(); i++) {
+                mWidgetHistory.add(aHistory.getX(i) / scale - border, aHistory.getY(i) / scale - border, aHistory.getTime(i));
             }
-        });
-    }
 
-    @Keep
-    @SuppressWarnings("unused")
-    void handleScrollEvent(final int aHandle, final int aDevice, final float aX, final float aY) {
-        runOnUiThread(() -> {
+            MotionEventGenerator.dispatch(VRBrowserActivity.this, widget != null ? widget : mRootWidget,
+                    aDevice, aFocused, aPressed, aX / scale - border, aY / scale - border, mWidgetHistory, aInputTimeNs);
+        }
+
+        @Override
+        public void onScrollEvent(int aHandle, int aDevice, float aX, float aY, long aInputTimeNs) {
             Widget widget = mWidgets.get(aHandle);
             if (!isWidgetInputEnabled(widget)) {
                 return;
@@ -1162,9 +1203,9 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
                 }
             }
             float scrollDirection = mSettings.getScrollDirection() == 0 ? 1.0f : -1.0f;
-            MotionEventGenerator.dispatchScroll(widget, aDevice, true,aX * scrollDirection, aY * scrollDirection);
-        });
-    }
+            MotionEventGenerator.dispatchScroll(widget, aDevice, true,aX * scrollDirection, aY * scrollDirection, aInputTimeNs);
+        }
+    };
 
     @Keep
     @SuppressWarnings("unused")
@@ -1275,6 +1316,8 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
         }
         mIsPresentingImmersive = true;
         runOnUiThread(() -> {
+            SessionStore.get().getCaptureScheduler().setImmersive(true);
+            mRedrawScheduler.setImmersive(true);
             mWindows.enterImmersiveMode();
             for (WebXRListener listener: mWebXRListeners) {
                 listener.onEnterWebXR();
@@ -1304,6 +1347,8 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
         }
         mIsPresentingImmersive = false;
         runOnUiThread(() -> {
+            SessionStore.get().getCaptureScheduler().setImmersive(false);
+            mRedrawScheduler.setImmersive(false);
             mWindows.exitImmersiveMode();
             for (WebXRListener listener: mWebXRListeners) {
                 listener.onExitWebXR();
@@ -1320,7 +1365,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
                 Log.d(LOGTAG, "Compositor resume begin");
                 mWindows.resumeCompositor();
                 if (aCallback != 0) {
-                    queueRunnable(() -> runCallbackNative(aCallback));
+                    mRenderCommands.post(COMMAND_RUN_CALLBACK, aCallback);
                 }
                 Log.d(LOGTAG, "Compositor resume end");
             }
@@ -1372,7 +1417,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
                 ex.printStackTrace();
             }
             if (aNativeCallback != 0) {
-                queueRunnable(() -> runCallbackNative(aNativeCallback));
+                mRenderCommands.post(COMMAND_RUN_CALLBACK, aNativeCallback);
             }
         });
     }
@@ -1529,6 +1574,13 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
         mTray.setBatteryLevels(mLastBatteryLevel, isCharging, leftLevel, rightLevel);
     }
 
+    // Called in the render thread when a frame requested with requestFrameCallbackNative() starts.
+    @Keep
+    @SuppressWarnings("unused")
+    private void handleFrameStart(int[] aOutOfViewHandles) {
+        mRedrawScheduler.onNativeFrame(aOutOfViewHandles);
+    }
+
     @Keep
     @SuppressWarnings("unused")
     private void onAppFocusChanged(final boolean aIsFocused) {
@@ -1619,23 +1671,59 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
         ((View)aWidget).setVisibility(aWidget.getPlacement().visible ? View.VISIBLE : View.GONE);
         final int handle = aWidget.getHandle();
         final WidgetPlacement clone = aWidget.getPlacement().clone();
-        queueRunnable(() -> addWidgetNative(handle, clone));
+        mRenderCommands.post(() -> addWidgetNative(handle, clone));
         updateActiveDialog(aWidget);
     }
 
     private void enqueueUpdateWidgetNativeCall(int handle, WidgetPlacement placement) {
         mPendingNativeWidgetUpdates.put(handle, placement);
 
-        if (mNativeWidgetUpdatesTask == null || mNativeWidgetUpdatesTask.isDone()) {
-            mNativeWidgetUpdatesTask = mPendingNativeWidgetUpdatesExecutor.schedule(() -> {
-                for (Map.Entry<Integer, WidgetPlacement> entry : mPendingNativeWidgetUpdates.entrySet()) {
-                    queueRunnable(() -> updateWidgetNative(entry.getKey(), entry.getValue()));
-                }
-                mPendingNativeWidgetUpdates.clear();
-            }, UPDATE_NATIVE_WIDGETS_DELAY, TimeUnit.MILLISECONDS);
+        if (mNativeWidgetUpdatesScheduled.compareAndSet(false, true)) {
+            runOnUiThread(() -> Choreographer.getInstance().postFrameCallbackDelayed(mFlushNativeWidgetUpdates, UPDATE_NATIVE_WIDGETS_DELAY));
         }
     }
 
+    /**
+     * Sends all the pending placements to native with a single call. The placements are
+     * serialized to a direct buffer, see WidgetPlacement.writeTo().
+     */
+    private void flushNativeWidgetUpdates() {
+        mNativeWidgetUpdatesScheduled.set(false);
+
+        int size = 0;
+        for (Integer handle : mPendingNativeWidgetUpdates.keySet()) {
+            WidgetPlacement placement = mPendingNativeWidgetUpdates.remove(handle);
+            if (placement != null) {
+                mFlushedWidgetHandles.add(handle);
+                mFlushedWidgetPlacements.add(placement);
+                size += Integer.BYTES + placement.serializedSize();
+            }
+        }
+        final int count = mFlushedWidgetHandles.size();
+        if (count == 0) {
+            return;
+        }
+
+        ByteBuffer buffer = mNativeWidgetUpdateBuffers.poll();
+        if (buffer == null || buffer.capacity() < size) {
+            buffer = ByteBuffer.allocateDirect(Math.max(size, NATIVE_WIDGET_UPDATE_BUFFER_SIZE)).order(ByteOrder.nativeOrder());
+        }
+        buffer.clear();
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(mFlushedWidgetHandles.get(i));
+            mFlushedWidgetPlacements.get(i).writeTo(buffer);
+        }
+        mFlushedWidgetHandles.clear();
+        mFlushedWidgetPlacements.clear();
+
+        final ByteBuffer updates = buffer;
+        final int length = buffer.position();
+        mRenderCommands.post(() -> {
+            updateWidgetsNative(updates, length, count);
+            mNativeWidgetUpdateBuffers.offer(updates);
+        });
+    }
+
     @Override
     public void updateWidget(final Widget aWidget) {
         if (aWidget == null) {
@@ -1676,6 +1764,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
             view.setVisibility(visible ? View.VISIBLE : View.GONE);
         }
 
+        mRedrawScheduler.onWidgetUpdated(aWidget);
         for (UpdateListener listener: mWidgetUpdateListeners) {
             listener.onWidgetUpdate(aWidget);
         }
@@ -1688,9 +1777,11 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
             return;
         }
         mWidgets.remove(aWidget.getHandle());
+        mPendingNativeWidgetUpdates.remove(aWidget.getHandle());
+        mRedrawScheduler.removeWidget(aWidget);
         mWidgetContainer.removeView((View) aWidget);
         aWidget.setFirstPaintReady(false);
-        queueRunnable(() -> removeWidgetNative(aWidget.getHandle()));
+        mRenderCommands.post(COMMAND_REMOVE_WIDGET, aWidget.getHandle());
         if (aWidget == mActiveDialog) {
             mActiveDialog = null;
         }
@@ -1707,12 +1798,12 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
 
     @Override
     public void updateVisibleWidgets() {
-        queueRunnable(this::updateVisibleWidgetsNative);
+        mRenderCommands.post(COMMAND_UPDATE_VISIBLE_WIDGETS);
     }
 
     @Override
     public void recreateWidgetSurface(Widget aWidget) {
-        queueRunnable(() -> recreateWidgetSurfaceNative(aWidget.getHandle()));
+        mRenderCommands.post(COMMAND_RECREATE_WIDGET_SURFACE, aWidget.getHandle());
     }
 
     @Override
@@ -1721,7 +1812,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
             return;
         }
         mWindows.enterResizeMode();
-        queueRunnable(() -> startWidgetResizeNative(aWidget.getHandle(), aMaxWidth, aMaxHeight, minWidth, minHeight));
+        mRenderCommands.post(COMMAND_START_WIDGET_RESIZE, aWidget.getHandle(), aMaxWidth, aMaxHeight, minWidth, minHeight);
     }
 
     @Override
@@ -1730,7 +1821,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
             return;
         }
         mWindows.exitResizeMode();
-        queueRunnable(() -> finishWidgetResizeNative(aWidget.getHandle()));
+        mRenderCommands.post(COMMAND_FINISH_WIDGET_RESIZE, aWidget.getHandle());
     }
 
     @Override
@@ -1738,12 +1829,12 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
         if (aWidget == null) {
             return;
         }
-        queueRunnable(() -> startWidgetMoveNative(aWidget.getHandle(), aMoveBehaviour));
+        mRenderCommands.post(COMMAND_START_WIDGET_MOVE, aWidget.getHandle(), aMoveBehaviour);
     }
 
     @Override
     public void finishWidgetMove() {
-        queueRunnable(this::finishWidgetMoveNative);
+        mRenderCommands.post(COMMAND_FINISH_WIDGET_MOVE);
     }
 
     @Override
@@ -1807,7 +1898,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
 
     @Override
     public void setWebXRIntersitialState(@WebXRInterstitialState int aState) {
-        queueRunnable(() -> setWebXRIntersitialStateNative(aState));
+        mRenderCommands.post(() -> setWebXRIntersitialStateNative(aState));
     }
 
     @Override
@@ -1833,7 +1924,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
     @Override
     public void pushWorldBrightness(Object aKey, float aBrightness) {
         if (mCurrentBrightness.second != aBrightness) {
-            queueRunnable(() -> setWorldBrightnessNative(aBrightness));
+            mRenderCommands.postCoalesced(COMMAND_SET_WORLD_BRIGHTNESS, aBrightness, 0);
         }
         mBrightnessQueue.add(mCurrentBrightness);
         mCurrentBrightness = Pair.create(aKey, aBrightness);
@@ -1844,7 +1935,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
         if (mCurrentBrightness.first == aKey) {
             if (mCurrentBrightness.second != aBrightness) {
                 mCurrentBrightness = Pair.create(aKey, aBrightness);
-                queueRunnable(() -> setWorldBrightnessNative(aBrightness));
+                mRenderCommands.postCoalesced(COMMAND_SET_WORLD_BRIGHTNESS, aBrightness, 0);
             }
         } else {
             for (int i = mBrightnessQueue.size() - 1; i >= 0; --i) {
@@ -1865,7 +1956,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
             float brightness = mCurrentBrightness.second;
             mCurrentBrightness = mBrightnessQueue.removeLast();
             if (mCurrentBrightness.second != brightness) {
-                queueRunnable(() -> setWorldBrightnessNative(mCurrentBrightness.second));
+                mRenderCommands.postCoalesced(COMMAND_SET_WORLD_BRIGHTNESS, mCurrentBrightness.second, 0);
             }
 
             return;
@@ -1882,13 +1973,38 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
     public void triggerHapticFeedback() {
         SettingsStore settings = SettingsStore.getInstance(this);
         if (settings.isHapticFeedbackEnabled()) {
-            queueRunnable(() -> triggerHapticFeedbackNative(settings.getHapticPulseDuration(), settings.getHapticPulseIntensity()));
+            // Every pulse must be felt, so they are not coalesced.
+            mRenderCommands.post(COMMAND_TRIGGER_HAPTIC_FEEDBACK, 0, settings.getHapticPulseDuration(), settings.getHapticPulseIntensity(), 0, 0);
         }
     }
 
     @Override
     public void setControllersVisible(final boolean aVisible) {
-        queueRunnable(() -> setControllersVisibleNative(aVisible));
+        mRenderCommands.post(COMMAND_SET_CONTROLLERS_VISIBLE, aVisible ? 1 : 0);
+    }
+
+    @Override
+    public void setRenderStatsVisible(boolean aVisible) {
+        // Session listeners are only timed while the developer is looking at the stats.
+        SessionEventBus.setDispatchStatsEnabled(aVisible);
+        if (mRenderStats == null) {
+            if (!aVisible) {
+                return;
+            }
+            mRenderStats = new RenderStatsWidget(this);
+            mRenderStats.attachToTray(mTray);
+            addWidget(mRenderStats);
+        }
+        if (aVisible) {
+            mRenderStats.show(UIWidget.KEEP_FOCUS);
+        } else {
+            mRenderStats.hide(UIWidget.KEEP_WIDGET);
+        }
+    }
+
+    @Override
+    public boolean isRenderStatsVisible() {
+        return mRenderStats != null && mRenderStats.isVisible();
     }
 
     @Override
@@ -1903,7 +2019,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
 
     @Override
     public void updateEnvironment() {
-        queueRunnable(this::updateEnvironmentNative);
+        mRenderCommands.post(this::updateEnvironmentNative);
     }
 
     @Override
@@ -1913,7 +2029,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
 
     @Override
     public void updatePointerColor() {
-        queueRunnable(this::updatePointerColorNative);
+        mRenderCommands.post(this::updatePointerColorNative);
     }
 
     @Override
@@ -1945,18 +2061,18 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
 
     @Override
     public void showVRVideo(final int aWindowHandle, final @VideoProjectionMenuWidget.VideoProjectionFlags int aVideoProjection) {
-        queueRunnable(() -> showVRVideoNative(aWindowHandle, aVideoProjection));
+        mRenderCommands.post(() -> showVRVideoNative(aWindowHandle, aVideoProjection));
     }
 
     @Override
     public void hideVRVideo() {
-        queueRunnable(this::hideVRVideoNative);
+        mRenderCommands.post(this::hideVRVideoNative);
     }
 
     @Override
     public void togglePassthrough() {
         mIsPassthroughEnabled = !mIsPassthroughEnabled;
-        queueRunnable(() -> togglePassthroughNative());
+        mRenderCommands.post(() -> togglePassthroughNative());
     }
 
     @Override
@@ -1976,7 +2092,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
 
     @Override
     public void setHeadLockEnabled(boolean isHeadLockEnabled) {
-        queueRunnable(() -> {
+        mRenderCommands.post(() -> {
             setHeadLockEnabledNative(isHeadLockEnabled);
             if (!isHeadLockEnabled) {
                 recenterUIYaw(WidgetManagerDelegate.YAW_TARGET_ALL);
@@ -1986,7 +2102,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
 
     @Override
     public void recenterUIYaw(@YawTarget int aTarget) {
-        queueRunnable(() -> recenterUIYawNative(aTarget));
+        mRenderCommands.post(() -> recenterUIYawNative(aTarget));
     }
 
     @Override
@@ -2000,7 +2116,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
     @Override
     public void setCylinderDensityForce(final float aDensity) {
         mCurrentCylinderDensity = aDensity;
-        queueRunnable(() -> setCylinderDensityNative(aDensity));
+        mRenderCommands.postCoalesced(COMMAND_SET_CYLINDER_DENSITY, aDensity, 0);
         if (mWindows != null) {
             mWindows.updateCurvedMode(false);
         }
@@ -2092,8 +2208,8 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
     }
 
     @Override
-    public void saveState() {
-        mWindows.saveState();
+    public void saveStateNow() {
+        mWindows.saveStateNow();
     }
 
     @Override
@@ -2108,8 +2224,76 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
         return (AppServicesProvider)getApplication();
     }
 
+    // Called in the render thread.
+    private void onRenderCommand(int aType, @NonNull RenderCommandQueue.Command aCommand) {
+        switch (aType) {
+            case COMMAND_RUN_CALLBACK:
+                runCallbackNative(aCommand.long0);
+                break;
+            case COMMAND_DELETE_CALLBACK:
+                deleteCallbackNative(aCommand.long0);
+                break;
+            case COMMAND_REMOVE_WIDGET:
+                removeWidgetNative(aCommand.int0);
+                break;
+            case COMMAND_UPDATE_VISIBLE_WIDGETS:
+                updateVisibleWidgetsNative();
+                break;
+            case COMMAND_RECREATE_WIDGET_SURFACE:
+                recreateWidgetSurfaceNative(aCommand.int0);
+                break;
+            case COMMAND_START_WIDGET_RESIZE:
+                startWidgetResizeNative(aCommand.int0, aCommand.float0, aCommand.float1, aCommand.float2, aCommand.float3);
+                break;
+            case COMMAND_FINISH_WIDGET_RESIZE:
+                finishWidgetResizeNative(aCommand.int0);
+                break;
+            case COMMAND_START_WIDGET_MOVE:
+                startWidgetMoveNative(aCommand.int0, aCommand.int1);
+                break;
+            case COMMAND_FINISH_WIDGET_MOVE:
+                finishWidgetMoveNative();
+                break;
+            case COMMAND_SET_WORLD_BRIGHTNESS:
+                setWorldBrightnessNative(aCommand.float0);
+                break;
+            case COMMAND_TRIGGER_HAPTIC_FEEDBACK:
+                triggerHapticFeedbackNative(aCommand.float0, aCommand.float1);
+                break;
+            case COMMAND_SET_CONTROLLERS_VISIBLE:
+                setControllersVisibleNative(aCommand.int0 != 0);
+                break;
+            case COMMAND_SET_CYLINDER_DENSITY:
+                setCylinderDensityNative(aCommand.float0);
+                break;
+            case COMMAND_REQUEST_FRAME_CALLBACK:
+                requestFrameCallbackNative();
+                break;
+            default:
+                Log.e(LOGTAG, "Unknown render command: " + aType);
+        }
+    }
+
+    @NonNull
+    @Override
+    public UIRedrawScheduler getRedrawScheduler() {
+        return mRedrawScheduler;
+    }
+
+    @NonNull
+    @Override
+    public RenderCommandQueue.Stats getRenderCommandStats() {
+        return mRenderCommands.getStats();
+    }
+
+    // Called by the platform activities instead of queueRunnable(), so that their runnables keep
+    // their order relative to the render commands.
+    protected void queueRenderRunnable(@NonNull Runnable aRunnable) {
+        mRenderCommands.post(aRunnable);
+    }
+
     private native void addWidgetNative(int aHandle, WidgetPlacement aPlacement);
-    private native void updateWidgetNative(int aHandle, WidgetPlacement aPlacement);
+    private native void updateWidgetsNative(ByteBuffer aBuffer, int aLength, int aCount);
     private native void updateVisibleWidgetsNative();
     private native void removeWidgetNative(int aHandle);
     private native void recreateWidgetSurfaceNative(int aHandle);
@@ -2133,6 +2317,7 @@ public class VRBrowserActivity extends PlatformActivity implements WidgetManager
     private native void runCallbackNative(long aCallback);
     private native void deleteCallbackNative(long aCallback);
     private native void setCylinderDensityNative(float aDensity);
+    private native void requestFrameCallbackNative();
     private native void setCPULevelNative(@CPULevelFlags int aCPULevel);
     private native void setWebXRIntersitialStateNative(@WebXRInterstitialState int aState);
     private native void setIsServo(boolean aIsServo);
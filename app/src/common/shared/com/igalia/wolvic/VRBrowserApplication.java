@@ -68,7 +68,7 @@ public class VRBrowserApplication extends Application implements AppServicesProv
         mBitmapCache = new BitmapCache(activityContext, mAppExecutors.diskIO(), mAppExecutors.mainThread());
         mEnvironmentsManager = new EnvironmentsManager(activityContext);
         mEnvironmentsManager.init();
-        mDictionariesManager = new DictionariesManager(activityContext);
+        mDictionariesManager = new DictionariesManager(activityContext, mAppExecutors.diskIO(), mAppExecutors.mainThread());
         mDictionariesManager.init();
         mAddons = new Addons(activityContext, mSessionStore);
     }
@@ -0,0 +1,207 @@
+package com.igalia.wolvic.browser.engine;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.igalia.wolvic.utils.SystemUtils;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Central place to request session thumbnails. Requests are coalesced per session, delayed so they
+ * don't compete with the rendering of a page that just finished loading, and executed one at a
+ * time, sessions visible in the tabs tray first. No captures are done while in immersive WebXR.
+ * All the methods must be called from the UI thread.
+ */
+public class CaptureScheduler {
+
+    private static final String LOGTAG = SystemUtils.createLogtag(CaptureScheduler.class);
+
+    @IntDef(value = { PRIORITY_LOW, PRIORITY_NORMAL, PRIORITY_VISIBLE })
+    public @interface CapturePriority {}
+    public static final int PRIORITY_LOW = 0;
+    public static final int PRIORITY_NORMAL = 1;
+    public static final int PRIORITY_VISIBLE = 2;
+
+    // Time to wait after a page load before capturing it.
+    private static final long CAPTURE_DELAY_MS = 1000;
+    // Minimum time between two captures of the same session, limits captures on rapid navigation.
+    private static final long SESSION_CAPTURE_INTERVAL_MS = 3000;
+    // Minimum time between two consecutive captures of any session.
+    private static final long CAPTURE_INTERVAL_MS = 100;
+
+    private static class CaptureRequest {
+        @CapturePriority int priority;
+        long dueTime;
+    }
+
+    private final Handler mHandler;
+    // Insertion order is used to break ties between requests with the same priority.
+    private final LinkedHashMap<Session, CaptureRequest> mPending = new LinkedHashMap<>();
+    private final WeakHashMap<Session, Long> mLastCaptureTime = new WeakHashMap<>();
+    private final Set<Session> mVisibleSessions = new HashSet<>();
+    // Sessions loading a page, which get a new thumbnail once the page stops loading.
+    private final Set<Session> mLoadingSessions = new HashSet<>();
+    private boolean mImmersive;
+    private boolean mCaptureInFlight;
+    private long mLastCaptureEnd;
+    private final Runnable mProcessRunnable = this::processNext;
+
+    CaptureScheduler() {
+        mHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Schedules a thumbnail capture for the session. If there is already one pending the requests
+     * are merged, keeping the highest priority.
+     */
+    public void requestCapture(@NonNull Session aSession, @CapturePriority int aPriority) {
+        long now = SystemClock.uptimeMillis();
+        long dueTime = aPriority == PRIORITY_VISIBLE ? now : now + CAPTURE_DELAY_MS;
+        Long lastCapture = mLastCaptureTime.get(aSession);
+        if (lastCapture != null && aPriority != PRIORITY_VISIBLE) {
+            dueTime = Math.max(dueTime, lastCapture + SESSION_CAPTURE_INTERVAL_MS);
+        }
+
+        CaptureRequest request = mPending.get(aSession);
+        if (request == null) {
+            request = new CaptureRequest();
+            request.priority = aPriority;
+            request.dueTime = dueTime;
+            mPending.put(aSession, request);
+        } else {
+            request.priority = Math.max(request.priority, aPriority);
+            // Navigating again before the capture runs pushes it back, the page is changing anyway.
+            request.dueTime = request.priority == PRIORITY_VISIBLE ? Math.min(request.dueTime, dueTime) : dueTime;
+        }
+
+        schedule();
+    }
+
+    /**
+     * Called by every session when it starts loading a page, whether it is shown in a window or not.
+     */
+    public void onPageStart(@NonNull Session aSession) {
+        mLoadingSessions.add(aSession);
+    }
+
+    /**
+     * Called by every session when it stops loading a page. Schedules a capture if the session
+     * loaded a page since its last capture or has no thumbnail yet. Sessions that are not active
+     * are captured after the rest.
+     */
+    public void onPageStop(@NonNull Session aSession) {
+        if (mLoadingSessions.remove(aSession) || !aSession.hasCapturedBitmap()) {
+            requestCapture(aSession, aSession.isActive() ? PRIORITY_NORMAL : PRIORITY_LOW);
+        }
+    }
+
+    public void cancelCapture(@NonNull Session aSession) {
+        mPending.remove(aSession);
+        mLoadingSessions.remove(aSession);
+        mVisibleSessions.remove(aSession);
+        mLastCaptureTime.remove(aSession);
+    }
+
+    /**
+     * Marks whether the session is currently displayed in the tabs tray. Pending captures of
+     * visible sessions are promoted so that the tray gets up to date thumbnails first.
+     */
+    public void setSessionVisible(@NonNull Session aSession, boolean aVisible) {
+        if (aVisible) {
+            mVisibleSessions.add(aSession);
+            CaptureRequest request = mPending.get(aSession);
+            if (request != null && request.priority != PRIORITY_VISIBLE) {
+                request.priority = PRIORITY_VISIBLE;
+                request.dueTime = SystemClock.uptimeMillis();
+                schedule();
+            }
+        } else {
+            mVisibleSessions.remove(aSession);
+        }
+    }
+
+    public void clearVisibleSessions() {
+        mVisibleSessions.clear();
+    }
+
+    public void setImmersive(boolean aImmersive) {
+        if (mImmersive == aImmersive) {
+            return;
+        }
+        mImmersive = aImmersive;
+        if (mImmersive) {
+            mHandler.removeCallbacks(mProcessRunnable);
+        } else {
+            schedule();
+        }
+    }
+
+    private int effectivePriority(@NonNull Session aSession, @NonNull CaptureRequest aRequest) {
+        return mVisibleSessions.contains(aSession) ? PRIORITY_VISIBLE : aRequest.priority;
+    }
+
+    /**
+     * Returns the session with the highest priority among the ones whose capture is due.
+     */
+    private @Nullable Session nextDueSession(long aNow) {
+        Session next = null;
+        CaptureRequest best = null;
+        for (Map.Entry<Session, CaptureRequest> entry : mPending.entrySet()) {
+            CaptureRequest request = entry.getValue();
+            if (request.dueTime > aNow) {
+                continue;
+            }
+            if (best == null || effectivePriority(entry.getKey(), request) > effectivePriority(next, best)) {
+                next = entry.getKey();
+                best = request;
+            }
+        }
+        return next;
+    }
+
+    private void schedule() {
+        mHandler.removeCallbacks(mProcessRunnable);
+        if (mImmersive || mCaptureInFlight || mPending.isEmpty()) {
+            return;
+        }
+        long dueTime = Long.MAX_VALUE;
+        for (CaptureRequest request : mPending.values()) {
+            dueTime = Math.min(dueTime, request.dueTime);
+        }
+        mHandler.postAtTime(mProcessRunnable, Math.max(dueTime, mLastCaptureEnd + CAPTURE_INTERVAL_MS));
+    }
+
+    private void processNext() {
+        if (mImmersive || mCaptureInFlight) {
+            return;
+        }
+        Session session = nextDueSession(SystemClock.uptimeMillis());
+        if (session == null) {
+            schedule();
+            return;
+        }
+
+        mPending.remove(session);
+        mCaptureInFlight = true;
+        mLastCaptureTime.put(session, SystemClock.uptimeMillis());
+        session.captureBitmap().whenComplete((aVoid, throwable) -> mHandler.post(() -> {
+            if (throwable != null) {
+                Log.e(LOGTAG, "Session capture failed: " + throwable.getMessage());
+            }
+            mCaptureInFlight = false;
+            mLastCaptureEnd = SystemClock.uptimeMillis();
+            schedule();
+        }));
+    }
+}
@@ -0,0 +1,68 @@
+package com.igalia.wolvic.browser.engine;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.igalia.wolvic.browser.api.WSessionState;
+import com.igalia.wolvic.utils.SystemUtils;
+
+/**
+ * Engine session state restored from disk that is kept in its serialized form until a session
+ * actually needs it. Parsing the engine state is proportional to the size of the session history,
+ * so doing it for every saved tab at startup makes cold start scale with the total history size.
+ * The serialized form is immutable, so it can be written back to disk from any thread.
+ */
+class LazySessionState implements WSessionState {
+
+    private static final String LOGTAG = SystemUtils.createLogtag(LazySessionState.class);
+
+    private final String mJson;
+    private volatile WSessionState mParsed;
+    private volatile boolean mParseFailed;
+
+    LazySessionState(@NonNull String aJson) {
+        mJson = aJson;
+    }
+
+    /**
+     * Returns the engine session state, parsing it the first time it is needed, or null if it can
+     * not be parsed.
+     */
+    @Nullable
+    WSessionState resolve() {
+        if (mParsed == null && !mParseFailed) {
+            try {
+                mParsed = WSessionState.fromJson(mJson);
+            } catch (Exception e) {
+                Log.w(LOGTAG, "Unable to parse the saved session state: " + e.getMessage());
+                mParseFailed = true;
+            }
+        }
+        return mParsed;
+    }
+
+    /**
+     * Unwraps the engine session state if it was restored lazily.
+     */
+    @Nullable
+    static WSessionState resolve(@Nullable WSessionState aState) {
+        if (aState instanceof LazySessionState) {
+            return ((LazySessionState) aState).resolve();
+        }
+        return aState;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        WSessionState state = resolve();
+        return state == null || state.isEmpty();
+    }
+
+    // Returns the serialized state as it was read, without parsing it.
+    @Override
+    public String toJson() {
+        return mJson;
+    }
+}
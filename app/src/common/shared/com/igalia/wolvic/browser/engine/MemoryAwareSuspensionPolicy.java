@@ -0,0 +1,108 @@
+package com.igalia.wolvic.browser.engine;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.igalia.wolvic.utils.SystemUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a number of warm sessions that depends on the device memory and reduces it when the
+ * system reports memory pressure. Sessions playing media and sessions kept alive (e.g. just opened
+ * by a popup) are the last ones to be suspended, the rest are ranked by last use.
+ */
+public class MemoryAwareSuspensionPolicy implements SessionSuspensionPolicy {
+
+    private static final String LOGTAG = SystemUtils.createLogtag(MemoryAwareSuspensionPolicy.class);
+
+    private static final long GB = 1024L * 1024L * 1024L;
+    // Memory pressure is forgotten after this time without new trim notifications.
+    private static final long TRIM_LEVEL_TIMEOUT_MS = 60 * 1000;
+
+    private final int mMaxAliveSessions;
+    private int mTrimLevel;
+    private long mTrimTime;
+
+    public MemoryAwareSuspensionPolicy(@NonNull Context aContext) {
+        ActivityManager activityManager = (ActivityManager) aContext.getSystemService(Context.ACTIVITY_SERVICE);
+        ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+        activityManager.getMemoryInfo(memoryInfo);
+        mMaxAliveSessions = getMaxAliveSessions(memoryInfo.totalMem, activityManager.isLowRamDevice());
+        Log.d(LOGTAG, "Total memory: " + (memoryInfo.totalMem / (1024 * 1024)) + "MB, max alive sessions: " + mMaxAliveSessions);
+    }
+
+    private static int getMaxAliveSessions(long aTotalMemory, boolean aLowRamDevice) {
+        if (aLowRamDevice || aTotalMemory < 4 * GB) {
+            return 3;
+        } else if (aTotalMemory < 6 * GB) {
+            return 5;
+        } else if (aTotalMemory < 8 * GB) {
+            return 8;
+        }
+        return 12;
+    }
+
+    private int getCurrentLimit() {
+        if (mTrimLevel != 0 && SystemClock.elapsedRealtime() - mTrimTime > TRIM_LEVEL_TIMEOUT_MS) {
+            mTrimLevel = 0;
+        }
+        switch (mTrimLevel) {
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE:
+                return Math.max(1, mMaxAliveSessions / 2);
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW:
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL:
+                // Only keep the active sessions.
+                return 0;
+            default:
+                return mMaxAliveSessions;
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int aLevel) {
+        switch (aLevel) {
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE:
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW:
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL:
+                // These usually come in a burst, keep the most severe one.
+                if (SystemClock.elapsedRealtime() - mTrimTime > TRIM_LEVEL_TIMEOUT_MS) {
+                    mTrimLevel = aLevel;
+                } else {
+                    mTrimLevel = Math.max(mTrimLevel, aLevel);
+                }
+                mTrimTime = SystemClock.elapsedRealtime();
+                break;
+            default:
+                break;
+        }
+    }
+
+    @NonNull
+    @Override
+    public List<Session> getSessionsToSuspend(@NonNull List<Session> aAliveSessions) {
+        int excess = aAliveSessions.size() - getCurrentLimit();
+        if (excess <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<Session> candidates = aAliveSessions.stream()
+                .filter(session -> !session.isActive() && !session.isKeptAlive())
+                .sorted(Comparator.comparing(Session::isMediaPlaying).thenComparingLong(Session::getLastUse))
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        if (candidates.size() > excess) {
+            return candidates.subList(0, excess);
+        }
+        return candidates;
+    }
+}
@@ -73,17 +73,18 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     private static UriOverride sDesktopModeOverrides;
     private static final long KEEP_ALIVE_DURATION_MS = 1000; // 1 second.
 
-    private transient CopyOnWriteArrayList<WSession.NavigationDelegate> mNavigationListeners;
-    private transient CopyOnWriteArrayList<WSession.ProgressDelegate> mProgressListeners;
-    private transient CopyOnWriteArrayList<WSession.ContentDelegate> mContentListeners;
-    private transient CopyOnWriteArrayList<SessionChangeListener> mSessionChangeListeners;
-    private transient CopyOnWriteArrayList<WSession.TextInputDelegate> mTextInputListeners;
-    private transient CopyOnWriteArrayList<VideoAvailabilityListener> mVideoAvailabilityListeners;
-    private transient CopyOnWriteArrayList<BitmapChangedListener> mBitmapChangedListeners;
-    private transient CopyOnWriteArrayList<WSession.SelectionActionDelegate> mSelectionActionListeners;
-    private transient CopyOnWriteArrayList<WebXRStateChangedListener> mWebXRStateListeners;
-    private transient CopyOnWriteArrayList<PopUpStateChangedListener> mPopUpStateStateListeners;
-    private transient CopyOnWriteArrayList<DrmStateChangedListener> mDrmStateStateListeners;
+    private transient SessionEventBus mEventBus;
+    private transient SessionEventBus.Channel<WSession.NavigationDelegate> mNavigationListeners;
+    private transient SessionEventBus.Channel<WSession.ProgressDelegate> mProgressListeners;
+    private transient SessionEventBus.Channel<WSession.ContentDelegate> mContentListeners;
+    private transient SessionEventBus.Channel<SessionChangeListener> mSessionChangeListeners;
+    private transient SessionEventBus.Channel<WSession.TextInputDelegate> mTextInputListeners;
+    private transient SessionEventBus.Channel<VideoAvailabilityListener> mVideoAvailabilityListeners;
+    private transient SessionEventBus.Channel<BitmapChangedListener> mBitmapChangedListeners;
+    private transient SessionEventBus.Channel<WSession.SelectionActionDelegate> mSelectionActionListeners;
+    private transient SessionEventBus.Channel<WebXRStateChangedListener> mWebXRStateListeners;
+    private transient SessionEventBus.Channel<PopUpStateChangedListener> mPopUpStateStateListeners;
+    private transient SessionEventBus.Channel<DrmStateChangedListener> mDrmStateStateListeners;
 
     private SessionState mState;
     private transient CopyOnWriteArrayList<Runnable> mQueuedCalls = new CopyOnWriteArrayList<>();
@@ -96,6 +97,9 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     private transient WRuntime mRuntime;
     private transient byte[] mPrivatePage;
     private transient boolean mFirstContentfulPaint;
+    // Size of the last display, used to capture the session once the window released it.
+    private transient int mDisplayWidth;
+    private transient int mDisplayHeight;
     private transient long mKeepAlive;
     private transient Media mMedia;
 
@@ -176,17 +180,18 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     }
 
     private void initialize() {
-        mNavigationListeners = new CopyOnWriteArrayList<>();
-        mProgressListeners = new CopyOnWriteArrayList<>();
-        mContentListeners = new CopyOnWriteArrayList<>();
-        mSessionChangeListeners = new CopyOnWriteArrayList<>();
-        mTextInputListeners = new CopyOnWriteArrayList<>();
-        mVideoAvailabilityListeners = new CopyOnWriteArrayList<>();
-        mSelectionActionListeners = new CopyOnWriteArrayList<>();
-        mBitmapChangedListeners = new CopyOnWriteArrayList<>();
-        mWebXRStateListeners = new CopyOnWriteArrayList<>();
-        mPopUpStateStateListeners = new CopyOnWriteArrayList<>();
-        mDrmStateStateListeners = new CopyOnWriteArrayList<>();
+        mEventBus = new SessionEventBus();
+        mNavigationListeners = mEventBus.createChannel();
+        mProgressListeners = mEventBus.createChannel();
+        mContentListeners = mEventBus.createChannel();
+        mSessionChangeListeners = mEventBus.createChannel();
+        mTextInputListeners = mEventBus.createChannel();
+        mVideoAvailabilityListeners = mEventBus.createChannel();
+        mSelectionActionListeners = mEventBus.createChannel();
+        mBitmapChangedListeners = mEventBus.createChannel();
+        mWebXRStateListeners = mEventBus.createChannel();
+        mPopUpStateStateListeners = mEventBus.createChannel();
+        mDrmStateStateListeners = mEventBus.createChannel();
         mMedia = new Media();
 
         mPrefs = PreferenceManager.getDefaultSharedPreferences(mContext);
@@ -219,6 +224,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
         }
 
         mQueuedCalls.clear();
+        mEventBus.cancelPending();
         mNavigationListeners.clear();
         mProgressListeners.clear();
         mContentListeners.clear();
@@ -338,7 +344,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     }
 
     public void addNavigationListener(WSession.NavigationDelegate aListener) {
-        mNavigationListeners.addIfAbsent(aListener);
+        mNavigationListeners.add(aListener);
         dumpState(aListener);
     }
 
@@ -347,7 +353,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     }
 
     public void addProgressListener(WSession.ProgressDelegate aListener) {
-        mProgressListeners.addIfAbsent(aListener);
+        mProgressListeners.add(aListener);
         dumpState(aListener);
     }
 
@@ -356,7 +362,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     }
 
     public void addContentListener(WSession.ContentDelegate aListener) {
-        mContentListeners.addIfAbsent(aListener);
+        mContentListeners.add(aListener);
         dumpState(aListener);
     }
 
@@ -365,7 +371,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     }
 
     public void addSessionChangeListener(SessionChangeListener aListener) {
-        mSessionChangeListeners.addIfAbsent(aListener);
+        mSessionChangeListeners.add(aListener);
     }
 
     public void removeSessionChangeListener(SessionChangeListener aListener) {
@@ -373,7 +379,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     }
 
     public void addTextInputListener(WSession.TextInputDelegate aListener) {
-        mTextInputListeners.addIfAbsent(aListener);
+        mTextInputListeners.add(aListener);
     }
 
     public void removeTextInputListener(WSession.TextInputDelegate aListener) {
@@ -381,7 +387,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     }
 
     public void addVideoAvailabilityListener(VideoAvailabilityListener aListener) {
-        mVideoAvailabilityListeners.addIfAbsent(aListener);
+        mVideoAvailabilityListeners.add(aListener);
         dumpState(aListener);
     }
 
@@ -390,7 +396,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     }
 
     public void addSelectionActionListener(WSession.SelectionActionDelegate aListener) {
-        mSelectionActionListeners.addIfAbsent(aListener);
+        mSelectionActionListeners.add(aListener);
     }
 
     public void removeSelectionActionListener(WSession.ContentDelegate aListener) {
@@ -398,7 +404,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     }
 
     public void addBitmapChangedListener(BitmapChangedListener aListener) {
-        mBitmapChangedListeners.addIfAbsent(aListener);
+        mBitmapChangedListeners.add(aListener);
     }
 
     public void removeBitmapChangedListener(BitmapChangedListener aListener) {
@@ -406,7 +412,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     }
 
     public void addWebXRStateChangedListener(WebXRStateChangedListener aListener) {
-        mWebXRStateListeners.addIfAbsent(aListener);
+        mWebXRStateListeners.add(aListener);
         dumpState(aListener);
     }
 
@@ -415,7 +421,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     }
 
     public void addPopUpStateChangedListener(PopUpStateChangedListener aListener) {
-        mPopUpStateStateListeners.addIfAbsent(aListener);
+        mPopUpStateStateListeners.add(aListener);
         dumpState(aListener);
     }
 
@@ -424,7 +430,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     }
 
     public void addDrmStateChangedListener(DrmStateChangedListener aListener) {
-        mDrmStateStateListeners.addIfAbsent(aListener);
+        mDrmStateStateListeners.add(aListener);
         dumpState(aListener);
     }
 
@@ -478,7 +484,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
         if (mState.mSession == null) {
             return;
         }
-        if (mKeepAlive > System.currentTimeMillis()) {
+        if (isKeptAlive()) {
             Log.e(LOGTAG, "Unable to suspend activity with active keep alive time.");
             return;
         }
@@ -486,8 +492,9 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
         Log.d(LOGTAG, "Suspending Session: " + mState.mId);
         closeSession(mState);
         mState.mSession = null;
+        SessionStore.get().onSessionIndexChanged(this);
 
-        mSessionChangeListeners.forEach(listener -> listener.onSessionRemoved(mState.mId));
+        mSessionChangeListeners.dispatch(listener -> listener.onSessionRemoved(mState.mId));
     }
 
     private boolean shouldLoadDefaultPage(@NonNull SessionState aState) {
@@ -499,7 +506,8 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
         if (aState.mUri != null && aState.mUri.length() != 0 && !aState.mUri.equals(mContext.getString(R.string.about_blank))) {
             return false;
         }
-        if (aState.mSessionState != null && !aState.mSessionState.isEmpty()) {
+        WSessionState sessionState = aState.getSessionState();
+        if (sessionState != null && !sessionState.isEmpty()) {
             return false;
         }
         return true;
@@ -524,15 +532,16 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
         }
 
         mState.mSession = createWSession(settings);
+        SessionStore.get().onSessionIndexChanged(this);
 
-        mSessionChangeListeners.forEach(listener -> listener.onSessionAdded(this));
+        mSessionChangeListeners.dispatch(listener -> listener.onSessionAdded(this));
 
         openSession();
 
         if (shouldLoadDefaultPage(mState)) {
             loadDefaultPage();
-        } else if (mState.mSessionState != null) {
-            mState.mSession.restoreState(mState.mSessionState);
+        } else if (mState.getSessionState() != null) {
+            mState.mSession.restoreState(mState.getSessionState());
             if (mState.mUri != null && mState.mUri.contains(".youtube.com")) {
                 mState.mSession.loadUri(mState.mUri, WSession.LOAD_FLAGS_REPLACE_HISTORY);
             }
@@ -577,30 +586,23 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     void recreateSession() {
         boolean wasFullScreen = mState.mFullScreen;
 
-        WSession previousWSession = null;
-        if (mState.mSession != null) {
-            previousWSession = mState.mSession;
+        final WSession previousWSession = mState.mSession;
+        if (previousWSession != null) {
             closeSession(mState);
         }
 
         mState = mState.recreate();
 
-        mSessionChangeListeners.forEach(listener -> listener.onSessionRemoved(mState.mId));
+        mSessionChangeListeners.dispatch(listener -> listener.onSessionRemoved(mState.mId));
 
         restore();
 
-        for (SessionChangeListener listener: mSessionChangeListeners) {
-            listener.onSessionStateChanged(this, true);
-        }
+        mSessionChangeListeners.dispatch(listener -> listener.onSessionStateChanged(this, true));
 
-        for (SessionChangeListener listener : mSessionChangeListeners) {
-            listener.onCurrentSessionChange(previousWSession, mState.mSession);
-        }
+        mSessionChangeListeners.dispatch(listener -> listener.onCurrentSessionChange(previousWSession, mState.mSession));
 
         if (wasFullScreen != mState.mFullScreen) {
-            for (WSession.ContentDelegate listener : mContentListeners) {
-                listener.onFullScreen(mState.mSession, mState.mFullScreen);
-            }
+            mContentListeners.dispatch(listener -> listener.onFullScreen(mState.mSession, mState.mFullScreen));
         }
     }
 
@@ -609,7 +611,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
             mState.mSession.open(mRuntime);
         }
 
-        mSessionChangeListeners.forEach(listener -> listener.onSessionOpened(this));
+        mSessionChangeListeners.dispatch(listener -> listener.onSessionOpened(this));
     }
 
     private void closeSession(@NonNull SessionState aState) {
@@ -628,32 +630,46 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
         aState.setActive(false);
         mFirstContentfulPaint = false;
 
-        mSessionChangeListeners.forEach(listener -> listener.onSessionClosed(this));
+        mSessionChangeListeners.dispatch(listener -> listener.onSessionClosed(this));
     }
 
-    public void captureBitmap() {
-        if (mState.mDisplay == null || !mFirstContentfulPaint) {
-            return;
+    /**
+     * Captures the current display into the thumbnails cache. Use {@link CaptureScheduler} instead
+     * of calling this directly so that captures don't compete with page rendering. If the window
+     * already released the display, e.g. it switched to another session before the capture was
+     * due, the session is rendered into a temporary display of the same size.
+     */
+    public CompletableFuture<Void> captureBitmap() {
+        if (mState.mDisplay == null) {
+            if (mDisplayWidth > 0 && mDisplayHeight > 0) {
+                return captureBackgroundBitmap(mDisplayWidth, mDisplayHeight);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!mFirstContentfulPaint) {
+            return CompletableFuture.completedFuture(null);
         }
+        CompletableFuture<Void> result = new CompletableFuture<>();
         try {
             mState.mDisplay.capturePixelsWithAspectPreservingSize(500).then(bitmap -> {
                 if (bitmap != null) {
                     BitmapCache.getInstance(mContext).addBitmap(getId(), bitmap);
-                    for (BitmapChangedListener listener: mBitmapChangedListeners) {
-                        listener.onBitmapChanged(Session.this, bitmap);
-                    }
+                    mBitmapChangedListeners.dispatch(listener -> listener.onBitmapChanged(Session.this, bitmap));
                 }
+                result.complete(null);
                 return null;
             }).exceptionally(throwable -> {
                 Log.e(LOGTAG, "Error capturing session bitmap");
                 throwable.printStackTrace();
+                result.complete(null);
                 return null;
             });
         } catch (Exception ex) {
             Log.e(LOGTAG, "Error capturing session bitmap");
             ex.printStackTrace();
+            result.complete(null);
         }
-
+        return result;
     }
 
     public CompletableFuture<Void> captureBackgroundBitmap(int displayWidth, int displayHeight) {
@@ -684,9 +700,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
             display.capturePixelsWithAspectPreservingSize(500).then(bitmap -> {
                 if (bitmap != null) {
                     BitmapCache.getInstance(mContext).addBitmap(getId(), bitmap);
-                    for (BitmapChangedListener listener : mBitmapChangedListeners) {
-                        listener.onBitmapChanged(Session.this, bitmap);
-                    }
+                    mBitmapChangedListeners.dispatch(listener -> listener.onBitmapChanged(Session.this, bitmap));
                 }
                 cleanResources.run();
                 result.complete(null);
@@ -784,6 +798,18 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
         return mMedia.isActive() ? mMedia : null;
     }
 
+    public boolean isMediaPlaying() {
+        return mMedia.isActive() && mMedia.isPlaying();
+    }
+
+    /**
+     * Sessions that have just been opened, e.g. by window.open(), are kept alive for a short time
+     * and can not be suspended.
+     */
+    public boolean isKeptAlive() {
+        return mKeepAlive > System.currentTimeMillis();
+    }
+
     public boolean isInputActive() {
         return mState.mIsInputActive;
     }
@@ -807,9 +833,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
         } else if (mState.mParentId != null) {
           Session parent = SessionStore.get().getSession(mState.mParentId);
           if (parent != null && parent.mState.mDisplay == null) {
-              for (SessionChangeListener listener: mSessionChangeListeners) {
-                  listener.onUnstackSession(this, parent);
-              }
+              mSessionChangeListeners.dispatch(listener -> listener.onUnstackSession(this, parent));
           }
         }
     }
@@ -846,9 +870,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
             Log.e(LOGTAG, "ERROR: Setting null session to inactive!");
         }
 
-        for (SessionChangeListener listener: mSessionChangeListeners) {
-            listener.onSessionStateChanged(this, aActive);
-        }
+        mSessionChangeListeners.dispatch(listener -> listener.onSessionStateChanged(this, aActive));
     }
 
     public void reload() {
@@ -1035,6 +1057,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
 
     public void updateLastUse() {
         mState.mLastUse = System.currentTimeMillis();
+        SessionStore.get().onSessionIndexChanged(this);
     }
 
     public long getLastUse() {
@@ -1083,6 +1106,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
 
         mState.mPreviousUri = mState.mUri;
         mState.mUri = aUri;
+        SessionStore.get().onSessionIndexChanged(this);
 
         boolean forceMobileViewport = FORCE_MOBILE_VIEWPORT.stream().anyMatch(aUri::contains);
         if (forceMobileViewport) {
@@ -1091,9 +1115,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
             mState.mSession.getSettings().setViewportMode(mState.mSettings.getViewportMode());
         }
 
-        for (WSession.NavigationDelegate listener : mNavigationListeners) {
-            listener.onLocationChange(aSession, aUri);
-        }
+        mNavigationListeners.dispatch(listener -> listener.onLocationChange(aSession, aUri));
 
         // TODO Check that this is the correct place to clear the stored manifest. Update the UI if needed.
         if (mState.mWebAppManifest != null) {
@@ -1124,9 +1146,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
         Log.d(LOGTAG, "Session onCanGoBack: " + (aISessionCanGoBack ? "true" : "false"));
         mState.mCanGoBack = aISessionCanGoBack;
 
-        for (WSession.NavigationDelegate listener : mNavigationListeners) {
-            listener.onCanGoBack(aSession, canGoBack());
-        }
+        mNavigationListeners.dispatch(listener -> listener.onCanGoBack(aSession, canGoBack()));
     }
 
     @Override
@@ -1137,9 +1157,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
         Log.d(LOGTAG, "Session onCanGoForward: " + (aCanGoForward ? "true" : "false"));
         mState.mCanGoForward = aCanGoForward;
 
-        for (WSession.NavigationDelegate listener : mNavigationListeners) {
-            listener.onCanGoForward(aSession, aCanGoForward);
-        }
+        mNavigationListeners.dispatch(listener -> listener.onCanGoForward(aSession, aCanGoForward));
     }
 
     @Override
@@ -1228,9 +1246,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
             callback.onNewSession((WSession) session.mState.mSession);
         }
 
-        for (SessionChangeListener listener: mSessionChangeListeners) {
-            listener.onStackSession(session);
-        }
+        mSessionChangeListeners.dispatch(listener -> listener.onStackSession(session));
         mSessionChangeListeners.add(session);
         return WResult.fromValue(session.getWSession());
     }
@@ -1254,9 +1270,8 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
         TelemetryService.startPageLoadTime(aUri);
 
         setWebXRState(SessionState.WEBXR_UNUSED);
-        for (WSession.ProgressDelegate listener : mProgressListeners) {
-            listener.onPageStart(aSession, aUri);
-        }
+        SessionStore.get().getCaptureScheduler().onPageStart(this);
+        mProgressListeners.dispatch(listener -> listener.onPageStart(aSession, aUri));
     }
 
     @Override
@@ -1270,9 +1285,8 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
             TelemetryService.stopPageLoadTimeWithURI(mState.mUri);
         }
 
-        for (WSession.ProgressDelegate listener : mProgressListeners) {
-            listener.onPageStop(aSession, b);
-        }
+        SessionStore.get().getCaptureScheduler().onPageStop(this);
+        mProgressListeners.dispatch(listener -> listener.onPageStop(aSession, b));
     }
 
     @Override
@@ -1280,9 +1294,8 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
         if (mState.mSession != aSession) {
             return;
         }
-        for (WSession.ProgressDelegate listener : mProgressListeners) {
-            listener.onProgressChange(aSession, progress);
-        }
+        // Progress is reported many times during a page load, listeners only need the latest value.
+        mProgressListeners.post("progress", listener -> listener.onProgressChange(aSession, progress));
     }
 
     @Override
@@ -1293,9 +1306,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
         Log.d(LOGTAG, "Session onPageStop");
         mState.mSecurityInformation = aInformation;
 
-        for (WSession.ProgressDelegate listener : mProgressListeners) {
-            listener.onSecurityChange(aSession, aInformation);
-        }
+        mProgressListeners.dispatch(listener -> listener.onSecurityChange(aSession, aInformation));
     }
 
     @Override
@@ -1316,16 +1327,13 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
 
         mState.mTitle = aTitle;
 
-        for (WSession.ContentDelegate listener : mContentListeners) {
-            listener.onTitleChange(aSession, aTitle);
-        }
+        // Pages can update their title continuously, coalesce the updates.
+        mContentListeners.post("title", listener -> listener.onTitleChange(aSession, aTitle));
     }
 
     @Override
     public void onCloseRequest(@NonNull WSession aSession) {
-        for (WSession.ContentDelegate listener : mContentListeners) {
-            listener.onCloseRequest(aSession);
-        }
+        mContentListeners.dispatch(listener -> listener.onCloseRequest(aSession));
     }
 
     @Override
@@ -1336,17 +1344,13 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
         Log.d(LOGTAG, "Session onFullScreen");
         mState.mFullScreen = aFullScreen;
 
-        for (WSession.ContentDelegate listener : mContentListeners) {
-            listener.onFullScreen(aSession, aFullScreen);
-        }
+        mContentListeners.dispatch(listener -> listener.onFullScreen(aSession, aFullScreen));
     }
 
     @Override
     public void onContextMenu(@NonNull WSession session, int screenX, int screenY, @NonNull ContextElement element) {
         if (mState.mSession == session) {
-            for (WSession.ContentDelegate listener : mContentListeners) {
-                listener.onContextMenu(session, screenX, screenY, element);
-            }
+            mContentListeners.dispatch(listener -> listener.onContextMenu(session, screenX, screenY, element));
         }
     }
 
@@ -1365,16 +1369,12 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     @Override
     public void onFirstComposite(@NonNull WSession aSession) {
         if (mState.mSession == aSession) {
-            for (WSession.ContentDelegate listener : mContentListeners) {
-                listener.onFirstComposite(aSession);
-            }
+            mContentListeners.dispatch(listener -> listener.onFirstComposite(aSession));
             if (mFirstContentfulPaint) {
                 // onFirstContentfulPaint is only called once after a session is opened.
                 // Notify onFirstContentfulPaint after a session is reattached before
                 // being closed ((e.g. tab selected)
-                for (WSession.ContentDelegate listener : mContentListeners) {
-                    listener.onFirstContentfulPaint(aSession);
-                }
+                mContentListeners.dispatch(listener -> listener.onFirstContentfulPaint(aSession));
             }
         }
     }
@@ -1383,9 +1383,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     public void onFirstContentfulPaint(@NonNull WSession aSession) {
         mFirstContentfulPaint = true;
         if (mState.mSession == aSession) {
-            for (WSession.ContentDelegate listener : mContentListeners) {
-                listener.onFirstContentfulPaint(aSession);
-            }
+            mContentListeners.dispatch(listener -> listener.onFirstContentfulPaint(aSession));
         }
     }
 
@@ -1394,9 +1392,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
         if (mState.mSession == aSession) {
             mState.mWebAppManifest = webAppManifest;
             Log.d(LOGTAG, "onWebAppManifest: received Web app manifest from " + mState.mUri);
-            for (WSession.ContentDelegate listener : mContentListeners) {
-                listener.onWebAppManifest(aSession, webAppManifest);
-            }
+            mContentListeners.dispatch(listener -> listener.onWebAppManifest(aSession, webAppManifest));
         }
     }
 
@@ -1416,9 +1412,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
 
     @Override
     public void onExternalResponse(@NonNull WSession aSession, @NonNull WWebResponse webResponseInfo) {
-        for (WSession.ContentDelegate listener : mContentListeners) {
-            listener.onExternalResponse(aSession, webResponseInfo);
-        }
+        mContentListeners.dispatch(listener -> listener.onExternalResponse(aSession, webResponseInfo));
     }
 
     // TextInput Delegate
@@ -1426,9 +1420,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     @Override
     public void restartInput(@NonNull WSession aSession, int reason) {
         if (mState.mSession == aSession) {
-            for (WSession.TextInputDelegate listener : mTextInputListeners) {
-                listener.restartInput(aSession, reason);
-            }
+            mTextInputListeners.dispatch(listener -> listener.restartInput(aSession, reason));
         }
     }
 
@@ -1436,9 +1428,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     public void showSoftInput(@NonNull WSession aSession) {
         if (mState.mSession == aSession) {
             mState.mIsInputActive = true;
-            for (WSession.TextInputDelegate listener : mTextInputListeners) {
-                listener.showSoftInput(aSession);
-            }
+            mTextInputListeners.dispatch(listener -> listener.showSoftInput(aSession));
         }
     }
 
@@ -1446,36 +1436,28 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     public void hideSoftInput(@NonNull WSession aSession) {
         if (mState.mSession == aSession) {
             mState.mIsInputActive = false;
-            for (WSession.TextInputDelegate listener : mTextInputListeners) {
-                listener.hideSoftInput(aSession);
-            }
+            mTextInputListeners.dispatch(listener -> listener.hideSoftInput(aSession));
         }
     }
 
     @Override
     public void updateSelection(@NonNull WSession aSession, int selStart, int selEnd, int compositionStart, int compositionEnd) {
         if (mState.mSession == aSession) {
-            for (WSession.TextInputDelegate listener : mTextInputListeners) {
-                listener.updateSelection(aSession, selStart, selEnd, compositionStart, compositionEnd);
-            }
+            mTextInputListeners.dispatch(listener -> listener.updateSelection(aSession, selStart, selEnd, compositionStart, compositionEnd));
         }
     }
 
     @Override
     public void updateExtractedText(@NonNull WSession aSession, @NonNull ExtractedTextRequest request, @NonNull ExtractedText text) {
         if (mState.mSession == aSession) {
-            for (WSession.TextInputDelegate listener : mTextInputListeners) {
-                listener.updateExtractedText(aSession, request, text);
-            }
+            mTextInputListeners.dispatch(listener -> listener.updateExtractedText(aSession, request, text));
         }
     }
 
     @Override
     public void updateCursorAnchorInfo(@NonNull WSession aSession, @NonNull CursorAnchorInfo info) {
         if (mState.mSession == aSession) {
-            for (WSession.TextInputDelegate listener : mTextInputListeners) {
-                listener.updateCursorAnchorInfo(aSession, info);
-            }
+            mTextInputListeners.dispatch(listener -> listener.updateCursorAnchorInfo(aSession, info));
         }
     }
 
@@ -1777,18 +1759,14 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     @Override
     public void onShowActionRequest(@NonNull WSession aSession, @NonNull Selection selection) {
         if (mState.mSession == aSession) {
-            for (WSession.SelectionActionDelegate listener : mSelectionActionListeners) {
-                listener.onShowActionRequest(aSession, selection);
-            }
+            mSelectionActionListeners.dispatch(listener -> listener.onShowActionRequest(aSession, selection));
         }
     }
 
     @Override
     public void onHideAction(@NonNull WSession aSession, int aHideReason) {
         if (mState.mSession == aSession) {
-            for (WSession.SelectionActionDelegate listener : mSelectionActionListeners) {
-                listener.onHideAction(aSession, aHideReason);
-            }
+            mSelectionActionListeners.dispatch(listener -> listener.onHideAction(aSession, aHideReason));
         }
     }
 
@@ -1799,9 +1777,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
         if (mState.mParentId != null) {
             mState.mParentId = null;
             // Parent stack session closed. Notify canGoBack state changed
-            for (WSession.NavigationDelegate listener : mNavigationListeners) {
-                listener.onCanGoBack(this.getWSession(), canGoBack());
-            }
+            mNavigationListeners.dispatch(listener -> listener.onCanGoBack(this.getWSession(), canGoBack()));
         }
     }
 
@@ -1809,9 +1785,7 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
     public void onSessionStateChanged(Session aSession, boolean aActive) {
         if (mState.mParentId != null) {
             // Parent stack session has been attached/detached. Notify canGoBack state changed
-            for (WSession.NavigationDelegate listener : mNavigationListeners) {
-                listener.onCanGoBack(this.getWSession(), canGoBack());
-            }
+            mNavigationListeners.dispatch(listener -> listener.onCanGoBack(this.getWSession(), canGoBack()));
         }
     }
 
@@ -1840,6 +1814,8 @@ public class Session implements WContentBlocking.Delegate, WSession.NavigationDe
         if (mState.mDisplay == null) {
             mState.mDisplay = mState.mSession.acquireDisplay();
         }
+        mDisplayWidth = width;
+        mDisplayHeight = height;
         mState.mDisplay.surfaceChanged(surface, left, top, width, height);
     }
 
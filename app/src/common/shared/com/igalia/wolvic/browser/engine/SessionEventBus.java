@@ -0,0 +1,207 @@
+package com.igalia.wolvic.browser.engine;
+
+import android.os.Looper;
+import android.util.Log;
+import android.util.Pair;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+
+import com.igalia.wolvic.utils.SystemUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Dispatches the events of a {@link Session} to its listeners. Each kind of listener is registered
+ * in a typed {@link Channel} of the bus.
+ *
+ * High frequency events, like the load progress, can be posted with a key instead of dispatched
+ * right away. Posted events with the same key are coalesced so only the latest one is delivered,
+ * once per frame. Any event dispatched synchronously delivers the pending ones first, so listeners
+ * always see the events in the order they happened.
+ *
+ * While enabled with {@link #setDispatchStatsEnabled(boolean)}, the time spent by every listener
+ * is recorded and can be read with {@link #getDispatchStats()}. Events must be posted from the UI
+ * thread.
+ */
+public class SessionEventBus {
+
+    private static final String LOGTAG = SystemUtils.createLogtag(SessionEventBus.class);
+
+    // Listeners that take longer than this to handle a single event are logged.
+    private static final long SLOW_DISPATCH_NS = 4_000_000;
+
+    public static class ListenerStats {
+        public final String name;
+        public long count;
+        public long totalNs;
+        public long maxNs;
+
+        ListenerStats(@NonNull String aName) {
+            name = aName;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return name + ": count=" + count + " total=" + (totalNs / 1000) + "us max=" + (maxNs / 1000) + "us";
+        }
+    }
+
+    // Shared by all the sessions, listeners are usually widgets attached to several of them.
+    private static final Map<String, ListenerStats> sStats = new HashMap<>();
+    private static volatile boolean sStatsEnabled;
+
+    /**
+     * Enables recording the dispatch time stats. Disabling it keeps the stats recorded so far.
+     */
+    public static void setDispatchStatsEnabled(boolean aEnabled) {
+        sStatsEnabled = aEnabled;
+    }
+
+    /**
+     * Returns a copy of the dispatch time stats of every listener class, slowest first.
+     */
+    @NonNull
+    public static List<ListenerStats> getDispatchStats() {
+        List<ListenerStats> result = new ArrayList<>();
+        synchronized (sStats) {
+            for (ListenerStats stats : sStats.values()) {
+                ListenerStats copy = new ListenerStats(stats.name);
+                copy.count = stats.count;
+                copy.totalNs = stats.totalNs;
+                copy.maxNs = stats.maxNs;
+                result.add(copy);
+            }
+        }
+        result.sort((a, b) -> Long.compare(b.totalNs, a.totalNs));
+        return result;
+    }
+
+    private static void record(@NonNull Object aListener, long aElapsedNs) {
+        String name = aListener.getClass().getName();
+        synchronized (sStats) {
+            ListenerStats stats = sStats.get(name);
+            if (stats == null) {
+                stats = new ListenerStats(name);
+                sStats.put(name, stats);
+            }
+            stats.count++;
+            stats.totalNs += aElapsedNs;
+            stats.maxNs = Math.max(stats.maxNs, aElapsedNs);
+        }
+        if (aElapsedNs > SLOW_DISPATCH_NS) {
+            Log.w(LOGTAG, "Slow session listener " + name + ": " + (aElapsedNs / 1000) + "us");
+        }
+    }
+
+    /**
+     * A typed list of listeners of the bus.
+     */
+    public class Channel<L> implements Iterable<L> {
+        private final CopyOnWriteArrayList<L> mListeners = new CopyOnWriteArrayList<>();
+
+        public boolean add(@NonNull L aListener) {
+            return mListeners.addIfAbsent(aListener);
+        }
+
+        public boolean remove(Object aListener) {
+            return mListeners.remove(aListener);
+        }
+
+        public void clear() {
+            mListeners.clear();
+        }
+
+        public int size() {
+            return mListeners.size();
+        }
+
+        @NonNull
+        @Override
+        public Iterator<L> iterator() {
+            return mListeners.iterator();
+        }
+
+        /**
+         * Delivers the event to all the listeners right away, after any pending posted events.
+         */
+        public void dispatch(@NonNull Consumer<L> aEvent) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                flush();
+            }
+            deliver(aEvent);
+        }
+
+        /**
+         * Delivers the event in the next frame. If there is already a pending event with the same
+         * key it is replaced, keeping its position in the queue.
+         */
+        public void post(@NonNull String aKey, @NonNull Consumer<L> aEvent) {
+            if (mListeners.isEmpty()) {
+                return;
+            }
+            mPending.put(Pair.create(this, aKey), () -> deliver(aEvent));
+            if (!mFrameScheduled) {
+                mFrameScheduled = true;
+                Choreographer.getInstance().postFrameCallback(mFrameCallback);
+            }
+        }
+
+        private void deliver(@NonNull Consumer<L> aEvent) {
+            if (!sStatsEnabled) {
+                for (L listener : mListeners) {
+                    aEvent.accept(listener);
+                }
+                return;
+            }
+            for (L listener : mListeners) {
+                long start = System.nanoTime();
+                aEvent.accept(listener);
+                record(listener, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private final LinkedHashMap<Pair<Channel<?>, String>, Runnable> mPending = new LinkedHashMap<>();
+    private boolean mFrameScheduled;
+    private final Choreographer.FrameCallback mFrameCallback = frameTimeNanos -> {
+        mFrameScheduled = false;
+        flush();
+    };
+
+    @NonNull
+    public <L> Channel<L> createChannel() {
+        return new Channel<>();
+    }
+
+    /**
+     * Delivers all the pending posted events in the order they were first posted.
+     */
+    public void flush() {
+        while (!mPending.isEmpty()) {
+            Iterator<Runnable> iterator = mPending.values().iterator();
+            Runnable event = iterator.next();
+            iterator.remove();
+            event.run();
+        }
+    }
+
+    /**
+     * Drops the pending posted events.
+     */
+    public void cancelPending() {
+        mPending.clear();
+        if (mFrameScheduled) {
+            mFrameScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.igalia.wolvic.browser.engine;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.igalia.wolvic.browser.api.WSession;
+import com.igalia.wolvic.utils.UrlUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Indexes of the sessions owned by {@link SessionStore}: by id, by engine session, by URI, by host
+ * and by last use. Sessions must call {@link SessionStore#onSessionIndexChanged(Session)} when
+ * any of those properties change so the indexes are updated incrementally.
+ * Must be used from the UI thread.
+ */
+class SessionRegistry {
+
+    // Snapshot of the indexed properties of a session, used to find its old index entries.
+    private static class Entry {
+        final Session session;
+        // Keeps the original insertion order for sessions with the same last use.
+        final long sequence;
+        String id;
+        WSession wSession;
+        String uri;
+        String host;
+        long lastUse;
+
+        Entry(@NonNull Session aSession, long aSequence) {
+            session = aSession;
+            sequence = aSequence;
+        }
+    }
+
+    private long mSequence;
+    private final IdentityHashMap<Session, Entry> mEntries = new IdentityHashMap<>();
+    private final HashMap<String, Session> mById = new HashMap<>();
+    private final IdentityHashMap<WSession, Session> mByWSession = new IdentityHashMap<>();
+    private final HashMap<String, LinkedHashSet<Session>> mByUri = new HashMap<>();
+    private final HashMap<String, LinkedHashSet<Session>> mByHost = new HashMap<>();
+    // Most recently used first, one set for regular sessions and another for private ones.
+    private final TreeSet<Entry> mByLastUse = new TreeSet<>(SessionRegistry::compareLastUse);
+    private final TreeSet<Entry> mPrivateByLastUse = new TreeSet<>(SessionRegistry::compareLastUse);
+
+    private static int compareLastUse(@NonNull Entry a, @NonNull Entry b) {
+        if (a.lastUse != b.lastUse) {
+            return a.lastUse > b.lastUse ? -1 : 1;
+        }
+        return Long.compare(a.sequence, b.sequence);
+    }
+
+    void add(@NonNull Session aSession) {
+        if (mEntries.containsKey(aSession)) {
+            update(aSession);
+            return;
+        }
+        Entry entry = new Entry(aSession, mSequence++);
+        mEntries.put(aSession, entry);
+        index(entry);
+    }
+
+    void remove(@NonNull Session aSession) {
+        Entry entry = mEntries.remove(aSession);
+        if (entry != null) {
+            unindex(entry);
+        }
+    }
+
+    void update(@NonNull Session aSession) {
+        Entry entry = mEntries.get(aSession);
+        if (entry == null) {
+            return;
+        }
+        String uri = aSession.getCurrentUri();
+        if (entry.wSession == aSession.getWSession() && entry.uri.equals(uri) && entry.lastUse == aSession.getLastUse()) {
+            return;
+        }
+        unindex(entry);
+        index(entry);
+    }
+
+    private void index(@NonNull Entry aEntry) {
+        Session session = aEntry.session;
+        aEntry.id = session.getId();
+        aEntry.wSession = session.getWSession();
+        aEntry.uri = session.getCurrentUri();
+        aEntry.host = UrlUtils.getHost(aEntry.uri);
+        aEntry.lastUse = session.getLastUse();
+
+        mById.put(aEntry.id, session);
+        if (aEntry.wSession != null) {
+            mByWSession.put(aEntry.wSession, session);
+        }
+        mByUri.computeIfAbsent(aEntry.uri, key -> new LinkedHashSet<>()).add(session);
+        if (aEntry.host != null) {
+            mByHost.computeIfAbsent(aEntry.host, key -> new LinkedHashSet<>()).add(session);
+        }
+        getLastUseSet(session).add(aEntry);
+    }
+
+    private void unindex(@NonNull Entry aEntry) {
+        Session session = aEntry.session;
+        if (mById.get(aEntry.id) == session) {
+            mById.remove(aEntry.id);
+        }
+        if (aEntry.wSession != null && mByWSession.get(aEntry.wSession) == session) {
+            mByWSession.remove(aEntry.wSession);
+        }
+        removeFromMultiMap(mByUri, aEntry.uri, session);
+        if (aEntry.host != null) {
+            removeFromMultiMap(mByHost, aEntry.host, session);
+        }
+        getLastUseSet(session).remove(aEntry);
+    }
+
+    private static void removeFromMultiMap(@NonNull Map<String, LinkedHashSet<Session>> aMap, @NonNull String aKey, @NonNull Session aSession) {
+        LinkedHashSet<Session> sessions = aMap.get(aKey);
+        if (sessions != null) {
+            sessions.remove(aSession);
+            if (sessions.isEmpty()) {
+                aMap.remove(aKey);
+            }
+        }
+    }
+
+    @NonNull
+    private TreeSet<Entry> getLastUseSet(@NonNull Session aSession) {
+        return aSession.isPrivateMode() ? mPrivateByLastUse : mByLastUse;
+    }
+
+    @Nullable
+    Session getById(@Nullable String aId) {
+        return mById.get(aId);
+    }
+
+    @Nullable
+    Session getByWSession(@Nullable WSession aSession) {
+        return aSession != null ? mByWSession.get(aSession) : null;
+    }
+
+    @Nullable
+    Session getByUri(@Nullable String aUri) {
+        LinkedHashSet<Session> sessions = mByUri.get(aUri);
+        return sessions != null && !sessions.isEmpty() ? sessions.iterator().next() : null;
+    }
+
+    @NonNull
+    List<Session> getByHost(@NonNull String aHost, boolean aPrivateMode) {
+        LinkedHashSet<Session> sessions = mByHost.get(aHost);
+        if (sessions == null) {
+            return Collections.emptyList();
+        }
+        List<Session> result = new ArrayList<>();
+        for (Session session : sessions) {
+            if (session.isPrivateMode() == aPrivateMode) {
+                result.add(session);
+            }
+        }
+        return result;
+    }
+
+    @NonNull
+    ArrayList<Session> getSortedByLastUse(boolean aPrivateMode) {
+        TreeSet<Entry> entries = aPrivateMode ? mPrivateByLastUse : mByLastUse;
+        ArrayList<Session> result = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            result.add(entry.session);
+        }
+        return result;
+    }
+}
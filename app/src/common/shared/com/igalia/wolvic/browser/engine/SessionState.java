@@ -1,9 +1,9 @@
 package com.igalia.wolvic.browser.engine;
 
 import androidx.annotation.IntDef;
+import androidx.annotation.Nullable;
 
 import com.google.gson.Gson;
-import com.google.gson.JsonParser;
 import com.google.gson.TypeAdapter;
 import com.google.gson.TypeAdapterFactory;
 import com.google.gson.annotations.JsonAdapter;
@@ -17,6 +17,7 @@ import com.igalia.wolvic.browser.api.WSessionState;
 import com.igalia.wolvic.ui.adapters.WebApp;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.UUID;
 
@@ -85,19 +86,105 @@ public class SessionState {
     public static class ISessionStateAdapter extends TypeAdapter<WSessionState> {
         @Override
         public void write(JsonWriter out, WSessionState state) throws IOException {
+            // A LazySessionState returns the JSON it was read from, so it is written back unchanged.
             out.jsonValue(state.toJson());
         }
 
         @Override
         public WSessionState read(JsonReader in) {
             try {
-                String session = JsonParser.parseReader(in).getAsString();
-                return WSessionState.fromJson(session);
+                // The engine state is only parsed when the session is restored, see LazySessionState.
+                switch (in.peek()) {
+                    case BEGIN_OBJECT:
+                    case BEGIN_ARRAY:
+                        // Written with jsonValue(), only its text is kept, not the engine state.
+                        StringWriter json = new StringWriter();
+                        copyValue(in, new JsonWriter(json));
+                        return new LazySessionState(json.toString());
+                    case STRING:
+                        // Written by older versions as a JSON string.
+                        return new LazySessionState(in.nextString());
+                    default:
+                        in.skipValue();
+                        return null;
+                }
 
             } catch (Exception e) {
                 return null;
             }
         }
+
+        /**
+         * Copies the next value token by token, without building a tree. Numbers are copied as
+         * written so that they are not converted.
+         */
+        private static void copyValue(JsonReader in, JsonWriter out) throws IOException {
+            int depth = 0;
+            do {
+                switch (in.peek()) {
+                    case BEGIN_OBJECT:
+                        in.beginObject();
+                        out.beginObject();
+                        depth++;
+                        break;
+                    case END_OBJECT:
+                        in.endObject();
+                        out.endObject();
+                        depth--;
+                        break;
+                    case BEGIN_ARRAY:
+                        in.beginArray();
+                        out.beginArray();
+                        depth++;
+                        break;
+                    case END_ARRAY:
+                        in.endArray();
+                        out.endArray();
+                        depth--;
+                        break;
+                    case NAME:
+                        out.name(in.nextName());
+                        break;
+                    case STRING:
+                        out.value(in.nextString());
+                        break;
+                    case NUMBER:
+                        out.jsonValue(in.nextString());
+                        break;
+                    case BOOLEAN:
+                        out.value(in.nextBoolean());
+                        break;
+                    case NULL:
+                        in.nextNull();
+                        out.nullValue();
+                        break;
+                    default:
+                        throw new IOException("Unexpected end of the session state");
+                }
+            } while (depth > 0);
+            out.flush();
+        }
+    }
+
+    /**
+     * Returns the engine session state, parsing it first if it was restored from disk.
+     */
+    @Nullable
+    public WSessionState getSessionState() {
+        return LazySessionState.resolve(mSessionState);
+    }
+
+    /**
+     * Returns a copy of the persisted fields that can be serialized from another thread while
+     * this state keeps changing on the UI thread.
+     */
+    public SessionState snapshot() {
+        SessionState result = recreate();
+        result.mCanGoBack = mCanGoBack;
+        result.mCanGoForward = mCanGoForward;
+        result.mIsLoading = mIsLoading;
+        result.mIsInputActive = mIsInputActive;
+        return result;
     }
 
     boolean isActive() {
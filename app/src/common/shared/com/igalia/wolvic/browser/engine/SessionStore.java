@@ -51,7 +51,6 @@ public class SessionStore implements
         ComponentsAdapter.StoreUpdatesListener {
 
     private static final String LOGTAG = SystemUtils.createLogtag(SessionStore.class);
-    private static final int MAX_SESSIONS = 5;
 
     private static final List<Pair<String, String>> BUILTIN_WEB_EXTENSIONS = Arrays.asList(
             new Pair<>("fxr-webcompat_youtube@mozilla.org", "resource://android/assets/extensions/fxr_youtube/"),
@@ -72,6 +71,7 @@ public class SessionStore implements
     private Context mContext;
     private WRuntime mRuntime;
     private ArrayList<Session> mSessions;
+    private SessionRegistry mRegistry;
     private Session mActiveSession;
     private PermissionDelegate mPermissionDelegate;
     private BookmarksStore mBookmarksStore;
@@ -84,9 +84,13 @@ public class SessionStore implements
     private FxaWebChannelFeature mWebChannelsFeature;
     private Store.Subscription mStoreSubscription;
     private BrowserIconsHelper mBrowserIconsHelper;
+    private CaptureScheduler mCaptureScheduler;
+    private SessionSuspensionPolicy mSuspensionPolicy;
 
     private SessionStore() {
         mSessions = new ArrayList<>();
+        mRegistry = new SessionRegistry();
+        mCaptureScheduler = new CaptureScheduler();
     }
 
     public void initialize(Context context) {
@@ -94,6 +98,7 @@ public class SessionStore implements
         mMainExecutor = ((VRBrowserApplication)context.getApplicationContext()).getExecutors().mainThread();
 
         mRuntime = EngineProvider.INSTANCE.getOrCreateRuntime(context);
+        mSuspensionPolicy = new MemoryAwareSuspensionPolicy(context);
 
         mTrackingProtectionStore = new TrackingProtectionStore(context, mRuntime);
         mTrackingProtectionStore.addListener(new TrackingProtectionStore.TrackingProtectionListener() {
@@ -183,6 +188,7 @@ public class SessionStore implements
         aSession.setPermissionDelegate(this);
         aSession.addNavigationListener(mServices);
         mSessions.add(aSession);
+        mRegistry.add(aSession);
         sessionActiveStateChanged();
 
         if (BuildConfig.DEBUG) {
@@ -249,6 +255,7 @@ public class SessionStore implements
     }
 
     private void shutdownSession(@NonNull Session aSession) {
+        mCaptureScheduler.cancelCapture(aSession);
         aSession.setPermissionDelegate(null);
         aSession.shutdown();
         if (BuildConfig.DEBUG) {
@@ -259,12 +266,16 @@ public class SessionStore implements
     public void destroySession(Session aSession) {
         mSessions.remove(aSession);
         if (aSession != null) {
+            mRegistry.remove(aSession);
             shutdownSession(aSession);
         }
     }
 
     public void destroySession(@NonNull String sessionId) {
-        mSessions.stream().filter(session -> session.getId().equals(sessionId)).findFirst().ifPresent(this::destroySession);
+        Session session = mRegistry.getById(sessionId);
+        if (session != null) {
+            destroySession(session);
+        }
     }
 
     public void destroyPrivateSessions() {
@@ -272,39 +283,37 @@ public class SessionStore implements
             if (!session.isPrivateMode()) {
                 return false;
             }
+            mRegistry.remove(session);
             shutdownSession(session);
             return true;
         });
     }
 
-    public void suspendAllInactiveSessions() {
-        for (Session session: mSessions) {
-            if (!session.isActive()) {
-                session.suspend();
-            }
-        }
-        if (BuildConfig.DEBUG) {
-            mStoreSubscription.resume();
-        }
+    public @NonNull CaptureScheduler getCaptureScheduler() {
+        return mCaptureScheduler;
     }
 
     public @Nullable Session getSession(String aId) {
-        return mSessions.stream().filter(session -> session.getId().equals(aId)).findFirst().orElse(null);
+        return mRegistry.getById(aId);
     }
 
     public @Nullable Session getSessionByUri(String uri) {
-        return mSessions.stream().filter(session -> session.getCurrentUri().equals(uri)).findFirst().orElse(null);
+        return mRegistry.getByUri(uri);
     }
 
     public @Nullable Session getSession(WSession aSession) {
-        return mSessions.stream().filter(session -> session.getWSession() == aSession).findFirst().orElse(null);
+        return mRegistry.getByWSession(aSession);
     }
 
     public @NonNull List<Session> getSessionsByHost(@NonNull String aHost, boolean aIsPrivate) {
-        return mSessions.stream()
-                .filter(session -> session.isPrivateMode() == aIsPrivate)
-                .filter(session -> UrlUtils.getHost(session.getCurrentUri()).equals(aHost))
-                .collect(Collectors.toList());
+        return mRegistry.getByHost(aHost, aIsPrivate);
+    }
+
+    /**
+     * Called by sessions when their engine session, URI or last use change.
+     */
+    void onSessionIndexChanged(@NonNull Session aSession) {
+        mRegistry.update(aSession);
     }
 
     public void setActiveSession(Session aSession) {
@@ -321,34 +330,45 @@ public class SessionStore implements
         }
     }
 
+    public void setSuspensionPolicy(@NonNull SessionSuspensionPolicy aPolicy) {
+        mSuspensionPolicy = aPolicy;
+        sessionActiveStateChanged();
+    }
+
+    public void onTrimMemory(int aLevel) {
+        if (mSuspensionPolicy != null) {
+            mSuspensionPolicy.onTrimMemory(aLevel);
+            sessionActiveStateChanged();
+        }
+    }
+
+    private @NonNull List<Session> getAliveSessions() {
+        return mSessions.stream().filter(session -> session.getWSession() != null).collect(Collectors.toList());
+    }
+
     private void limitInactiveSessions() {
-        Log.d(LOGTAG, "Limiting Inactive Sessions");
-        suspendAllInactiveSessions();
         mSuspendPending = false;
+        // The state may have changed since this was scheduled, so ask the policy again.
+        List<Session> toSuspend = mSuspensionPolicy.getSessionsToSuspend(getAliveSessions());
+        if (toSuspend.isEmpty()) {
+            return;
+        }
+        Log.d(LOGTAG, "Limiting Inactive Sessions, suspending " + toSuspend.size());
+        for (Session session : toSuspend) {
+            session.suspend();
+        }
+        if (BuildConfig.DEBUG) {
+            mStoreSubscription.resume();
+        }
     }
 
     void sessionActiveStateChanged() {
-        if (mSuspendPending) {
+        if (mSuspendPending || mSuspensionPolicy == null) {
             return;
         }
-        int count = 0;
-        int activeCount = 0;
-        int inactiveCount = 0;
-        int suspendedCount = 0;
-        for(Session session: mSessions) {
-            if (session.getWSession() != null) {
-                count++;
-                if (session.isActive()) {
-                    activeCount++;
-                } else {
-                    inactiveCount++;
-                }
-            } else {
-                suspendedCount++;
-            }
-        }
-        if (count > MAX_SESSIONS) {
-            Log.d(LOGTAG, "Too many sessions. Active: " + activeCount + " Inactive: " + inactiveCount + " Suspended: " + suspendedCount);
+        List<Session> aliveSessions = getAliveSessions();
+        if (!mSuspensionPolicy.getSessionsToSuspend(aliveSessions).isEmpty()) {
+            Log.d(LOGTAG, "Too many sessions. Alive: " + aliveSessions.size() + " Suspended: " + (mSessions.size() - aliveSessions.size()));
             mSuspendPending = true;
             mMainExecutor.execute(this::limitInactiveSessions);
         }
@@ -359,15 +379,7 @@ public class SessionStore implements
     }
 
     public ArrayList<Session> getSortedSessions(boolean aPrivateMode) {
-        ArrayList<Session> result = new ArrayList<>(mSessions);
-        result.removeIf(session -> session.isPrivateMode() != aPrivateMode);
-        result.sort((o1, o2) -> {
-            if (o2.getLastUse() < o1.getLastUse()) {
-                return -1;
-            }
-            return o2.getLastUse() == o1.getLastUse() ? 0 : 1;
-        });
-        return result;
+        return mRegistry.getSortedByLastUse(aPrivateMode);
     }
 
     public void setPermissionDelegate(PermissionDelegate delegate) {
@@ -0,0 +1,23 @@
+package com.igalia.wolvic.browser.engine;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * Decides which inactive sessions should be suspended to release engine resources.
+ */
+public interface SessionSuspensionPolicy {
+
+    /**
+     * Returns the sessions that should be suspended, most disposable first.
+     * @param aAliveSessions the sessions that currently hold an engine session, including active ones.
+     */
+    @NonNull
+    List<Session> getSessionsToSuspend(@NonNull List<Session> aAliveSessions);
+
+    /**
+     * Called with the level received in {@link android.content.ComponentCallbacks2#onTrimMemory(int)}.
+     */
+    void onTrimMemory(int aLevel);
+}
@@ -0,0 +1,214 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package com.igalia.wolvic.input;
+
+import android.os.SystemClock;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Moves controller input from the render thread to the UI thread. The render thread reports the
+ * pointer state of every controller once per frame, so instead of posting each report to the UI
+ * looper the events are queued here and delivered in a single UI thread hop.
+ *
+ * Consecutive pointer reports of a device on the same widget and with the same button state are
+ * coalesced: the UI thread only gets the latest position, and the skipped ones as its history.
+ * Press and release transitions are never coalesced. Consecutive scroll events of a device on the
+ * same widget are accumulated.
+ */
+public class ControllerInputQueue {
+
+    public interface Delegate {
+        void onMotionEvent(int aHandle, int aDevice, boolean aFocused, boolean aPressed, float aX, float aY, @NonNull History aHistory, long aInputTimeNs);
+        void onScrollEvent(int aHandle, int aDevice, float aX, float aY, long aInputTimeNs);
+    }
+
+    /**
+     * Intermediate pointer positions of a coalesced motion event, oldest first. When there are
+     * more than {@link #MAX_SIZE} samples the oldest ones are dropped.
+     */
+    public static class History {
+        public static final int MAX_SIZE = 8;
+
+        private int mSize;
+        private final float[] mX = new float[MAX_SIZE];
+        private final float[] mY = new float[MAX_SIZE];
+        private final long[] mTime = new long[MAX_SIZE];
+
+        public int size() {
+            return mSize;
+        }
+
+        public float getX(int aIndex) {
+            return mX[aIndex];
+        }
+
+        public float getY(int aIndex) {
+            return mY[aIndex];
+        }
+
+        public long getTime(int aIndex) {
+            return mTime[aIndex];
+        }
+
+        public void clear() {
+            mSize = 0;
+        }
+
+        public void add(float aX, float aY, long aTime) {
+            if (mSize == MAX_SIZE) {
+                System.arraycopy(mX, 1, mX, 0, MAX_SIZE - 1);
+                System.arraycopy(mY, 1, mY, 0, MAX_SIZE - 1);
+                System.arraycopy(mTime, 1, mTime, 0, MAX_SIZE - 1);
+                mSize--;
+            }
+            mX[mSize] = aX;
+            mY[mSize] = aY;
+            mTime[mSize] = aTime;
+            mSize++;
+        }
+    }
+
+    private static final int TYPE_MOTION = 0;
+    private static final int TYPE_SCROLL = 1;
+
+    private static class Event {
+        int type;
+        int handle;
+        int device;
+        boolean focused;
+        boolean pressed;
+        float x;
+        float y;
+        long time;
+        // When the first report merged in this event was queued, from System.nanoTime().
+        long inputTimeNs;
+        final History history = new History();
+    }
+
+    private final Delegate mDelegate;
+    private final Executor mUiExecutor;
+    private ArrayList<Event> mPending = new ArrayList<>();
+    private ArrayList<Event> mDispatching = new ArrayList<>();
+    private final ArrayList<Event> mPool = new ArrayList<>();
+    // Last queued event of each device, the only one new events can be coalesced with.
+    private final SparseArray<Event> mLastEvent = new SparseArray<>();
+    private boolean mDrainScheduled;
+    private final Runnable mDrainRunnable = this::drain;
+
+    public ControllerInputQueue(@NonNull Delegate aDelegate, @NonNull Executor aUiExecutor) {
+        mDelegate = aDelegate;
+        mUiExecutor = aUiExecutor;
+    }
+
+    /**
+     * Queues a pointer report. Can be called from any thread.
+     */
+    public void queueMotionEvent(int aHandle, int aDevice, boolean aFocused, boolean aPressed, float aX, float aY) {
+        long now = SystemClock.uptimeMillis();
+        synchronized (this) {
+            Event last = mLastEvent.get(aDevice);
+            if (last != null && last.type == TYPE_MOTION && last.handle == aHandle &&
+                    last.focused == aFocused && last.pressed == aPressed) {
+                last.history.add(last.x, last.y, last.time);
+                last.x = aX;
+                last.y = aY;
+                last.time = now;
+                return;
+            }
+            Event event = obtainEvent(TYPE_MOTION, aHandle, aDevice, aX, aY, now);
+            event.focused = aFocused;
+            event.pressed = aPressed;
+            enqueue(event);
+        }
+    }
+
+    /**
+     * Queues a scroll report. Can be called from any thread.
+     */
+    public void queueScrollEvent(int aHandle, int aDevice, float aX, float aY) {
+        long now = SystemClock.uptimeMillis();
+        synchronized (this) {
+            Event last = mLastEvent.get(aDevice);
+            if (last != null && last.type == TYPE_SCROLL && last.handle == aHandle) {
+                last.x += aX;
+                last.y += aY;
+                last.time = now;
+                return;
+            }
+            enqueue(obtainEvent(TYPE_SCROLL, aHandle, aDevice, aX, aY, now));
+        }
+    }
+
+    /**
+     * Drops the queued events, for example when the widgets they target are gone.
+     */
+    public synchronized void clear() {
+        for (Event event : mPending) {
+            recycle(event);
+        }
+        mPending.clear();
+        mLastEvent.clear();
+    }
+
+    private Event obtainEvent(int aType, int aHandle, int aDevice, float aX, float aY, long aTime) {
+        Event event = mPool.isEmpty() ? new Event() : mPool.remove(mPool.size() - 1);
+        event.type = aType;
+        event.handle = aHandle;
+        event.device = aDevice;
+        event.focused = false;
+        event.pressed = false;
+        event.x = aX;
+        event.y = aY;
+        event.time = aTime;
+        event.inputTimeNs = System.nanoTime();
+        event.history.clear();
+        return event;
+    }
+
+    private void recycle(@NonNull Event aEvent) {
+        mPool.add(aEvent);
+    }
+
+    private void enqueue(@NonNull Event aEvent) {
+        mPending.add(aEvent);
+        mLastEvent.put(aEvent.device, aEvent);
+        if (!mDrainScheduled) {
+            mDrainScheduled = true;
+            mUiExecutor.execute(mDrainRunnable);
+        }
+    }
+
+    private void drain() {
+        ArrayList<Event> events;
+        synchronized (this) {
+            mDrainScheduled = false;
+            events = mPending;
+            mPending = mDispatching;
+            mDispatching = events;
+            mLastEvent.clear();
+        }
+
+        for (Event event : events) {
+            if (event.type == TYPE_MOTION) {
+                mDelegate.onMotionEvent(event.handle, event.device, event.focused, event.pressed, event.x, event.y, event.history, event.inputTimeNs);
+            } else {
+                mDelegate.onScrollEvent(event.handle, event.device, event.x, event.y, event.inputTimeNs);
+            }
+        }
+
+        synchronized (this) {
+            for (Event event : events) {
+                recycle(event);
+            }
+        }
+        events.clear();
+    }
+}
@@ -0,0 +1,163 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package com.igalia.wolvic.input;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+
+/**
+ * Latency histograms of the controller events, per widget type. Events are stamped when the
+ * render thread reports them and two latencies are recorded for each one:
+ * <ul>
+ *     <li>Queue wait: from the report until the UI thread starts dispatching the event. High
+ *     values point to a busy UI looper.</li>
+ *     <li>Dispatch: time spent by the widget handling the event. For windows this includes
+ *     handing the event to the web engine.</li>
+ * </ul>
+ */
+public class InputLatencyTracker {
+
+    // Bucket i holds the samples below 2^i * 250us, the last one everything above.
+    private static final int BUCKET_COUNT = 12;
+    private static final long FIRST_BUCKET_US = 250;
+
+    public static class Histogram {
+        private final long[] mBuckets = new long[BUCKET_COUNT];
+        private long mCount;
+        private long mMaxUs;
+        private long mTotalUs;
+
+        void add(long aLatencyUs) {
+            int bucket = 0;
+            long limit = FIRST_BUCKET_US;
+            while (bucket < BUCKET_COUNT - 1 && aLatencyUs >= limit) {
+                bucket++;
+                limit <<= 1;
+            }
+            mBuckets[bucket]++;
+            mCount++;
+            mTotalUs += aLatencyUs;
+            mMaxUs = Math.max(mMaxUs, aLatencyUs);
+        }
+
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getMaxUs() {
+            return mMaxUs;
+        }
+
+        public long getMeanUs() {
+            return mCount > 0 ? mTotalUs / mCount : 0;
+        }
+
+        /**
+         * Returns the upper bound of the bucket that contains the given percentile, or the max
+         * value if it is in the last bucket.
+         */
+        public long getPercentileUs(int aPercentile) {
+            long target = (mCount * aPercentile + 99) / 100;
+            long accumulated = 0;
+            long limit = FIRST_BUCKET_US;
+            for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+                accumulated += mBuckets[i];
+                if (accumulated >= target) {
+                    return Math.min(limit, mMaxUs);
+                }
+                limit <<= 1;
+            }
+            return mMaxUs;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "count=%d mean=%.2fms p50<=%.2fms p99<=%.2fms max=%.2fms",
+                    mCount, getMeanUs() / 1000f, getPercentileUs(50) / 1000f, getPercentileUs(99) / 1000f, mMaxUs / 1000f);
+        }
+
+        @NonNull
+        String bucketsToString() {
+            StringBuilder builder = new StringBuilder();
+            long limit = FIRST_BUCKET_US;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                if (i < BUCKET_COUNT - 1) {
+                    builder.append(String.format(Locale.US, "  <%.2fms: %d%n", limit / 1000f, mBuckets[i]));
+                } else {
+                    builder.append(String.format(Locale.US, "  >=%.2fms: %d%n", (limit >> 1) / 1000f, mBuckets[i]));
+                }
+                limit <<= 1;
+            }
+            return builder.toString();
+        }
+    }
+
+    private static class WidgetStats {
+        final Histogram queueWait = new Histogram();
+        final Histogram dispatch = new Histogram();
+    }
+
+    private static final TreeMap<String, WidgetStats> sStats = new TreeMap<>();
+
+    /**
+     * Records the latencies of an event. The timestamps come from {@link System#nanoTime()}.
+     */
+    public static void record(@NonNull Object aWidget, long aInputTimeNs, long aDispatchStartNs, long aDispatchEndNs) {
+        String type = aWidget.getClass().getSimpleName();
+        synchronized (sStats) {
+            WidgetStats stats = sStats.get(type);
+            if (stats == null) {
+                stats = new WidgetStats();
+                sStats.put(type, stats);
+            }
+            stats.queueWait.add(Math.max(0, aDispatchStartNs - aInputTimeNs) / 1000);
+            stats.dispatch.add(Math.max(0, aDispatchEndNs - aDispatchStartNs) / 1000);
+        }
+    }
+
+    public static void reset() {
+        synchronized (sStats) {
+            sStats.clear();
+        }
+    }
+
+    /**
+     * Returns one line per widget type with the queue wait and dispatch percentiles.
+     */
+    @NonNull
+    public static List<String> getSummary() {
+        List<String> result = new ArrayList<>();
+        synchronized (sStats) {
+            sStats.forEach((type, stats) -> result.add(String.format(Locale.US, "%s: wait p99<=%.1fms, dispatch p99<=%.1fms (%d)",
+                    type, stats.queueWait.getPercentileUs(99) / 1000f, stats.dispatch.getPercentileUs(99) / 1000f,
+                    stats.queueWait.getCount())));
+        }
+        return result;
+    }
+
+    /**
+     * Returns all the histograms in a human readable form.
+     */
+    @NonNull
+    public static String dump() {
+        StringBuilder builder = new StringBuilder();
+        synchronized (sStats) {
+            sStats.forEach((type, stats) -> {
+                builder.append(type).append('\n');
+                builder.append(" queue wait: ").append(stats.queueWait).append('\n');
+                builder.append(stats.queueWait.bucketsToString());
+                builder.append(" dispatch: ").append(stats.dispatch).append('\n');
+                builder.append(stats.dispatch.bucketsToString());
+            });
+        }
+        return builder.toString();
+    }
+}
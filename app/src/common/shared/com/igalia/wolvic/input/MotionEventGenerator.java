@@ -29,6 +29,7 @@ public class MotionEventGenerator {
         MotionEvent.PointerProperties mProperties[];
         MotionEvent.PointerCoords mCoords[];
         MotionEvent.PointerCoords mMouseOutCoords[];
+        MotionEvent.PointerCoords mHistoryCoords[];
 
         Device(final int aDevice) {
             mDevice = aDevice;
@@ -39,6 +40,8 @@ public class MotionEventGenerator {
             mCoords = new MotionEvent.PointerCoords[1];
             mCoords[0] = new MotionEvent.PointerCoords();
             mMouseOutCoords = new MotionEvent.PointerCoords[1];
+            mHistoryCoords = new MotionEvent.PointerCoords[1];
+            mHistoryCoords[0] = new MotionEvent.PointerCoords();
             for (MotionEvent.PointerCoords[] coords : Arrays.asList(mCoords, mMouseOutCoords)) {
                 coords[0] = new MotionEvent.PointerCoords();
                 coords[0].toolMajor = 2;
@@ -52,6 +55,8 @@ public class MotionEventGenerator {
     }
 
     private static SparseArray<Device> devices = new SparseArray<>();
+    // Timestamp of the controller report being dispatched, 0 if unknown.
+    private static long sInputTimeNs;
 
 
     private static void generateEvent(Widget aWidget, Device aDevice, boolean aFocused, int aAction, boolean aGeneric) {
@@ -59,13 +64,22 @@ public class MotionEventGenerator {
     }
 
     private static void generateEvent(Widget aWidget, Device aDevice, boolean aFocused, int aAction, boolean aGeneric, MotionEvent.PointerCoords[] aCoords) {
+        generateEvent(aWidget, aDevice, aFocused, aAction, aGeneric, aCoords, null);
+    }
+
+    private static void generateEvent(Widget aWidget, Device aDevice, boolean aFocused, int aAction, boolean aGeneric, MotionEvent.PointerCoords[] aCoords, ControllerInputQueue.History aHistory) {
+        // Coalesced positions are added as historical samples, the event starts with the oldest one.
+        boolean hasHistory = aHistory != null && aHistory.size() > 0;
+        if (hasHistory) {
+            setHistoryCoords(aDevice, aCoords, aHistory, 0);
+        }
         MotionEvent event = MotionEvent.obtain(
                 /*mDownTime*/ aDevice.mDownTime,
-                /*eventTime*/ SystemClock.uptimeMillis(),
+                /*eventTime*/ hasHistory ? aHistory.getTime(0) : SystemClock.uptimeMillis(),
                 /*action*/ aAction,
                 /*pointerCount*/ 1,
                 /*pointerProperties*/ aDevice.mProperties,
-                /*pointerCoords*/ aCoords,
+                /*pointerCoords*/ hasHistory ? aDevice.mHistoryCoords : aCoords,
                 /*metaState*/ 0,
                 /*buttonState*/ 0,
                 /*xPrecision*/ 0,
@@ -74,6 +88,14 @@ public class MotionEventGenerator {
                 /*edgeFlags*/ 0,
                 /*source*/ InputDevice.SOURCE_TOUCHSCREEN,
                 /*flags*/ 0);
+        if (hasHistory) {
+            for (int i = 1; i < aHistory.size(); i++) {
+                setHistoryCoords(aDevice, aCoords, aHistory, i);
+                event.addBatch(aHistory.getTime(i), aDevice.mHistoryCoords, 0);
+            }
+            event.addBatch(SystemClock.uptimeMillis(), aCoords, 0);
+        }
+        long dispatchStart = System.nanoTime();
         if (aGeneric) {
             if (aWidget.supportsMultipleInputDevices()) {
                 aWidget.handleHoverEvent(event);
@@ -84,10 +106,39 @@ public class MotionEventGenerator {
         } else {
             aWidget.handleTouchEvent(event);
         }
+        if (sInputTimeNs > 0) {
+            InputLatencyTracker.record(aWidget, sInputTimeNs, dispatchStart, System.nanoTime());
+        }
         event.recycle();
     }
 
+    private static void setHistoryCoords(Device aDevice, MotionEvent.PointerCoords[] aCoords, ControllerInputQueue.History aHistory, int aIndex) {
+        aDevice.mHistoryCoords[0].copyFrom(aCoords[0]);
+        aDevice.mHistoryCoords[0].x = aHistory.getX(aIndex);
+        aDevice.mHistoryCoords[0].y = aHistory.getY(aIndex);
+    }
+
     public static void dispatch(WidgetManagerDelegate widgetManager, Widget aWidget, int aDevice, boolean aFocused, boolean aPressed, float aX, float aY) {
+        dispatch(widgetManager, aWidget, aDevice, aFocused, aPressed, aX, aY, null, 0);
+    }
+
+    /**
+     * Same as {@link #dispatch(WidgetManagerDelegate, Widget, int, boolean, boolean, float, float)}
+     * but the intermediate positions of the pointer since the previous dispatch, already in widget
+     * coordinates, are added as historical samples to the generated move events. The latency
+     * from aInputTimeNs, when the controller reported the event, is recorded by
+     * {@link InputLatencyTracker}.
+     */
+    public static void dispatch(WidgetManagerDelegate widgetManager, Widget aWidget, int aDevice, boolean aFocused, boolean aPressed, float aX, float aY, ControllerInputQueue.History aHistory, long aInputTimeNs) {
+        sInputTimeNs = aInputTimeNs;
+        try {
+            dispatchInternal(widgetManager, aWidget, aDevice, aFocused, aPressed, aX, aY, aHistory);
+        } finally {
+            sInputTimeNs = 0;
+        }
+    }
+
+    private static void dispatchInternal(WidgetManagerDelegate widgetManager, Widget aWidget, int aDevice, boolean aFocused, boolean aPressed, float aX, float aY, ControllerInputQueue.History aHistory) {
         Device device = devices.get(aDevice);
         if (device == null) {
             device = new Device(aDevice);
@@ -147,9 +198,9 @@ public class MotionEventGenerator {
             }
             device.mTouchStartWidget = null;
         } else if (moving && aPressed) {
-            generateEvent(aWidget, device, aFocused, MotionEvent.ACTION_MOVE, false);
+            generateEvent(aWidget, device, aFocused, MotionEvent.ACTION_MOVE, false, device.mCoords, aHistory);
         } else if (moving) {
-            generateEvent(aWidget, device, aFocused, MotionEvent.ACTION_HOVER_MOVE, true);
+            generateEvent(aWidget, device, aFocused, MotionEvent.ACTION_HOVER_MOVE, true, device.mCoords, aHistory);
         } else {
             Log.e("VRB", "Unknown touch event action");
             return;
@@ -180,6 +231,19 @@ public class MotionEventGenerator {
     }
 
     public static void dispatchScroll(Widget aWidget, int aDevice, boolean aFocused, float aX, float aY) {
+        dispatchScroll(aWidget, aDevice, aFocused, aX, aY, 0);
+    }
+
+    public static void dispatchScroll(Widget aWidget, int aDevice, boolean aFocused, float aX, float aY, long aInputTimeNs) {
+        sInputTimeNs = aInputTimeNs;
+        try {
+            dispatchScrollInternal(aWidget, aDevice, aFocused, aX, aY);
+        } finally {
+            sInputTimeNs = 0;
+        }
+    }
+
+    private static void dispatchScrollInternal(Widget aWidget, int aDevice, boolean aFocused, float aX, float aY) {
         Device device = devices.get(aDevice);
         if (device == null) {
             device = new Device(aDevice);
@@ -1,8 +1,8 @@
 package com.igalia.wolvic.ui.keyboards;
 
 import android.content.Context;
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
@@ -15,15 +15,16 @@ import com.igalia.wolvic.utils.SystemUtils;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 public abstract class BaseLatinKeyboard extends BaseKeyboard {
     private static final String LOGTAG = SystemUtils.createLogtag(EnglishKeyboard.class);
-    private final HashMap<String, ArrayList<Words>> mKeymaps = new HashMap<>();
+    private static final int MAX_WORDS_PER_PREFIX = 20;
     private File mDB;
+    private LatinWordIndex mWordIndex;
+    private long mWordIndexTimestamp;
 
     public BaseLatinKeyboard(Context aContext) {
         super(aContext);
@@ -117,57 +118,51 @@ public abstract class BaseLatinKeyboard extends BaseKeyboard {
             // Allow completion of numbers and symbols
             return Collections.singletonList(new Words(1, aKey, aKey));
         }
-        loadKeymapIfNotLoaded(aKey);
-        return mKeymaps.get(aKey);
-    }
-
-    protected void loadDatabase() {
-        mDB = mContext.getDatabasePath(DictionaryUtils.getExternalDicFullName(getLocale().toString()));
-    }
-
-    private void loadKeymapIfNotLoaded(String aKey) {
-        if (mKeymaps.containsKey(aKey)) {
-            return;
+        LatinWordIndex index = getWordIndex();
+        if (index == null) {
+            return null;
         }
-        loadAutoCorrectTable(aKey);
-    }
-
-    private void loadAutoCorrectTable(String aKey) {
-        SQLiteDatabase reader = SQLiteDatabase.openDatabase(mDB.getPath(), null, SQLiteDatabase.OPEN_READONLY);;
-        String[] sqliteArgs = new String[1];
-        sqliteArgs[0] = aKey.toLowerCase() + "%";
-        try (Cursor cursor = reader.rawQuery("SELECT word FROM autocorrect where LOWER(word) LIKE ? ORDER BY originalFreq DESC LIMIT 20", sqliteArgs)) {
-            if (!cursor.moveToFirst()) {
-                addToKeyMap(aKey, null);
-                return;
-            }
-            do {
-                String word = getString(cursor, 0);
-                if (word == null || word.isEmpty()) {
-                    Log.e(LOGTAG, "code is null for " + aKey);
-                    continue;
-                }
-                addToKeyMap(aKey, word);
-            } while (cursor.moveToNext());
+        List<String> topWords = index.getTopWords(aKey, MAX_WORDS_PER_PREFIX);
+        ArrayList<Words> displays = new ArrayList<>(topWords.size());
+        for (String word : topWords) {
+            displays.add(new Words(1, aKey, word + " "));
         }
+        return displays;
     }
 
-    private void addToKeyMap(String aKey, String aCode) {
-        if (aKey == null || aKey.isEmpty()) {
-            Log.e(LOGTAG, "key is null");
-            return;
+    @Override
+    public void warmUp() {
+        if (supportsAutoCompletion() && mDB != null) {
+            getWordIndex();
         }
-        ArrayList<Words> keyMap = mKeymaps.computeIfAbsent(aKey, k -> new ArrayList<>());
+    }
 
-        if (aCode != null && !aCode.isEmpty()) {
-            keyMap.add(new Words(1, aKey, aCode + " "));
-        }
+    protected void loadDatabase() {
+        mDB = mContext.getDatabasePath(DictionaryUtils.getExternalDicFullName(getLocale().toString()));
     }
 
-    private String getString(Cursor aCursor, int aIndex) {
-        if (aCursor.isNull(aIndex)) {
-            return null;
+    /**
+     * Returns the index of the dictionary words, loading it the first time and again if the
+     * dictionary has been updated since it was loaded.
+     */
+    @Nullable
+    private synchronized LatinWordIndex getWordIndex() {
+        // lastModified() is 0 when the dictionary has not been installed.
+        long lastModified = mDB.lastModified();
+        if (lastModified != mWordIndexTimestamp) {
+            mWordIndexTimestamp = lastModified;
+            mWordIndex = null;
+            if (lastModified != 0) {
+                try {
+                    long start = SystemClock.elapsedRealtime();
+                    mWordIndex = LatinWordIndex.load(mDB, getLocale());
+                    Log.d(LOGTAG, "Loaded " + mWordIndex.size() + " words from " + mDB.getName() +
+                            " in " + (SystemClock.elapsedRealtime() - start) + "ms");
+                } catch (SQLiteException e) {
+                    Log.e(LOGTAG, "Error loading the words of " + mDB.getName() + ": " + e.getMessage());
+                }
+            }
         }
-        return aCursor.getString(aIndex);
+        return mWordIndex;
     }
 }
@@ -0,0 +1,105 @@
+package com.igalia.wolvic.ui.keyboards;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.igalia.wolvic.utils.SystemUtils;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes the keyboard candidates in a dedicated thread, so dictionary lookups and converters
+ * never block the thread that draws the key presses.
+ *
+ * Only the latest request matters: a new request cancels the previous ones, requests that are
+ * already outdated when the worker gets to them are skipped, and results are only delivered if
+ * no other request was made while they were computed.
+ */
+public class CandidatesWorker {
+
+    private static final String LOGTAG = SystemUtils.createLogtag(CandidatesWorker.class);
+
+    public interface Callback {
+        void onCandidates(@Nullable KeyboardInterface.CandidatesResult aResult);
+    }
+
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "KeyboardCandidates"));
+    private final AtomicInteger mLatestRequest = new AtomicInteger();
+
+    /**
+     * Requests the candidates of a text, cancelling the pending requests. Can be called from any
+     * thread.
+     * @param aEmoji Whether to get the emoji candidates instead of the word ones.
+     * @param aResultExecutor Where aCallback is run, it is not called if the request is cancelled
+     *                        before that.
+     */
+    public void request(@NonNull KeyboardInterface aKeyboard, @NonNull String aText, boolean aEmoji,
+                        @NonNull Executor aResultExecutor, @NonNull Callback aCallback) {
+        final int request = mLatestRequest.incrementAndGet();
+        try {
+            mExecutor.execute(() -> {
+                if (isCancelled(request)) {
+                    return;
+                }
+                KeyboardInterface.CandidatesResult result;
+                try {
+                    result = aEmoji ? aKeyboard.getEmojiCandidates(aText) : aKeyboard.getCandidates(aText);
+                } catch (RuntimeException e) {
+                    Log.e(LOGTAG, "Error getting the candidates: " + e.getMessage());
+                    result = null;
+                }
+                if (isCancelled(request)) {
+                    return;
+                }
+                final KeyboardInterface.CandidatesResult candidates = result;
+                aResultExecutor.execute(() -> {
+                    if (!isCancelled(request)) {
+                        aCallback.onCandidates(candidates);
+                    }
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(LOGTAG, "Candidates requested after shutdown");
+        }
+    }
+
+    /**
+     * Runs {@link KeyboardInterface#warmUp()} in the worker thread, before any later request.
+     */
+    public void warmUp(@NonNull KeyboardInterface aKeyboard) {
+        try {
+            mExecutor.execute(() -> {
+                try {
+                    aKeyboard.warmUp();
+                } catch (RuntimeException e) {
+                    Log.e(LOGTAG, "Error warming up the keyboard: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(LOGTAG, "Warm up requested after shutdown");
+        }
+    }
+
+    private boolean isCancelled(int aRequest) {
+        return aRequest != mLatestRequest.get();
+    }
+
+    /**
+     * Cancels the pending requests, their results won't be delivered.
+     */
+    public void cancel() {
+        mLatestRequest.incrementAndGet();
+    }
+
+    public void shutdown() {
+        cancel();
+        mExecutor.shutdownNow();
+    }
+}
@@ -2,8 +2,8 @@ package com.igalia.wolvic.ui.keyboards;
 
 import android.content.Context;
 import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
 import android.util.Log;
+import android.util.LruCache;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -27,12 +27,17 @@ import jp.co.omronsoft.openwnn.WnnWord;
 
 public class ChinesePinyinKeyboard extends BaseKeyboard {
     private static final String LOGTAG = SystemUtils.createLogtag(ChinesePinyinKeyboard.class);
+    private static final String KEYMAP_QUERY = "SELECT keymap, display, candidates FROM keymaps where keymap = ? ORDER BY _id ASC";
+    private static final String AUTOCORRECT_QUERY = "SELECT inputcode, displaycode, display FROM autocorrect where inputcode = ? ORDER BY _id ASC";
+    private static final int MAX_CACHED_KEYMAPS = 256;
     private CustomKeyboard mKeyboard;
     private CustomKeyboard mSymbolsKeyboard;
     private SymbolList mSymbolsConverter;  // For Emoji characters.
     private List<Words> mEmojiList = null;
     private File mDB;
-    private HashMap<String, KeyMap> mKeymaps = new HashMap<>();
+    private KeyboardDatabase mDatabase;
+    // Keys without results are cached too, with an empty KeyMap.
+    private final LruCache<String, KeyMap> mKeymaps = new LruCache<>(MAX_CACHED_KEYMAPS);
     private HashMap<String, KeyMap> mExtraKeymaps = new HashMap<>();
 
     public ChinesePinyinKeyboard(Context aContext) {
@@ -80,6 +85,9 @@ public class ChinesePinyinKeyboard extends BaseKeyboard {
         if (aComposingText.isEmpty()) {
             return null;
         }
+        if (mDatabase.update()) {
+            mKeymaps.evictAll();
+        }
 
         ArrayList<String> displayList = getDisplayCode(aComposingText);
         int syllables = 0;
@@ -183,6 +191,21 @@ public class ChinesePinyinKeyboard extends BaseKeyboard {
         return result;
     }
 
+    @Override
+    public void warmUp() {
+        if (mDatabase == null) {
+            return;
+        }
+        if (mDatabase.update()) {
+            mKeymaps.evictAll();
+        }
+        mDatabase.prepare(KEYMAP_QUERY, AUTOCORRECT_QUERY);
+        // The first key press always looks up a single letter.
+        for (char letter = 'a'; letter <= 'z'; letter++) {
+            loadKeymapIfNotLoaded(String.valueOf(letter));
+        }
+    }
+
     @Override
     public String getComposingText(String aComposing, String aCode) {
         if (mEmojiList != null) {
@@ -308,6 +331,7 @@ public class ChinesePinyinKeyboard extends BaseKeyboard {
     private void loadDatabase() {
         try {
             mDB = mContext.getDatabasePath("google_pinyin.db");
+            mDatabase = new KeyboardDatabase(mDB);
             addExtraKeyMaps();
         }
         catch (Exception ex) {
@@ -345,28 +369,29 @@ public class ChinesePinyinKeyboard extends BaseKeyboard {
     }
 
     private void loadKeymapIfNotLoaded(String aKey) {
-        if (mKeymaps.containsKey(aKey)) {
+        if (mKeymaps.get(aKey) != null) {
             return;
         }
         loadKeymapTable(aKey);
         loadAutoCorrectTable(aKey);
+        KeyMap map = mKeymaps.get(aKey);
+        if (map == null) {
+            mKeymaps.put(aKey, new KeyMap());
+            return;
+        }
         KeyMap extra = mExtraKeymaps.get(aKey);
         if (extra != null) {
-            KeyMap map = mKeymaps.get(aKey);
-            if (map != null) {
-                map.displays.addAll(extra.displays);
-                map.candidates.addAll(extra.candidates);
-            }
+            map.displays.addAll(extra.displays);
+            map.candidates.addAll(extra.candidates);
         }
     }
 
     private final String[] sqliteArgs = new String[1];
 
     private void loadKeymapTable(String aKey) {
-        SQLiteDatabase reader = SQLiteDatabase.openDatabase(mDB.getPath(), null, SQLiteDatabase.OPEN_READONLY);
         sqliteArgs[0] = aKey;
-        try (Cursor cursor = reader.rawQuery("SELECT keymap, display, candidates FROM keymaps where keymap = ? ORDER BY _id ASC", sqliteArgs)) {
-            if (!cursor.moveToFirst()) {
+        try (Cursor cursor = mDatabase.query(KEYMAP_QUERY, sqliteArgs)) {
+            if (cursor == null || !cursor.moveToFirst()) {
                 return;
             }
             do {
@@ -379,10 +404,9 @@ public class ChinesePinyinKeyboard extends BaseKeyboard {
     }
 
     private void loadAutoCorrectTable(String aKey) {
-        SQLiteDatabase reader = SQLiteDatabase.openDatabase(mDB.getPath(), null, SQLiteDatabase.OPEN_READONLY);
         sqliteArgs[0] = aKey;
-        try  (Cursor cursor = reader.rawQuery("SELECT inputcode, displaycode, display FROM autocorrect where inputcode = ? ORDER BY _id ASC", sqliteArgs)) {
-            if (!cursor.moveToFirst()) {
+        try  (Cursor cursor = mDatabase.query(AUTOCORRECT_QUERY, sqliteArgs)) {
+            if (cursor == null || !cursor.moveToFirst()) {
                 return;
             }
             do {
@@ -2,9 +2,9 @@ package com.igalia.wolvic.ui.keyboards;
 
 import android.content.Context;
 import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
 import com.igalia.wolvic.input.Keyboard.Key;
 import android.util.Log;
+import android.util.LruCache;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -30,13 +30,22 @@ import jp.co.omronsoft.openwnn.WnnWord;
 public class ChineseZhuyinKeyboard extends BaseKeyboard {
     private static final String LOGTAG = SystemUtils.createLogtag(ChineseZhuyinKeyboard.class);
     private static final String nonZhuyinReg = "[^ㄅ-ㄩ˙ˊˇˋˉ]";
+    private static final int MAX_CACHED_KEYMAPS = 256;
+    private static final int WORD_QUERY = 0;
+    private static final int ROUGH_WORD_QUERY = 1;
+    private static final int PHRASE_QUERY = 2;
+    private static final char FIRST_KEY_CODE_IN_TONES = '4'; // the first keycode of tones[˙, ˊ, ˋ, ˉ].
     private CustomKeyboard mKeyboard;
     private CustomKeyboard mSymbolsKeyboard;
     private SymbolList mSymbolsConverter;  // For Emoji characters.
     private List<Words> mEmojiList = null;
     private File mWordDB;
     private File mPhraseDB;
-    private HashMap<String, KeyMap> mKeymaps = new HashMap<>();
+    private KeyboardDatabase mWordDatabase;
+    private KeyboardDatabase mPhraseDatabase;
+    // Keys without results are cached too, with an empty KeyMap.
+    private final LruCache<String, KeyMap> mKeymaps = new LruCache<>(MAX_CACHED_KEYMAPS);
+    private final HashMap<String, String[]> mQueries = new HashMap<>();
     private HashMap<String, Words> mKeyCodes = new HashMap<>();
     private final String[] sqliteArgs = new String[2];
     private final String[] roughSqliteArgs = new String[3];
@@ -79,6 +88,7 @@ public class ChineseZhuyinKeyboard extends BaseKeyboard {
         if (aComposingText.isEmpty()) {
             return null;
         }
+        updateDatabases();
 
         // If using non-Zhuyin symbols like numeric, abc, special symbols,
         // we just need to compose them.
@@ -136,6 +146,28 @@ public class ChineseZhuyinKeyboard extends BaseKeyboard {
         return result;
     }
 
+    @Override
+    public void warmUp() {
+        if (mWordDatabase == null) {
+            return;
+        }
+        updateDatabases();
+        // The first key press always looks up a single symbol, which is never a tone.
+        for (Words keyCode : mKeyCodes.values()) {
+            if (keyCode.code.charAt(0) != FIRST_KEY_CODE_IN_TONES) {
+                loadKeymapIfNotLoaded(keyCode.code);
+            }
+        }
+    }
+
+    private void updateDatabases() {
+        boolean wordsChanged = mWordDatabase.update();
+        boolean phrasesChanged = mPhraseDatabase.update();
+        if (wordsChanged || phrasesChanged) {
+            mKeymaps.evictAll();
+        }
+    }
+
     private String GetTransCode(String aText) {
         String code = aText;
         String transCode = "";
@@ -242,7 +274,7 @@ public class ChineseZhuyinKeyboard extends BaseKeyboard {
         loadKeymapIfNotLoaded(code);
         KeyMap map = mKeymaps.get(code);
 
-        if (map == null) {
+        if (map == null || map.displays.isEmpty()) {
             return Collections.singletonList(new Words(1, aKey, aKey));
         }
         // When detecting special symbols at the last character, and
@@ -264,6 +296,8 @@ public class ChineseZhuyinKeyboard extends BaseKeyboard {
         try {
             mWordDB = mContext.getDatabasePath("zhuyin_words.db");
             mPhraseDB = mContext.getDatabasePath("zhuyin_phrases.db");
+            mWordDatabase = new KeyboardDatabase(mWordDB);
+            mPhraseDatabase = new KeyboardDatabase(mPhraseDB);
             addExtraKeyMaps();
         }
         catch (Exception ex) {
@@ -333,33 +367,54 @@ public class ChineseZhuyinKeyboard extends BaseKeyboard {
     }
 
     private void loadKeymapIfNotLoaded(String aKey) {
-        if (mKeymaps.containsKey(aKey)) {
+        if (mKeymaps.get(aKey) != null) {
             return;
         }
         loadKeymapTable(aKey);
+        if (mKeymaps.get(aKey) == null) {
+            mKeymaps.put(aKey, new KeyMap());
+        }
+    }
+
+    // The words and phrases are split in tables by the code of their first symbol, the SQL of
+    // each table is built once so the compiled statements are found in the statement cache.
+    private String[] getQueries(String aTable) {
+        String[] queries = mQueries.get(aTable);
+        if (queries == null) {
+            queries = new String[3];
+            queries[WORD_QUERY] = "SELECT code, word FROM words_" + aTable
+                    + " WHERE code = ? GROUP BY word ORDER BY frequency DESC LIMIT ?";
+            queries[ROUGH_WORD_QUERY] = "SELECT code, word FROM words_" + aTable
+                    + " WHERE code like ? and code!= ? GROUP BY word ORDER BY frequency DESC LIMIT ?";
+            queries[PHRASE_QUERY] = "SELECT code, word FROM phrases_" + aTable
+                    + " WHERE code like ? GROUP BY word ORDER BY frequency DESC LIMIT ?";
+            mQueries.put(aTable, queries);
+        }
+        return queries;
     }
 
     private void loadKeymapTable(String aKey) {
-        SQLiteDatabase reader = SQLiteDatabase.openDatabase(mWordDB.getPath(), null, SQLiteDatabase.OPEN_READONLY);
         String transCode = aKey;
         int limit = 50;
         boolean exactQuery = false;
-        final char firstKeyCodeInTones = '4'; // the first keycode of tones[˙, ˊ, ˋ, ˉ].
 
         // Finding if aKey contains tones.
-        if (transCode.charAt(transCode.length() - 2) == firstKeyCodeInTones) {
+        if (transCode.charAt(transCode.length() - 2) == FIRST_KEY_CODE_IN_TONES) {
             exactQuery = true;
         }
         // We didn't store the first tone in DB.
         transCode = transCode.replaceAll("44", "");
+        if (transCode.length() < 2) {
+            return;
+        }
+        String[] queries = getQueries(transCode.substring(0, 2));
 
         sqliteArgs[0] = transCode;
         sqliteArgs[1] = "" + limit;
 
         // Query word exactly
-        try (Cursor cursor = reader.rawQuery("SELECT code, word FROM words_" + transCode.substring(0, 2)
-                + " WHERE code = ? GROUP BY word ORDER BY frequency DESC LIMIT ?", sqliteArgs)) {
-            if (cursor.moveToFirst()) {
+        try (Cursor cursor = mWordDatabase.query(queries[WORD_QUERY], sqliteArgs)) {
+            if (cursor != null && cursor.moveToFirst()) {
                 do {
                     String key = getString(cursor, 0);
                     String displays = getString(cursor, 1);
@@ -376,9 +431,8 @@ public class ChineseZhuyinKeyboard extends BaseKeyboard {
             roughSqliteArgs[0] = transCode + "%";
             roughSqliteArgs[1] = "" + transCode;
             roughSqliteArgs[2] = "" + limit;
-            try (Cursor cursor = reader.rawQuery("SELECT code, word FROM words_" + transCode.substring(0, 2)
-                    + " WHERE code like ? and code!= ? GROUP BY word ORDER BY frequency DESC LIMIT ?", roughSqliteArgs)) {
-                if (cursor.moveToFirst()) {
+            try (Cursor cursor = mWordDatabase.query(queries[ROUGH_WORD_QUERY], roughSqliteArgs)) {
+                if (cursor != null && cursor.moveToFirst()) {
                     do {
                         String key = getString(cursor, 0);
                         String word = getString(cursor, 1);
@@ -396,12 +450,10 @@ public class ChineseZhuyinKeyboard extends BaseKeyboard {
         }
 
         // Query phrase
-        reader = SQLiteDatabase.openDatabase(mPhraseDB.getPath(), null, SQLiteDatabase.OPEN_READONLY);
         sqliteArgs[0] = transCode + '%';
         sqliteArgs[1] = "" + limit;
-        try (Cursor cursor = reader.rawQuery("SELECT code, word FROM phrases_" + transCode.substring(0, 2)
-                + " WHERE code like ? GROUP BY word ORDER BY frequency DESC LIMIT ?", sqliteArgs)) {
-            if (cursor.moveToFirst()) {
+        try (Cursor cursor = mPhraseDatabase.query(queries[PHRASE_QUERY], sqliteArgs)) {
+            if (cursor != null && cursor.moveToFirst()) {
                 do {
                     String key = getString(cursor, 0);
                     String word = getString(cursor, 1);
@@ -36,7 +36,7 @@ public class JapaneseKeyboard extends BaseKeyboard {
 
     private SymbolList mSymbolsConverter;
 
-    /** OpenWnn dictionary */
+    /** OpenWnn dictionary, loaded the first time it is needed */
     private WnnEngine mConverter;
 
     /** Pre-converter (for Romaji-to-Kana input, Hangul input, etc.) */
@@ -49,15 +49,24 @@ public class JapaneseKeyboard extends BaseKeyboard {
     public JapaneseKeyboard(Context aContext) {
         super(aContext);
 
-        mConverter = new OpenWnnEngineJAJP();
-        ((OpenWnnEngineJAJP) mConverter).setKeyboardType(OpenWnnEngineJAJP.KEYBOARD_QWERTY);
-        ((OpenWnnEngineJAJP) mConverter).setDictionary(OpenWnnEngineJAJP.DIC_LANG_JP);
-        mConverter.init();
-
         mPreConverter = new Romkan();
         mComposingText = new ComposingText();
     }
 
+    // Every keyboard is created at startup, but the dictionary is only needed once the Japanese
+    // keyboard is used.
+    @NonNull
+    private synchronized WnnEngine getConverter() {
+        if (mConverter == null) {
+            OpenWnnEngineJAJP converter = new OpenWnnEngineJAJP();
+            converter.setKeyboardType(OpenWnnEngineJAJP.KEYBOARD_QWERTY);
+            converter.setDictionary(OpenWnnEngineJAJP.DIC_LANG_JP);
+            converter.init();
+            mConverter = converter;
+        }
+        return mConverter;
+    }
+
     @NonNull
     @Override
     public CustomKeyboard getAlphabeticKeyboard() {
@@ -81,7 +90,7 @@ public class JapaneseKeyboard extends BaseKeyboard {
 
     @Nullable
     @Override
-    public CandidatesResult getCandidates(String aComposingText) {
+    public synchronized CandidatesResult getCandidates(String aComposingText) {
         if (StringUtils.isEmpty(aComposingText)) {
             mComposingText.clear();
             return null;
@@ -99,10 +108,11 @@ public class JapaneseKeyboard extends BaseKeyboard {
         initializeComposingText(aComposingText);
 
         List<Words> words = new ArrayList<>();
-        int candidates = mConverter.predict(mComposingText, 0, -1);
+        WnnEngine converter = getConverter();
+        int candidates = converter.predict(mComposingText, 0, -1);
         if (candidates > 0) {
             WnnWord word;
-            while ((word = mConverter.getNextCandidate()) != null) {
+            while ((word = converter.getNextCandidate()) != null) {
                 words.add(new Words(1, word.stroke, word.candidate));
             }
         }
@@ -125,7 +135,7 @@ public class JapaneseKeyboard extends BaseKeyboard {
     }
 
     @Override
-    public CandidatesResult getEmojiCandidates(String aComposingText) {
+    public synchronized CandidatesResult getEmojiCandidates(String aComposingText) {
         ComposingText text = new ComposingText();
         mSymbolsConverter.convert(text);
 
@@ -204,8 +214,16 @@ public class JapaneseKeyboard extends BaseKeyboard {
     }
 
     @Override
-    public void clear() {
-        mConverter.init();
+    public void warmUp() {
+        getConverter();
+    }
+
+    // The converter is also used by getCandidates() in the candidates worker thread.
+    @Override
+    public synchronized void clear() {
+        if (mConverter != null) {
+            mConverter.init();
+        }
     }
 
     @Override
@@ -0,0 +1,93 @@
+package com.igalia.wolvic.ui.keyboards;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.igalia.wolvic.utils.SystemUtils;
+
+import java.io.File;
+
+/**
+ * Read-only connection to a keyboard dictionary that stays open between lookups.
+ *
+ * SQLite keeps the statements it compiles in a per connection cache keyed by their SQL, so as long
+ * as the connection lives, running a query with the same SQL again skips parsing and planning it.
+ * The connection is reopened when the dictionary file is replaced.
+ */
+class KeyboardDatabase {
+
+    private static final String LOGTAG = SystemUtils.createLogtag(KeyboardDatabase.class);
+
+    private final File mFile;
+    private SQLiteDatabase mDatabase;
+    private long mTimestamp;
+
+    KeyboardDatabase(@NonNull File aFile) {
+        mFile = aFile;
+    }
+
+    /**
+     * Opens the connection if the dictionary has been installed or replaced since the last call.
+     * @return true if the dictionary changed, so the results read before are outdated.
+     */
+    synchronized boolean update() {
+        // lastModified() is 0 when the dictionary has not been installed.
+        long lastModified = mFile.lastModified();
+        if (lastModified == mTimestamp) {
+            return false;
+        }
+        close();
+        mTimestamp = lastModified;
+        if (lastModified != 0) {
+            try {
+                mDatabase = SQLiteDatabase.openDatabase(mFile.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+                mDatabase.setMaxSqlCacheSize(SQLiteDatabase.MAX_SQL_CACHE_SIZE);
+            } catch (SQLiteException e) {
+                Log.e(LOGTAG, "Error opening " + mFile.getName() + ": " + e.getMessage());
+                mDatabase = null;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs a query, or returns null if the dictionary is not available.
+     */
+    @Nullable
+    synchronized Cursor query(@NonNull String aSql, @Nullable String[] aArgs) {
+        if (mDatabase == null) {
+            return null;
+        }
+        return mDatabase.rawQuery(aSql, aArgs);
+    }
+
+    /**
+     * Compiles statements ahead of time so the first lookups find them in the statement cache.
+     */
+    synchronized void prepare(@NonNull String... aSqls) {
+        if (mDatabase == null) {
+            return;
+        }
+        for (String sql : aSqls) {
+            try (SQLiteStatement statement = mDatabase.compileStatement(sql)) {
+                // Compiling it is enough, the connection keeps it after the statement is closed.
+            } catch (SQLiteException e) {
+                Log.e(LOGTAG, "Error compiling " + sql + ": " + e.getMessage());
+            }
+        }
+    }
+
+    synchronized void close() {
+        if (mDatabase != null) {
+            mDatabase.close();
+            mDatabase = null;
+        }
+        mTimestamp = 0;
+    }
+}
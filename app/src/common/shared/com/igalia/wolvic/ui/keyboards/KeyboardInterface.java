@@ -53,4 +53,6 @@ public interface KeyboardInterface {
     String getEnterKeyText(int aIMEOptions, String aComposingText);
     String getModeChangeKeyText();
     default @Nullable void clear() {}
+    // Loads what the candidate lookups need, in the candidates thread, when the keyboard is selected.
+    default void warmUp() {}
 }
\ No newline at end of file
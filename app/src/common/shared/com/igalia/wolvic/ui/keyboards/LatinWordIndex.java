@@ -0,0 +1,257 @@
+package com.igalia.wolvic.ui.keyboards;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Words of an autocorrect dictionary sorted by their lower case form, to find the most frequent
+ * words starting with a prefix without querying the database.
+ *
+ * The words are packed in two char arrays, lower case and original, indexed by offset arrays.
+ * A prefix maps to a contiguous range of words found with two binary searches, and a segment tree
+ * holding the most frequent word of each segment returns the top words of the range in
+ * O(k log n) instead of scanning it. The ranges queued by a lookup are kept in a reused heap, so
+ * a lookup only allocates the lower case prefix and its results.
+ */
+class LatinWordIndex {
+
+    private final Locale mLocale;
+    private final int mSize;
+    private final char[] mKeys;
+    private final int[] mKeyOffsets;
+    private final char[] mWords;
+    private final int[] mWordOffsets;
+    private final int[] mFrequencies;
+    // Leaves start at mLeaves, each node holds the index of the most frequent word below it.
+    private final int mLeaves;
+    private final int[] mTree;
+    // Binary heap of the ranges queued by getTopWords, three ints per range: its start, its end
+    // and its most frequent word, which orders the heap.
+    private int[] mQueue = new int[3 * 32];
+    private int mQueueSize;
+
+    private LatinWordIndex(@NonNull Locale aLocale, @NonNull String[] aWords, @NonNull int[] aFrequencies) {
+        mLocale = aLocale;
+        mSize = aWords.length;
+
+        String[] keys = new String[mSize];
+        Integer[] order = new Integer[mSize];
+        int keyLength = 0;
+        int wordLength = 0;
+        for (int i = 0; i < mSize; i++) {
+            keys[i] = aWords[i].toLowerCase(aLocale);
+            order[i] = i;
+            keyLength += keys[i].length();
+            wordLength += aWords[i].length();
+        }
+        Arrays.sort(order, (a, b) -> keys[a].compareTo(keys[b]));
+
+        mKeys = new char[keyLength];
+        mKeyOffsets = new int[mSize + 1];
+        mWords = new char[wordLength];
+        mWordOffsets = new int[mSize + 1];
+        mFrequencies = new int[mSize];
+        for (int i = 0; i < mSize; i++) {
+            int source = order[i];
+            String key = keys[source];
+            key.getChars(0, key.length(), mKeys, mKeyOffsets[i]);
+            mKeyOffsets[i + 1] = mKeyOffsets[i] + key.length();
+            String word = aWords[source];
+            word.getChars(0, word.length(), mWords, mWordOffsets[i]);
+            mWordOffsets[i + 1] = mWordOffsets[i] + word.length();
+            mFrequencies[i] = aFrequencies[source];
+        }
+
+        int leaves = 1;
+        while (leaves < mSize) {
+            leaves <<= 1;
+        }
+        mLeaves = leaves;
+        mTree = new int[leaves * 2];
+        Arrays.fill(mTree, -1);
+        for (int i = 0; i < mSize; i++) {
+            mTree[leaves + i] = i;
+        }
+        for (int node = leaves - 1; node > 0; node--) {
+            mTree[node] = best(mTree[node * 2], mTree[node * 2 + 1]);
+        }
+    }
+
+    /**
+     * Reads every word of the autocorrect table. This is the only query made to the database.
+     */
+    @NonNull
+    static LatinWordIndex load(@NonNull File aDatabase, @NonNull Locale aLocale) {
+        ArrayList<String> words = new ArrayList<>();
+        int[] frequencies = new int[1024];
+        try (SQLiteDatabase reader = SQLiteDatabase.openDatabase(aDatabase.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+             Cursor cursor = reader.rawQuery("SELECT word, originalFreq FROM autocorrect", null)) {
+            while (cursor.moveToNext()) {
+                if (cursor.isNull(0)) {
+                    continue;
+                }
+                String word = cursor.getString(0);
+                if (word.isEmpty()) {
+                    continue;
+                }
+                if (words.size() == frequencies.length) {
+                    frequencies = Arrays.copyOf(frequencies, frequencies.length * 2);
+                }
+                frequencies[words.size()] = cursor.getInt(1);
+                words.add(word);
+            }
+        }
+        return new LatinWordIndex(aLocale, words.toArray(new String[0]), frequencies);
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns up to aLimit words starting with aPrefix, ignoring the case, most frequent first.
+     */
+    @NonNull
+    synchronized List<String> getTopWords(@NonNull String aPrefix, int aLimit) {
+        String prefix = aPrefix.toLowerCase(mLocale);
+        int start = lowerBound(prefix, false);
+        int end = lowerBound(prefix, true);
+        List<String> result = new ArrayList<>(Math.min(aLimit, end - start));
+        if (start >= end || aLimit <= 0) {
+            return result;
+        }
+
+        // Each entry is a range of words and its most frequent word. Taking a word splits its
+        // range in two, so the next best word is always the best of one of the queued ranges.
+        mQueueSize = 0;
+        pushRange(start, end);
+        while (mQueueSize > 0 && result.size() < aLimit) {
+            int rangeStart = mQueue[0];
+            int rangeEnd = mQueue[1];
+            int best = mQueue[2];
+            popRange();
+            result.add(new String(mWords, mWordOffsets[best], mWordOffsets[best + 1] - mWordOffsets[best]));
+            if (rangeStart < best) {
+                pushRange(rangeStart, best);
+            }
+            if (best + 1 < rangeEnd) {
+                pushRange(best + 1, rangeEnd);
+            }
+        }
+        return result;
+    }
+
+    private void pushRange(int aStart, int aEnd) {
+        if ((mQueueSize + 1) * 3 > mQueue.length) {
+            mQueue = Arrays.copyOf(mQueue, mQueue.length * 2);
+        }
+        int best = rangeBest(aStart, aEnd);
+        int i = mQueueSize++;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (compare(mQueue[parent * 3 + 2], best) <= 0) {
+                break;
+            }
+            System.arraycopy(mQueue, parent * 3, mQueue, i * 3, 3);
+            i = parent;
+        }
+        mQueue[i * 3] = aStart;
+        mQueue[i * 3 + 1] = aEnd;
+        mQueue[i * 3 + 2] = best;
+    }
+
+    // Removes the range with the most frequent word, the first one.
+    private void popRange() {
+        int last = --mQueueSize;
+        int i = 0;
+        while (true) {
+            int child = i * 2 + 1;
+            if (child >= last) {
+                break;
+            }
+            if (child + 1 < last && compare(mQueue[(child + 1) * 3 + 2], mQueue[child * 3 + 2]) < 0) {
+                child++;
+            }
+            if (compare(mQueue[last * 3 + 2], mQueue[child * 3 + 2]) <= 0) {
+                break;
+            }
+            System.arraycopy(mQueue, child * 3, mQueue, i * 3, 3);
+            i = child;
+        }
+        System.arraycopy(mQueue, last * 3, mQueue, i * 3, 3);
+    }
+
+    /**
+     * First word whose key is not below the prefix or, if aAfter is set, the first word after all
+     * the words starting with the prefix.
+     */
+    private int lowerBound(@NonNull String aPrefix, boolean aAfter) {
+        int low = 0;
+        int high = mSize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = comparePrefix(middle, aPrefix);
+            if (comparison < 0 || (aAfter && comparison == 0)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares the key of a word, truncated to the length of the prefix, with the prefix.
+     */
+    private int comparePrefix(int aIndex, @NonNull String aPrefix) {
+        int offset = mKeyOffsets[aIndex];
+        int length = Math.min(mKeyOffsets[aIndex + 1] - offset, aPrefix.length());
+        for (int i = 0; i < length; i++) {
+            char c = mKeys[offset + i];
+            char p = aPrefix.charAt(i);
+            if (c != p) {
+                return c - p;
+            }
+        }
+        return length - aPrefix.length();
+    }
+
+    private int rangeBest(int aStart, int aEnd) {
+        int best = -1;
+        for (int low = aStart + mLeaves, high = aEnd + mLeaves; low < high; low >>= 1, high >>= 1) {
+            if ((low & 1) == 1) {
+                best = best(best, mTree[low++]);
+            }
+            if ((high & 1) == 1) {
+                best = best(best, mTree[--high]);
+            }
+        }
+        return best;
+    }
+
+    private int best(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        return compare(a, b) <= 0 ? a : b;
+    }
+
+    // Most frequent first, and in alphabetical order among words with the same frequency.
+    private int compare(int a, int b) {
+        if (mFrequencies[a] != mFrequencies[b]) {
+            return mFrequencies[a] > mFrequencies[b] ? -1 : 1;
+        }
+        return Integer.compare(a, b);
+    }
+}
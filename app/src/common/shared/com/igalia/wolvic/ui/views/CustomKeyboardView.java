@@ -25,6 +25,7 @@ import android.graphics.Paint;
 import android.graphics.Paint.Align;
 import android.graphics.PorterDuff;
 import android.graphics.Rect;
+import android.graphics.Region;
 import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
 import com.igalia.wolvic.input.Keyboard;
@@ -53,6 +54,7 @@ import com.igalia.wolvic.input.CustomKeyboard;
 
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -229,8 +231,6 @@ public class CustomKeyboardView extends View implements View.OnClickListener {
     private int mRepeatKeyIndex = NOT_A_KEY;
     private int mPopupLayout;
     private boolean mAbortKey;
-    private Key mInvalidatedKey;
-    private Rect mClipRegion = new Rect(0, 0, 0, 0);
     private boolean mPossiblePoly;
     private SwipeTracker mSwipeTracker = new SwipeTracker();
     private int mSwipeThreshold;
@@ -263,16 +263,20 @@ public class CustomKeyboardView extends View implements View.OnClickListener {
     private static final int MULTITAP_INTERVAL = 250; // milliseconds
     private StringBuilder mPreviewLabel = new StringBuilder(1);
 
-    /** Whether the keyboard bitmap needs to be redrawn before it's blitted. **/
-    private boolean mDrawPending;
-    /** The dirty region in the keyboard bitmap */
-    private Rect mDirtyRect = new Rect();
-    /** The keyboard bitmap for faster updates */
-    private Bitmap mBuffer;
-    /** Notes if the keyboard just changed, so that we could possibly reallocate the mBuffer. */
-    private boolean mKeyboardChanged;
-    /** The canvas for the above mutable keyboard bitmap */
-    private Canvas mCanvas;
+    /** The keys of a keyboard rasterized in their resting state */
+    private static class KeyLayer {
+        Keyboard keyboard;
+        boolean shifted;
+        Object[] signature;
+        Bitmap bitmap;
+    }
+    /** Maximum number of keyboard and shift state combinations kept rasterized. Every layer is a
+     * bitmap of the size of the view, enough for the shifted and unshifted current keyboard. */
+    private static final int MAX_CACHED_KEY_LAYERS = 2;
+    /** The rasterized keyboards, most recently used first */
+    private final ArrayList<KeyLayer> mKeyLayers = new ArrayList<>();
+    /** The layer of the current keyboard, null if it has to be looked up again before drawing */
+    private KeyLayer mKeyLayer;
     /** The audio manager for accessibility support */
     private AudioManager mAudioManager;
     /** Whether the requirement of a headset to hear passwords if accessibility is enabled is announced. */
@@ -404,22 +408,27 @@ public class CustomKeyboardView extends View implements View.OnClickListener {
 
     public void setKeyBackground(Drawable resId) {
         mKeyBackground = resId;
+        clearKeyLayers();
     }
 
     public void setKeyCapStartBackground(Drawable resId) {
         mKeyCapStartBackground = resId;
+        clearKeyLayers();
     }
 
     public void setKeySingleStartBackground(Drawable resId) {
         mKeySingleBackground = resId;
+        clearKeyLayers();
     }
 
     public void setKeyCapEndBackground(Drawable resId) {
         mKeyCapEndBackground = resId;
+        clearKeyLayers();
     }
 
     public void setKeyTextColor(int color) {
         mKeyTextColor = color;
+        clearKeyLayers();
     }
 
     public void setSelectedForegroundColor(int color) {
@@ -525,8 +534,6 @@ public class CustomKeyboardView extends View implements View.OnClickListener {
         List<Key> keys = mKeyboard.getKeys();
         mKeys = keys.toArray(new Key[keys.size()]);
         requestLayout();
-        // Hint to reallocate the buffer if the size changed
-        mKeyboardChanged = true;
         invalidateAllKeys();
         computeProximityThreshold(keyboard);
         mMiniKeyboardCache.clear(); // Not really necessary to do every time, but will free up views
@@ -698,194 +705,290 @@ public class CustomKeyboardView extends View implements View.OnClickListener {
                 }
             }
         }
-        // Release the buffer, if any and it will be reallocated on the next draw
-        mBuffer = null;
+        // The cached layers have the old size, they will be rasterized again on the next draw
+        clearKeyLayers();
     }
 
     @Override
     public void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-        if (mDrawPending || mBuffer == null || mKeyboardChanged) {
-            onBufferDraw();
+        if (mKeyboard == null) {
+            return;
         }
-        canvas.drawBitmap(mBuffer, 0, 0, mPaint);
-    }
-
-    private void onBufferDraw() {
-        if (mBuffer == null || mKeyboardChanged) {
-            if (mBuffer == null || mKeyboardChanged &&
-                    (mBuffer.getWidth() != getWidth() || mBuffer.getHeight() != getHeight())) {
-                // Make sure our bitmap is at least 1x1
-                final int width = Math.max(1, getWidth());
-                final int height = Math.max(1, getHeight());
-                mBuffer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-                mCanvas = new Canvas(mBuffer);
-            }
-            invalidateAllKeys();
-            mKeyboardChanged = false;
+        if (mKeyLayer == null) {
+            mKeyLayer = obtainKeyLayer();
         }
-        final Canvas canvas = mCanvas;
-        mCanvas.save();
-        canvas.clipRect(mDirtyRect);
-
-        if (mKeyboard == null) return;
 
         final Paint paint = mPaint;
-        final Rect clipRegion = mClipRegion;
-        final Rect padding = mPadding;
         final int kbdPaddingLeft = getPaddingLeft();
         final int kbdPaddingTop = getPaddingTop();
         final Key[] keys = mKeys;
-        final Key invalidKey = mInvalidatedKey;
-
-        paint.setColor(mKeyTextColor);
-        boolean drawSingleKey = false;
-        if (invalidKey != null && canvas.getClipBounds(clipRegion)) {
-            // Is clipRegion completely contained within the invalidated key?
-            if (invalidKey.x + kbdPaddingLeft - 1 <= clipRegion.left &&
-                    invalidKey.y + kbdPaddingTop - 1 <= clipRegion.top &&
-                    invalidKey.x + invalidKey.width + kbdPaddingLeft + 1 >= clipRegion.right &&
-                    invalidKey.y + invalidKey.height + kbdPaddingTop + 1 >= clipRegion.bottom) {
-                drawSingleKey = true;
+
+        // Blit the resting keys from the layer, except the hovered and pressed ones which are
+        // the only keys drawn every frame.
+        canvas.save();
+        for (int i = 0; i < keys.length; i++) {
+            if (isKeyActive(i)) {
+                final Key key = keys[i];
+                clipOutRect(canvas, key.x + kbdPaddingLeft, key.y + kbdPaddingTop,
+                        key.x + key.width + kbdPaddingLeft, key.y + key.height + kbdPaddingTop);
             }
         }
-        canvas.drawColor(0x00000000, PorterDuff.Mode.CLEAR);
-        final int keyCount = keys.length;
-        for (int i = 0; i < keyCount; i++) {
-            final Key key = keys[i];
-            if (drawSingleKey && invalidKey != key) {
-                continue;
+        canvas.drawBitmap(mKeyLayer.bitmap, 0, 0, paint);
+        canvas.restore();
+
+        for (int i = 0; i < keys.length; i++) {
+            if (isKeyActive(i)) {
+                final Key key = keys[i];
+                canvas.save();
+                canvas.clipRect(key.x + kbdPaddingLeft, key.y + kbdPaddingTop,
+                        key.x + key.width + kbdPaddingLeft, key.y + key.height + kbdPaddingTop);
+                canvas.translate(key.x + kbdPaddingLeft, key.y + kbdPaddingTop);
+                drawKey(canvas, i, false);
+                canvas.restore();
             }
+        }
 
-            boolean stateHovered = false;
-            boolean statePressed = false;
-            int[] drawableState = key.getCurrentDrawableState();
+        // Overlay a dark rectangle to dim the keyboard
+        if (mMiniKeyboardOnScreen) {
+            paint.setColor((int) (mBackgroundDimAmount * 0xFF) << 24);
+            canvas.drawRect(0, 0, getWidth(), getHeight(), paint);
+        }
 
-            if (((CustomKeyboard)mKeyboard).isKeyEnabled(i)) {
-                if (isKeyHovered(i) && !key.pressed) {
-                    // Fork: implement hovered key
-                    drawableState = KEY_STATE_HOVERED;
-                }
+        if (DEBUG && mShowTouchPoints) {
+            paint.setAlpha(128);
+            paint.setColor(0xFFFF0000);
+            canvas.drawCircle(mStartX, mStartY, 3, paint);
+            canvas.drawLine(mStartX, mStartY, mLastX, mLastY, paint);
+            paint.setColor(0xFF0000FF);
+            canvas.drawCircle(mLastX, mLastY, 3, paint);
+            paint.setColor(0xFF00FF00);
+            canvas.drawCircle((mStartX + mLastX) / 2, (mStartY + mLastY) / 2, 2, paint);
+        }
+    }
 
-                for (int state : drawableState) {
-                    if (state == android.R.attr.state_hovered) {
-                        stateHovered = true;
-                    } else if (state == android.R.attr.state_pressed) {
-                        statePressed = true;
-                    }
-                }
+    private static void clipOutRect(Canvas canvas, int left, int top, int right, int bottom) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            canvas.clipOutRect(left, top, right, bottom);
+        } else {
+            canvas.clipRect(left, top, right, bottom, Region.Op.DIFFERENCE);
+        }
+    }
 
-            } else {
-                drawableState = KEY_STATE_NORMAL;
+    /**
+     * Hovered and pressed keys are not taken from the key layer, they are drawn on top of it.
+     */
+    private boolean isKeyActive(int keyIndex) {
+        return ((CustomKeyboard)mKeyboard).isKeyEnabled(keyIndex) &&
+                (mKeys[keyIndex].pressed || isKeyHovered(keyIndex));
+    }
+
+    /**
+     * Returns the layer of the current keyboard and shift state, rasterizing it only if it is
+     * not cached or the keys changed since it was cached.
+     */
+    private KeyLayer obtainKeyLayer() {
+        final int width = Math.max(1, getWidth());
+        final int height = Math.max(1, getHeight());
+        final boolean shifted = mKeyboard.isShifted();
+        final Object[] signature = getKeysSignature();
+
+        KeyLayer layer = null;
+        for (int i = 0; i < mKeyLayers.size(); i++) {
+            KeyLayer cached = mKeyLayers.get(i);
+            if (cached.keyboard == mKeyboard && cached.shifted == shifted) {
+                layer = mKeyLayers.remove(i);
+                break;
             }
+        }
+        if (layer != null && layer.bitmap.getWidth() == width && layer.bitmap.getHeight() == height &&
+                Arrays.equals(layer.signature, signature)) {
+            mKeyLayers.add(0, layer);
+            return layer;
+        }
 
-            Drawable keyBackground = mKeyBackground;
-            int columns = ((CustomKeyboard)mKeyboard).getMaxColumns();
-            if (mFeaturedKeyBackground != null && mFeaturedKeyCodes.contains(key.codes[0])) {
-                keyBackground = mFeaturedKeyBackground;
-            } else if ((i == columns && i == keyCount - 1) && mKeySingleBackground != null) {
-                keyBackground = mKeySingleBackground;
-            } else if ((i == 0 || i == columns) && mKeyCapStartBackground != null) {
-                keyBackground = mKeyCapStartBackground;
-            } else if ((i == keyCount  - 1 || i == columns - 1)&& mKeyCapEndBackground != null) {
-                keyBackground = mKeyCapEndBackground;
+        if (layer == null) {
+            layer = new KeyLayer();
+            if (mKeyLayers.size() >= MAX_CACHED_KEY_LAYERS) {
+                // Reuse the bitmap of the least recently used layer.
+                layer.bitmap = mKeyLayers.remove(mKeyLayers.size() - 1).bitmap;
             }
-            keyBackground.setState(drawableState);
+        }
+        if (layer.bitmap == null || layer.bitmap.getWidth() != width || layer.bitmap.getHeight() != height) {
+            if (layer.bitmap != null) {
+                layer.bitmap.recycle();
+            }
+            layer.bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+        layer.keyboard = mKeyboard;
+        layer.shifted = shifted;
+        layer.signature = signature;
+        drawKeyLayer(layer.bitmap);
+        mKeyLayers.add(0, layer);
+        return layer;
+    }
+
+    /**
+     * Everything that changes how the keys of the current keyboard look in their resting state,
+     * apart from the shift state.
+     */
+    private Object[] getKeysSignature() {
+        final Key[] keys = mKeys;
+        Object[] signature = new Object[keys.length * 4];
+        for (int i = 0; i < keys.length; i++) {
+            final Key key = keys[i];
+            signature[i * 4] = key.label == null ? null : key.label.toString();
+            signature[i * 4 + 1] = key.icon;
+            signature[i * 4 + 2] = key.on;
+            signature[i * 4 + 3] = ((CustomKeyboard)mKeyboard).isKeyEnabled(i);
+        }
+        return signature;
+    }
 
-            // Switch the character to uppercase if shift is pressed
-            String label = key.label == null ? null : adjustCase(key.label).toString();
+    private void drawKeyLayer(Bitmap bitmap) {
+        final Canvas canvas = new Canvas(bitmap);
+        final int kbdPaddingLeft = getPaddingLeft();
+        final int kbdPaddingTop = getPaddingTop();
+        final Key[] keys = mKeys;
 
-            final Rect bounds = keyBackground.getBounds();
-            if (key.width != bounds.right ||
-                    key.height != bounds.bottom) {
-                keyBackground.setBounds(0, 0, key.width, key.height);
-            }
+        canvas.drawColor(0x00000000, PorterDuff.Mode.CLEAR);
+        for (int i = 0; i < keys.length; i++) {
+            final Key key = keys[i];
             canvas.translate(key.x + kbdPaddingLeft, key.y + kbdPaddingTop);
-            keyBackground.draw(canvas);
+            drawKey(canvas, i, true);
+            canvas.translate(-key.x - kbdPaddingLeft, -key.y - kbdPaddingTop);
+        }
+    }
 
-            // Get the button state related padding
-            float statePadding = 0.0f;
-            if (stateHovered) {
-                statePadding = -mKeyboardHoveredPadding;
+    /**
+     * Draws a key at the origin of the canvas.
+     * @param aResting Whether to draw the key as if it was neither hovered nor pressed.
+     */
+    private void drawKey(Canvas canvas, int i, boolean aResting) {
+        final Paint paint = mPaint;
+        final Rect padding = mPadding;
+        final Key key = mKeys[i];
+        final int keyCount = mKeys.length;
+
+        boolean stateHovered = false;
+        boolean statePressed = false;
+        int[] drawableState;
 
-            } else if (statePressed) {
-                statePadding = mKeyboardPressedPadding;
+        if (((CustomKeyboard)mKeyboard).isKeyEnabled(i)) {
+            boolean pressed = key.pressed;
+            if (aResting) {
+                key.pressed = false;
+            }
+            drawableState = key.getCurrentDrawableState();
+            key.pressed = pressed;
+            if (!aResting && isKeyHovered(i) && !key.pressed) {
+                // Fork: implement hovered key
+                drawableState = KEY_STATE_HOVERED;
             }
 
-            int targetColor = mKeyTextColor;
-            if (stateHovered) {
-                targetColor = mForegroundColor;
-            } else if (statePressed) {
-                targetColor = mSelectedForegroundColor;
+            for (int state : drawableState) {
+                if (state == android.R.attr.state_hovered) {
+                    stateHovered = true;
+                } else if (state == android.R.attr.state_pressed) {
+                    statePressed = true;
+                }
             }
 
-            if (label != null) {
-                float descent;
+        } else {
+            drawableState = KEY_STATE_NORMAL;
+        }
 
-                // For characters, use large font. For labels like "Done", use small font.
-                if (label.length() > 1 && key.codes.length < 2) {
-                    paint.setTextSize(mLabelTextSize);
-                    paint.setTypeface(Typeface.DEFAULT_BOLD);
-                    descent = mLabelTextSize * 0.1f;
+        Drawable keyBackground = mKeyBackground;
+        int columns = ((CustomKeyboard)mKeyboard).getMaxColumns();
+        if (mFeaturedKeyBackground != null && mFeaturedKeyCodes.contains(key.codes[0])) {
+            keyBackground = mFeaturedKeyBackground;
+        } else if ((i == columns && i == keyCount - 1) && mKeySingleBackground != null) {
+            keyBackground = mKeySingleBackground;
+        } else if ((i == 0 || i == columns) && mKeyCapStartBackground != null) {
+            keyBackground = mKeyCapStartBackground;
+        } else if ((i == keyCount  - 1 || i == columns - 1)&& mKeyCapEndBackground != null) {
+            keyBackground = mKeyCapEndBackground;
+        }
+        keyBackground.setState(drawableState);
 
-                } else {
-                    paint.setTextSize(mKeyTextSize);
-                    paint.setTypeface(Typeface.DEFAULT);
-                    descent = paint.descent();
-                }
-                paint.setColor(targetColor);
-
-                // Draw a drop shadow for the text
-                paint.setShadowLayer(mShadowRadius, 0, 0, mShadowColor);
-
-                // Draw the text
-                canvas.drawText(label,
-                        (key.width - padding.left - padding.right) / 2.0f
-                                + padding.left  + statePadding,
-                        (key.height - padding.top - padding.bottom) / 2.0f
-                                + (paint.getTextSize() / 2)  - descent + padding.top  + statePadding,
-                        paint);
-                // Turn off drop shadow
-                paint.setShadowLayer(0, 0, 0, 0);
-
-            } else if (key.icon != null) {
-                final float drawableX = (key.width - padding.left - padding.right - key.icon.getIntrinsicWidth()) / 2.0f
-                        + padding.left + statePadding;
-                final float drawableY = (key.height - padding.top - padding.bottom - key.icon.getIntrinsicHeight()) / 2.0f
-                        + padding.top + statePadding;
-                canvas.translate(drawableX, drawableY);
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                    key.icon.setColorFilter(new BlendModeColorFilter(targetColor, BlendMode.MODULATE));
-                } else {
-                    key.icon.setColorFilter(targetColor, PorterDuff.Mode.MULTIPLY);
-                }
-                key.icon.setBounds(0, 0, key.icon.getIntrinsicWidth(), key.icon.getIntrinsicHeight());
-                key.icon.draw(canvas);
-                canvas.translate(-drawableX, -drawableY);
-            }
-            canvas.translate(-key.x - kbdPaddingLeft, -key.y - kbdPaddingTop);
+        // Switch the character to uppercase if shift is pressed
+        String label = key.label == null ? null : adjustCase(key.label).toString();
+
+        final Rect bounds = keyBackground.getBounds();
+        if (key.width != bounds.right ||
+                key.height != bounds.bottom) {
+            keyBackground.setBounds(0, 0, key.width, key.height);
         }
-        mInvalidatedKey = null;
-        // Overlay a dark rectangle to dim the keyboard
-        if (mMiniKeyboardOnScreen) {
-            paint.setColor((int) (mBackgroundDimAmount * 0xFF) << 24);
-            canvas.drawRect(0, 0, getWidth(), getHeight(), paint);
+        keyBackground.draw(canvas);
+
+        // Get the button state related padding
+        float statePadding = 0.0f;
+        if (stateHovered) {
+            statePadding = -mKeyboardHoveredPadding;
+
+        } else if (statePressed) {
+            statePadding = mKeyboardPressedPadding;
         }
 
-        if (DEBUG && mShowTouchPoints) {
-            paint.setAlpha(128);
-            paint.setColor(0xFFFF0000);
-            canvas.drawCircle(mStartX, mStartY, 3, paint);
-            canvas.drawLine(mStartX, mStartY, mLastX, mLastY, paint);
-            paint.setColor(0xFF0000FF);
-            canvas.drawCircle(mLastX, mLastY, 3, paint);
-            paint.setColor(0xFF00FF00);
-            canvas.drawCircle((mStartX + mLastX) / 2, (mStartY + mLastY) / 2, 2, paint);
+        int targetColor = mKeyTextColor;
+        if (stateHovered) {
+            targetColor = mForegroundColor;
+        } else if (statePressed) {
+            targetColor = mSelectedForegroundColor;
         }
 
-        mCanvas.restore();
-        mDrawPending = false;
-        mDirtyRect.setEmpty();
+        if (label != null) {
+            float descent;
+
+            // For characters, use large font. For labels like "Done", use small font.
+            if (label.length() > 1 && key.codes.length < 2) {
+                paint.setTextSize(mLabelTextSize);
+                paint.setTypeface(Typeface.DEFAULT_BOLD);
+                descent = mLabelTextSize * 0.1f;
+
+            } else {
+                paint.setTextSize(mKeyTextSize);
+                paint.setTypeface(Typeface.DEFAULT);
+                descent = paint.descent();
+            }
+            paint.setColor(targetColor);
+
+            // Draw a drop shadow for the text
+            paint.setShadowLayer(mShadowRadius, 0, 0, mShadowColor);
+
+            // Draw the text
+            canvas.drawText(label,
+                    (key.width - padding.left - padding.right) / 2.0f
+                            + padding.left  + statePadding,
+                    (key.height - padding.top - padding.bottom) / 2.0f
+                            + (paint.getTextSize() / 2)  - descent + padding.top  + statePadding,
+                    paint);
+            // Turn off drop shadow
+            paint.setShadowLayer(0, 0, 0, 0);
+
+        } else if (key.icon != null) {
+            final float drawableX = (key.width - padding.left - padding.right - key.icon.getIntrinsicWidth()) / 2.0f
+                    + padding.left + statePadding;
+            final float drawableY = (key.height - padding.top - padding.bottom - key.icon.getIntrinsicHeight()) / 2.0f
+                    + padding.top + statePadding;
+            canvas.translate(drawableX, drawableY);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                key.icon.setColorFilter(new BlendModeColorFilter(targetColor, BlendMode.MODULATE));
+            } else {
+                key.icon.setColorFilter(targetColor, PorterDuff.Mode.MULTIPLY);
+            }
+            key.icon.setBounds(0, 0, key.icon.getIntrinsicWidth(), key.icon.getIntrinsicHeight());
+            key.icon.draw(canvas);
+            canvas.translate(-drawableX, -drawableY);
+        }
+    }
+
+    private void clearKeyLayers() {
+        for (KeyLayer layer : mKeyLayers) {
+            layer.bitmap.recycle();
+        }
+        mKeyLayers.clear();
+        mKeyLayer = null;
     }
 
     /**
@@ -1148,14 +1251,13 @@ public class CustomKeyboardView extends View implements View.OnClickListener {
 
     /**
      * Requests a redraw of the entire keyboard. Calling {@link #invalidate} is not sufficient
-     * because the keyboard renders the keys to an off-screen buffer and an invalidate() only
-     * draws the cached buffer.
+     * because the keyboard renders the keys to an off-screen layer and an invalidate() only
+     * draws the cached layer. The layer is only rasterized again if the keys changed.
      * @see #invalidateKey(int)
      */
     public void invalidateAllKeys() {
         clearHover();
-        mDirtyRect.union(0, 0, getWidth(), getHeight());
-        mDrawPending = true;
+        mKeyLayer = null;
         invalidate();
     }
 
@@ -1172,11 +1274,8 @@ public class CustomKeyboardView extends View implements View.OnClickListener {
             return;
         }
         final Key key = mKeys[keyIndex];
-        mInvalidatedKey = key;
-        mDirtyRect.union(key.x + getPaddingLeft(), key.y + getPaddingTop(),
+        invalidate(key.x + getPaddingLeft(), key.y + getPaddingTop(),
                 key.x + key.width + getPaddingLeft(), key.y + key.height + getPaddingTop());
-        onBufferDraw();
-        invalidate();
     }
 
     private boolean openPopupIfRequired(MotionEvent me) {
@@ -1326,6 +1425,7 @@ public class CustomKeyboardView extends View implements View.OnClickListener {
         for (int value: keyCodes) {
             mFeaturedKeyCodes.add(value);
         }
+        clearKeyLayers();
     }
 
     private boolean onModifiedTouchEvent(MotionEvent me, boolean possiblePoly) {
@@ -1511,8 +1611,7 @@ public class CustomKeyboardView extends View implements View.OnClickListener {
         removeMessages();
 
         dismissPopupKeyboard();
-        mBuffer = null;
-        mCanvas = null;
+        clearKeyLayers();
         mMiniKeyboardCache.clear();
     }
 
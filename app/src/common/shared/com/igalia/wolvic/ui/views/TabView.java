@@ -53,9 +53,14 @@ public class TabView extends RelativeLayout implements WSession.ContentDelegate,
     protected int mMaxIconPadding;
     protected boolean mPressed;
     protected CompletableFuture<Bitmap> mBitmapFuture;
+    protected Bitmap mPreviewBitmap;
+    protected BitmapCache mBitmapCache;
+    protected int mPreviewWidth;
+    protected int mPreviewHeight;
     protected boolean mUsingPlaceholder;
     private boolean mSendTabEnabled;
     private static final int ICON_ANIMATION_DURATION = 100;
+    public static final int TABS_GRID_COLUMNS = 4;
 
     public interface Delegate {
         void onClose(TabView aSender);
@@ -121,6 +126,10 @@ public class TabView extends RelativeLayout implements WSession.ContentDelegate,
         mMinIconPadding = WidgetPlacement.pixelDimension(getContext(), R.dimen.tabs_icon_padding_min);
         mMaxIconPadding = WidgetPlacement.pixelDimension(getContext(), R.dimen.tabs_icon_padding_max);
 
+        // Thumbnails only need to cover one cell of the tabs grid.
+        mPreviewWidth = WidgetPlacement.pixelDimension(getContext(), R.dimen.tabs_width) / TABS_GRID_COLUMNS;
+        mPreviewHeight = WidgetPlacement.pixelDimension(getContext(), R.dimen.tab_view_height);
+
         this.setOnClickListener(mCardClickListener);
     }
 
@@ -151,13 +160,16 @@ public class TabView extends RelativeLayout implements WSession.ContentDelegate,
         mSession.addContentListener(this);
         mSession.addBitmapChangedListener(this);
         mShowAddTab = false;
-        mBitmapFuture = aBitmapCache.getBitmap(mSession.getId());
         mPreview.setImageResource(R.drawable.ic_icon_tabs_placeholder);
+        setPreviewBitmap(null);
+        mBitmapCache = aBitmapCache;
+        mBitmapFuture = aBitmapCache.getBitmap(mSession.getId(), mPreviewWidth, mPreviewHeight);
         mUsingPlaceholder = true;
         mBitmapFuture.thenAccept(bitmap -> {
             mBitmapFuture = null;
             if (bitmap != null) {
                 mPreview.setImageBitmap(bitmap);
+                setPreviewBitmap(bitmap);
                 mUsingPlaceholder = false;
                 updateState();
             }
@@ -185,6 +197,29 @@ public class TabView extends RelativeLayout implements WSession.ContentDelegate,
         return mSession;
     }
 
+    /**
+     * Stops displaying the current thumbnail so that its Bitmap can be reused by other tab views.
+     */
+    public void releasePreview() {
+        if (mBitmapFuture != null) {
+            mBitmapFuture.cancel(false);
+            mBitmapFuture = null;
+        }
+        if (mPreviewBitmap != null) {
+            mPreview.setImageResource(R.drawable.ic_icon_tabs_placeholder);
+            mUsingPlaceholder = true;
+            setPreviewBitmap(null);
+        }
+    }
+
+    private void setPreviewBitmap(@Nullable Bitmap aBitmap) {
+        // Must be called once the previous Bitmap is no longer set in the preview ImageView.
+        if (mPreviewBitmap != null && mPreviewBitmap != aBitmap && mBitmapCache != null) {
+            mBitmapCache.releaseBitmap(mPreviewBitmap);
+        }
+        mPreviewBitmap = aBitmap;
+    }
+
     public void setDelegate(Delegate aDelegate) {
         mDelegate = aDelegate;
     }
@@ -322,6 +357,7 @@ public class TabView extends RelativeLayout implements WSession.ContentDelegate,
             mPreview.setImageResource(R.drawable.ic_icon_tabs_placeholder);
             mUsingPlaceholder = true;
         }
+        setPreviewBitmap(aBitmap);
 
         updateState();
     }
@@ -43,6 +43,7 @@ import com.igalia.wolvic.browser.engine.Session;
 import com.igalia.wolvic.input.CustomKeyboard;
 import com.igalia.wolvic.speech.SpeechRecognizer;
 import com.igalia.wolvic.telemetry.TelemetryService;
+import com.igalia.wolvic.ui.keyboards.CandidatesWorker;
 import com.igalia.wolvic.ui.keyboards.ChinesePinyinKeyboard;
 import com.igalia.wolvic.ui.keyboards.ChineseZhuyinKeyboard;
 import com.igalia.wolvic.ui.keyboards.DanishKeyboard;
@@ -65,6 +66,7 @@ import com.igalia.wolvic.ui.views.AutoCompletionView;
 import com.igalia.wolvic.ui.views.CustomKeyboardView;
 import com.igalia.wolvic.ui.views.KeyboardSelectorView;
 import com.igalia.wolvic.ui.widgets.dialogs.VoiceSearchWidget;
+import com.igalia.wolvic.utils.DictionariesManager;
 import com.igalia.wolvic.utils.StringUtils;
 import com.igalia.wolvic.utils.ViewUtils;
 
@@ -74,7 +76,8 @@ import java.util.concurrent.CompletableFuture;
 
 
 public class KeyboardWidget extends UIWidget implements CustomKeyboardView.OnKeyboardActionListener, AutoCompletionView.Delegate,
-        WSession.TextInputDelegate, WidgetManagerDelegate.FocusChangeListener, VoiceSearchWidget.VoiceSearchDelegate, TextWatcher, WindowWidget.WindowListener {
+        WSession.TextInputDelegate, WidgetManagerDelegate.FocusChangeListener, VoiceSearchWidget.VoiceSearchDelegate, TextWatcher, WindowWidget.WindowListener,
+        DictionariesManager.DictionaryListener {
 
     private static int MAX_CHARS_PER_POPUP_LINE = 10;
 
@@ -98,11 +101,13 @@ public class KeyboardWidget extends UIWidget implements CustomKeyboardView.OnKey
     private EditorInfo mEditorInfo = new EditorInfo();
     private VoiceSearchWidget mVoiceSearchWidget;
     private AutoCompletionView mAutoCompletionView;
+    private final CandidatesWorker mCandidatesWorker = new CandidatesWorker();
     private KeyboardSelectorView mLanguageSelectorView;
     private KeyboardSelectorView mDomainSelectorView;
     private LinearLayout mControlButtons;
     private ImageView mAutocompletionLayer;
     private ImageView mKeyboardNumericLayer;
+    private TextView mDictionaryProgress;
 
     private int mKeyWidth;
     private int mKeyboardPopupTopMargin;
@@ -279,6 +284,8 @@ public class KeyboardWidget extends UIWidget implements CustomKeyboardView.OnKey
         mAutoCompletionView.setExtendedHeight((int)(mWidgetPlacement.height * mWidgetPlacement.density));
         mAutoCompletionView.setDelegate(this);
         mControlButtons = findViewById(R.id.controlButtons);
+        mDictionaryProgress = findViewById(R.id.dictionaryProgress);
+        mWidgetManager.getServicesProvider().getDictionariesManager().addListener(this);
 
         mDomainSelectorView = findViewById(R.id.domainSelectorView);
         mDomainSelectorView.setDelegate(this::handleDomainChange);
@@ -302,7 +309,6 @@ public class KeyboardWidget extends UIWidget implements CustomKeyboardView.OnKey
         mKeyboards.add(new DutchKeyboard(aContext));
         mKeyboards.add(new ThaiKeyboard(aContext));
 
-        mDefaultKeyboardSymbols = new CustomKeyboard(aContext.getApplicationContext(), R.xml.keyboard_symbols);
         mKeyboardNumeric = new CustomKeyboard(aContext.getApplicationContext(), R.xml.keyboard_numeric);
         mShiftOnIcon = getResources().getDrawable(R.drawable.ic_icon_keyboard_shift_on, getContext().getTheme());
         mShiftOffIcon = getResources().getDrawable(R.drawable.ic_icon_keyboard_shift_off, getContext().getTheme());
@@ -378,8 +384,10 @@ public class KeyboardWidget extends UIWidget implements CustomKeyboardView.OnKey
     public void releaseWidget() {
         detachFromWindow();
         mWidgetManager.removeFocusChangeListener(this);
+        mWidgetManager.getServicesProvider().getDictionariesManager().removeListener(this);
         mAutoCompletionView.setDelegate(null);
         mAttachedWindow = null;
+        mCandidatesWorker.shutdown();
         super.releaseWidget();
     }
 
@@ -752,7 +760,13 @@ public class KeyboardWidget extends UIWidget implements CustomKeyboardView.OnKey
 
     private CustomKeyboard getSymbolsKeyboard() {
         CustomKeyboard custom = mCurrentKeyboard.getSymbolsKeyboard();
-        return  custom != null ? custom : mDefaultKeyboardSymbols;
+        if (custom != null) {
+            return custom;
+        }
+        if (mDefaultKeyboardSymbols == null) {
+            mDefaultKeyboardSymbols = new CustomKeyboard(getContext().getApplicationContext(), R.xml.keyboard_symbols);
+        }
+        return mDefaultKeyboardSymbols;
     }
 
     private void cleanComposingText() {
@@ -866,9 +880,10 @@ public class KeyboardWidget extends UIWidget implements CustomKeyboardView.OnKey
     }
 
     private void handleEmojiInput() {
-        final KeyboardInterface.CandidatesResult candidates = mCurrentKeyboard.getEmojiCandidates(mComposingText);
-        setAutoCompletionVisible(candidates != null && candidates.words.size() > 0);
-        mAutoCompletionView.setItems(candidates != null ? candidates.words : null);
+        mCandidatesWorker.request(mCurrentKeyboard, mComposingText, true, this::postUICommand, candidates -> {
+            setAutoCompletionVisible(candidates != null && candidates.words.size() > 0);
+            mAutoCompletionView.setItems(candidates != null ? candidates.words : null);
+        });
     }
 
     private void handleDomain() {
@@ -953,6 +968,8 @@ public class KeyboardWidget extends UIWidget implements CustomKeyboardView.OnKey
         cleanComposingText();
 
         mCurrentKeyboard = aKeyboard;
+        // Shown again on the next progress update if the new language is being installed.
+        mDictionaryProgress.setVisibility(View.GONE);
         updateDictionary();
 
         if (remember == Remember.YES) {
@@ -960,6 +977,7 @@ public class KeyboardWidget extends UIWidget implements CustomKeyboardView.OnKey
         }
 
         mKeyboardView.setKeyboard(mCurrentKeyboard.getAlphabeticKeyboard());
+        mCandidatesWorker.warmUp(mCurrentKeyboard);
         updateSpaceBarLanguageLabel();
         disableShift(getSymbolsKeyboard());
         mIsCapsLock = false;
@@ -1194,14 +1212,14 @@ public class KeyboardWidget extends UIWidget implements CustomKeyboardView.OnKey
 
     private void updateCandidates(ResetComposingText resetComposingText) {
         if (mInputConnection == null || !mCurrentKeyboard.supportsAutoCompletion()) {
+            mCandidatesWorker.cancel();
             setAutoCompletionVisible(false);
             updateSpecialKeyLabels();
             return;
         }
 
         if (mCurrentKeyboard.usesComposingText()) {
-            postInputCommand(() -> {
-                final KeyboardInterface.CandidatesResult candidates = mCurrentKeyboard.getCandidates(mComposingText);
+            mCandidatesWorker.request(mCurrentKeyboard, mComposingText, false, this::postInputCommand, candidates -> {
                 postUICommand(() -> {
                     setAutoCompletionVisible(candidates != null && candidates.words.size() > 0);
                     mAutoCompletionView.setItems(candidates != null ? candidates.words : null);
@@ -1218,11 +1236,11 @@ public class KeyboardWidget extends UIWidget implements CustomKeyboardView.OnKey
             });
         } else {
             final InputConnection connection = mInputConnection;
+            final KeyboardInterface keyboard = mCurrentKeyboard;
             postInputCommand(() -> {
                 final String fullText = connection.getExtractedText(new ExtractedTextRequest(),0).text.toString();
                 final String beforeText = connection.getTextBeforeCursor(fullText.length(),0).toString();
-                postUICommand(() -> {
-                    final KeyboardInterface.CandidatesResult candidates = mCurrentKeyboard.getCandidates(beforeText);
+                mCandidatesWorker.request(keyboard, beforeText, false, this::postUICommand, candidates -> {
                     setAutoCompletionVisible(candidates != null && candidates.words.size() > 0);
                     mAutoCompletionView.setItems(candidates != null ? candidates.words : null);
                 });
@@ -1400,6 +1418,31 @@ public class KeyboardWidget extends UIWidget implements CustomKeyboardView.OnKey
         });
     }
 
+    // DictionaryListener
+
+    @Override
+    public void onDictionaryInstallProgress(@NonNull String lang, double progress) {
+        if (!lang.equals(mCurrentKeyboard.getLocale().toString())) {
+            return;
+        }
+        mDictionaryProgress.setText(getContext().getString(R.string.keyboard_dictionary_install_progress, (int) (progress * 100)));
+        mDictionaryProgress.setVisibility(View.VISIBLE);
+    }
+
+    @Override
+    public void onDictionaryInstalled(@NonNull String lang) {
+        if (lang.equals(mCurrentKeyboard.getLocale().toString())) {
+            mDictionaryProgress.setVisibility(View.GONE);
+        }
+    }
+
+    @Override
+    public void onDictionaryInstallError(@NonNull String lang, @NonNull String error) {
+        if (lang.equals(mCurrentKeyboard.getLocale().toString())) {
+            mDictionaryProgress.setVisibility(View.GONE);
+        }
+    }
+
     // FocusChangeListener
 
     @Override
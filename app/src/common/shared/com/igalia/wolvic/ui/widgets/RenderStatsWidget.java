@@ -0,0 +1,88 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package com.igalia.wolvic.ui.widgets;
+
+import android.content.Context;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+
+import com.igalia.wolvic.R;
+
+import java.util.List;
+
+/**
+ * Developer overlay, next to the tray, with the {@link UIRenderStats} of every widget. It doesn't
+ * take the focus nor handle the back button, so it can stay visible while using the browser.
+ */
+public class RenderStatsWidget extends UIWidget {
+
+    private static final long REFRESH_INTERVAL_MS = 1000;
+
+    private TextView mText;
+    private final Runnable mRefreshRunnable = this::refresh;
+
+    public RenderStatsWidget(@NonNull Context aContext) {
+        super(aContext);
+
+        inflate(aContext, R.layout.render_stats, this);
+        mText = findViewById(R.id.renderStatsText);
+        // The text only changes once per refresh, so the overlay barely adds to the stats it shows.
+        setMaxRedrawRate(2);
+    }
+
+    @Override
+    protected void initializeWidgetPlacement(WidgetPlacement aPlacement) {
+        Context context = getContext();
+        aPlacement.visible = false;
+        aPlacement.width = WidgetPlacement.dpDimension(context, R.dimen.render_stats_width);
+        aPlacement.height = WidgetPlacement.dpDimension(context, R.dimen.render_stats_height);
+        aPlacement.parentAnchorX = 0.0f;
+        aPlacement.parentAnchorY = 1.0f;
+        aPlacement.anchorX = 1.0f;
+        aPlacement.anchorY = 0.0f;
+        aPlacement.translationZ = WidgetPlacement.unitFromMeters(context, R.dimen.tooltip_z_distance);
+    }
+
+    public void attachToTray(@NonNull TrayWidget aTray) {
+        mWidgetPlacement.parentHandle = aTray.getHandle();
+    }
+
+    @Override
+    public void show(@ShowFlags int aShowFlags) {
+        if (!mWidgetPlacement.visible) {
+            mWidgetPlacement.visible = true;
+            mWidgetManager.updateWidget(this);
+        }
+        refresh();
+    }
+
+    @Override
+    public void hide(@HideFlags int aHideFlags) {
+        removeCallbacks(mRefreshRunnable);
+        if (mWidgetPlacement.visible && mWidgetManager != null) {
+            mWidgetPlacement.visible = false;
+            mWidgetManager.updateWidget(this);
+        }
+    }
+
+    @Override
+    public void releaseWidget() {
+        removeCallbacks(mRefreshRunnable);
+        super.releaseWidget();
+    }
+
+    private void refresh() {
+        removeCallbacks(mRefreshRunnable);
+        if (!mWidgetPlacement.visible) {
+            return;
+        }
+        List<String> lines = UIRenderStats.getSummary();
+        lines.add("Render commands: " + mWidgetManager.getRenderCommandStats());
+        mText.setText(String.join("\n", lines));
+        postDelayed(mRefreshRunnable, REFRESH_INTERVAL_MS);
+    }
+}
@@ -10,6 +10,7 @@ import android.webkit.URLUtil;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -90,7 +91,7 @@ public class TabsWidget extends UIDialog {
 
         mTabsList = findViewById(R.id.tabsRecyclerView);
         mTabsList.setHasFixedSize(true);
-        final int columns = 4;
+        final int columns = TabView.TABS_GRID_COLUMNS;
         mLayoutManager = new GridLayoutManager(getContext(), columns);
         mTabsList.setLayoutManager(mLayoutManager);
         mTabsList.addItemDecoration(new GridSpacingItemDecoration(getContext(), columns));
@@ -183,6 +184,7 @@ public class TabsWidget extends UIDialog {
     @Override
     public void hide(@HideFlags int aHideFlags) {
         super.hide(aHideFlags);
+        SessionStore.get().getCaptureScheduler().clearVisibleSessions();
         if (mRenderer != null) {
             mRenderer.clearSurface();
         }
@@ -233,11 +235,21 @@ public class TabsWidget extends UIDialog {
             return new MyViewHolder(view);
         }
 
+        @Override
+        public void onViewRecycled(@NonNull MyViewHolder holder) {
+            super.onViewRecycled(holder);
+            if (holder.tabView.getSession() != null) {
+                SessionStore.get().getCaptureScheduler().setSessionVisible(holder.tabView.getSession(), false);
+            }
+            holder.tabView.releasePreview();
+        }
+
         @Override
         public void onBindViewHolder(MyViewHolder holder, int position) {
             if (position > 0) {
                 Session session = mTabs.get(position - 1);
                 holder.tabView.attachToSession(session, mBitmapCache);
+                SessionStore.get().getCaptureScheduler().setSessionVisible(session, true);
             } else {
                 holder.tabView.setAddTabMode(true);
             }
@@ -0,0 +1,180 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package com.igalia.wolvic.ui.widgets;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+
+/**
+ * Decides when the {@link UIWidget}s can redraw their textures. A widget invalidated by Android is
+ * only redrawn right away if it can be seen and it didn't redraw too recently, otherwise the
+ * redraw is deferred. Deferred redraws are retried when the native side starts a new frame, so
+ * they follow the XR frame rate instead of the Android display one.
+ *
+ * A widget can't be seen when its placement is not visible, when it is not part of the immersive
+ * scene while WebXR is presenting, or when the native side reports that it is behind the user.
+ * Widgets that have never been drawn are never deferred, so they can be composited.
+ *
+ * All the methods must be called from the UI thread, except {@link #onNativeFrame(int[])}.
+ */
+public class UIRedrawScheduler {
+
+    public interface Delegate {
+        /**
+         * Requests a call to {@link #onNativeFrame(int[])} when the next native frame starts.
+         */
+        void requestFrameCallback();
+    }
+
+    // Upper limit of redraws per second of a widget that doesn't set its own.
+    public static final int DEFAULT_MAX_REDRAW_RATE = 90;
+    // Deferred redraws are retried after this time when native frames are not running.
+    private static final long FRAME_TIMEOUT_MS = 100;
+
+    private final Delegate mDelegate;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final LinkedHashSet<UIWidget> mDeferred = new LinkedHashSet<>();
+    private final ArrayList<UIWidget> mReady = new ArrayList<>();
+    private final HashSet<Integer> mOutOfView = new HashSet<>();
+    private boolean mNativeFrameRequested;
+    private boolean mTimeoutScheduled;
+    private boolean mImmersive;
+    private final Runnable mFrameTimeout = () -> {
+        mTimeoutScheduled = false;
+        processDeferred();
+    };
+
+    public UIRedrawScheduler(@NonNull Delegate aDelegate) {
+        mDelegate = aDelegate;
+    }
+
+    /**
+     * Called when a widget is about to draw its texture.
+     * @return true if the widget can draw now, false if the redraw has been deferred.
+     */
+    boolean shouldDraw(@NonNull UIWidget aWidget) {
+        if (aWidget.mLastRedrawNs == 0) {
+            return true;
+        }
+        if (canBeSeen(aWidget) && !isRateLimited(aWidget, System.nanoTime())) {
+            return true;
+        }
+        mDeferred.add(aWidget);
+        scheduleFrame();
+        return false;
+    }
+
+    void onDrawn(@NonNull UIWidget aWidget) {
+        aWidget.mLastRedrawNs = System.nanoTime();
+        mDeferred.remove(aWidget);
+    }
+
+    /**
+     * Called when the placement of a widget changes, it may have become visible.
+     */
+    public void onWidgetUpdated(@NonNull Widget aWidget) {
+        if (mDeferred.contains(aWidget)) {
+            scheduleFrame();
+        }
+    }
+
+    public void removeWidget(@NonNull Widget aWidget) {
+        mDeferred.remove(aWidget);
+    }
+
+    public void setImmersive(boolean aImmersive) {
+        mImmersive = aImmersive;
+        if (!aImmersive && !mDeferred.isEmpty()) {
+            scheduleFrame();
+        }
+    }
+
+    /**
+     * Called from the render thread when a requested native frame starts.
+     * @param aOutOfViewHandles Handles of the visible widgets that are behind the user.
+     */
+    public void onNativeFrame(@Nullable int[] aOutOfViewHandles) {
+        mHandler.post(() -> {
+            mNativeFrameRequested = false;
+            mOutOfView.clear();
+            if (aOutOfViewHandles != null) {
+                for (int handle : aOutOfViewHandles) {
+                    mOutOfView.add(handle);
+                }
+            }
+            processDeferred();
+        });
+    }
+
+    private boolean canBeSeen(@NonNull UIWidget aWidget) {
+        WidgetPlacement placement = aWidget.getPlacement();
+        if (!placement.visible) {
+            return false;
+        }
+        if (mImmersive && placement.scene != WidgetPlacement.SCENE_WEBXR_INTERSTITIAL) {
+            return false;
+        }
+        return !mOutOfView.contains(aWidget.getHandle());
+    }
+
+    private boolean isRateLimited(@NonNull UIWidget aWidget, long aNow) {
+        int rate = aWidget.getMaxRedrawRate() > 0 ? aWidget.getMaxRedrawRate() : DEFAULT_MAX_REDRAW_RATE;
+        return aNow - aWidget.mLastRedrawNs < 1_000_000_000L / rate;
+    }
+
+    private void scheduleFrame() {
+        if (!mNativeFrameRequested) {
+            mNativeFrameRequested = true;
+            mDelegate.requestFrameCallback();
+        }
+        if (!mTimeoutScheduled) {
+            mTimeoutScheduled = true;
+            mHandler.postDelayed(mFrameTimeout, FRAME_TIMEOUT_MS);
+        }
+    }
+
+    private void processDeferred() {
+        if (mTimeoutScheduled) {
+            mTimeoutScheduled = false;
+            mHandler.removeCallbacks(mFrameTimeout);
+        }
+
+        boolean needsFrame = false;
+        long now = System.nanoTime();
+        for (UIWidget widget : mDeferred) {
+            if (widget.isReleased()) {
+                mReady.add(widget);
+            } else if (!canBeSeen(widget)) {
+                // Check again in the next frame in case the user turned around. Hidden widgets
+                // wait for onWidgetUpdated() and immersive ones for setImmersive().
+                needsFrame |= mOutOfView.contains(widget.getHandle());
+            } else if (isRateLimited(widget, now)) {
+                needsFrame = true;
+            } else {
+                mReady.add(widget);
+            }
+        }
+
+        for (UIWidget widget : mReady) {
+            mDeferred.remove(widget);
+            if (!widget.isReleased()) {
+                widget.redrawTexture();
+            }
+        }
+        mReady.clear();
+
+        if (needsFrame) {
+            scheduleFrame();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/* -*- Mode: Java; c-basic-offset: 4; tab-width: 4; indent-tabs-mode: nil; -*-
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package com.igalia.wolvic.ui.widgets;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+
+/**
+ * Texture redraw statistics of the {@link UIWidget}s, per widget instance. For every redraw two
+ * times are recorded:
+ * <ul>
+ *     <li>Lock: time spent locking the surfaces and posting them back to the compositor.</li>
+ *     <li>Draw: time spent drawing the view hierarchy into the surfaces.</li>
+ * </ul>
+ * Along with the size of the texture and the number of redraws in the last second.
+ */
+public class UIRenderStats {
+
+    private static final long WINDOW_NS = 1_000_000_000L;
+
+    public static class Entry {
+        private final String mName;
+        private int mTextureWidth;
+        private int mTextureHeight;
+        private long mCount;
+        private long mTotalLockNs;
+        private long mMaxLockNs;
+        private long mTotalDrawNs;
+        private long mMaxDrawNs;
+        // Current one second window.
+        private long mWindowStartNs;
+        private int mWindowCount;
+        private long mWindowLockNs;
+        private long mWindowDrawNs;
+        // Last complete window.
+        private int mLastCount;
+        private long mLastLockNs;
+        private long mLastDrawNs;
+
+        Entry(@NonNull String aName) {
+            mName = aName;
+        }
+
+        void add(int aTextureWidth, int aTextureHeight, long aLockNs, long aDrawNs, long aNow) {
+            rollWindow(aNow);
+            mTextureWidth = aTextureWidth;
+            mTextureHeight = aTextureHeight;
+            mCount++;
+            mTotalLockNs += aLockNs;
+            mMaxLockNs = Math.max(mMaxLockNs, aLockNs);
+            mTotalDrawNs += aDrawNs;
+            mMaxDrawNs = Math.max(mMaxDrawNs, aDrawNs);
+            mWindowCount++;
+            mWindowLockNs += aLockNs;
+            mWindowDrawNs += aDrawNs;
+        }
+
+        private void rollWindow(long aNow) {
+            if (aNow - mWindowStartNs < WINDOW_NS) {
+                return;
+            }
+            // A widget that stopped redrawing more than a window ago has no recent redraws.
+            boolean consecutive = aNow - mWindowStartNs < 2 * WINDOW_NS;
+            mLastCount = consecutive ? mWindowCount : 0;
+            mLastLockNs = consecutive ? mWindowLockNs : 0;
+            mLastDrawNs = consecutive ? mWindowDrawNs : 0;
+            mWindowStartNs = aNow;
+            mWindowCount = 0;
+            mWindowLockNs = 0;
+            mWindowDrawNs = 0;
+        }
+
+        @NonNull
+        String summary(long aNow) {
+            rollWindow(aNow);
+            return String.format(Locale.US, "%s %dx%d: %d/s lock %.2fms draw %.2fms",
+                    mName, mTextureWidth, mTextureHeight, mLastCount,
+                    mLastCount > 0 ? mLastLockNs / (mLastCount * 1e6f) : 0f,
+                    mLastCount > 0 ? mLastDrawNs / (mLastCount * 1e6f) : 0f);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s texture=%dx%d redraws=%d lock mean=%.2fms max=%.2fms draw mean=%.2fms max=%.2fms",
+                    mName, mTextureWidth, mTextureHeight, mCount,
+                    mCount > 0 ? mTotalLockNs / (mCount * 1e6f) : 0f, mMaxLockNs / 1e6f,
+                    mCount > 0 ? mTotalDrawNs / (mCount * 1e6f) : 0f, mMaxDrawNs / 1e6f);
+        }
+    }
+
+    private static final TreeMap<String, Entry> sStats = new TreeMap<>();
+
+    /**
+     * Returns the entry where the redraws of the widget are recorded.
+     */
+    @NonNull
+    static Entry obtain(@NonNull UIWidget aWidget) {
+        String name = aWidget.getClass().getSimpleName() + "#" + aWidget.getHandle();
+        synchronized (sStats) {
+            Entry entry = sStats.get(name);
+            if (entry == null) {
+                entry = new Entry(name);
+                sStats.put(name, entry);
+            }
+            return entry;
+        }
+    }
+
+    static void remove(@NonNull Entry aEntry) {
+        synchronized (sStats) {
+            sStats.remove(aEntry.mName);
+        }
+    }
+
+    /**
+     * Records a redraw. The times come from {@link System#nanoTime()}.
+     */
+    static void record(@NonNull Entry aEntry, int aTextureWidth, int aTextureHeight, long aLockNs, long aDrawNs) {
+        long now = System.nanoTime();
+        synchronized (sStats) {
+            aEntry.add(aTextureWidth, aTextureHeight, aLockNs, aDrawNs, now);
+        }
+    }
+
+    /**
+     * Returns one line per widget with the redraws, and the mean lock and draw times, of the last
+     * second.
+     */
+    @NonNull
+    public static List<String> getSummary() {
+        List<String> result = new ArrayList<>();
+        long now = System.nanoTime();
+        synchronized (sStats) {
+            sStats.forEach((name, entry) -> result.add(entry.summary(now)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the totals of every widget since it was created, in a human readable form.
+     */
+    @NonNull
+    public static String dump() {
+        StringBuilder builder = new StringBuilder();
+        synchronized (sStats) {
+            sStats.forEach((name, entry) -> builder.append(entry).append('\n'));
+        }
+        return builder.toString();
+    }
+}
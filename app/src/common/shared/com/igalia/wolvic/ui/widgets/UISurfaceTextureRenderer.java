@@ -9,6 +9,7 @@ package com.igalia.wolvic.ui.widgets;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.PorterDuff;
+import android.graphics.Rect;
 import android.graphics.SurfaceTexture;
 import android.view.Surface;
 
@@ -21,6 +22,8 @@ public class UISurfaceTextureRenderer {
     private Surface mSurface;
     private Canvas mSurfaceCanvas;
     private boolean mIsHardwareAccelerationEnabled;
+    // Set until the whole surface has been drawn, the first time or after a resize.
+    private boolean mNeedsFullDraw = true;
     private static boolean sUseHardwareAcceleration;
     private static boolean sRenderActive = true;
 
@@ -54,6 +57,7 @@ public class UISurfaceTextureRenderer {
         }
         mTextureWidth = aWidth;
         mTextureHeight = aHeight;
+        mNeedsFullDraw = true;
         if (mSurfaceTexture != null) {
             mSurfaceTexture.setDefaultBufferSize(aWidth, aHeight);
         }
@@ -75,18 +79,37 @@ public class UISurfaceTextureRenderer {
 
     @Nullable
     Canvas drawBegin() {
+        return drawBegin(null);
+    }
+
+    /**
+     * Locks the surface to draw the given region, in texture coordinates. Only that region is
+     * cleared and the rest of the surface keeps the contents of the previous frame. The rect is
+     * updated with the region actually locked: the whole surface the first time, after a resize,
+     * or when using a hardware canvas, which can't lock part of the surface.
+     * @param aDirty Region to draw, or null to draw the whole surface.
+     */
+    @Nullable
+    Canvas drawBegin(@Nullable Rect aDirty) {
         mSurfaceCanvas = null;
         if (!sRenderActive) {
+            mNeedsFullDraw = true;
             return null;
         }
         if (mSurface != null) {
             try {
-                if (sUseHardwareAcceleration && mIsHardwareAccelerationEnabled) {
+                boolean hardware = sUseHardwareAcceleration && mIsHardwareAccelerationEnabled;
+                if (aDirty != null && (hardware || mNeedsFullDraw)) {
+                    aDirty.set(0, 0, mTextureWidth, mTextureHeight);
+                }
+                if (hardware) {
                     mSurfaceCanvas = mSurface.lockHardwareCanvas();
                 } else {
-                    mSurfaceCanvas = mSurface.lockCanvas(null);
+                    // The canvas is clipped to the dirty region, so only that region is cleared.
+                    mSurfaceCanvas = mSurface.lockCanvas(aDirty);
                 }
                 mSurfaceCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+                mNeedsFullDraw = false;
             }
             catch (Exception e){
                 e.printStackTrace();
@@ -107,6 +130,29 @@ public class UISurfaceTextureRenderer {
         drawEnd();
     }
 
+    /**
+     * Whether the next draw must repaint the whole surface because its contents are not valid.
+     */
+    boolean needsFullDraw() {
+        return mNeedsFullDraw;
+    }
+
+    /**
+     * Whether the next draw with a dirty region locks and clears only that region. Otherwise the
+     * whole surface is cleared and must be repainted.
+     */
+    boolean drawsDirtyRegionOnly() {
+        return !mNeedsFullDraw && !(sUseHardwareAcceleration && mIsHardwareAccelerationEnabled);
+    }
+
+    /**
+     * Makes the next draw repaint the whole surface, for example when the view changed while it
+     * was not being drawn to this surface.
+     */
+    void requestFullDraw() {
+        mNeedsFullDraw = true;
+    }
+
     int width() {
         return mTextureWidth;
     }
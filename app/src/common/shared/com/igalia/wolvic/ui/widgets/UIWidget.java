@@ -8,8 +8,12 @@ package com.igalia.wolvic.ui.widgets;
 import android.content.Context;
 import android.content.res.Configuration;
 import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Picture;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.SurfaceTexture;
+import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.MotionEvent;
@@ -27,6 +31,7 @@ import com.igalia.wolvic.utils.SystemUtils;
 
 import java.lang.reflect.Constructor;
 import java.util.HashMap;
+import java.util.WeakHashMap;
 
 public abstract class UIWidget extends FrameLayout implements Widget {
 
@@ -53,6 +58,23 @@ public abstract class UIWidget extends FrameLayout implements Widget {
     protected boolean mResizing = false;
     protected boolean mReleased = false;
     private Boolean mIsHardwareAccelerationEnabled;
+    // Area of the widget invalidated since the last draw, in view coordinates.
+    private final Rect mDirtyRect = new Rect();
+    private boolean mFullRedraw = true;
+    private final Rect mTextureDirtyRect = new Rect();
+    private final Rect mDescendantDirtyRect = new Rect();
+    private final Rect mPreviousTargetRect = new Rect();
+    private final RectF mTargetRect = new RectF();
+    // Where each invalidated descendant was when it was last invalidated.
+    private final WeakHashMap<View, RectF> mTargetBounds = new WeakHashMap<>();
+    // When the texture was last drawn, from System.nanoTime(), or 0 if it hasn't been drawn yet.
+    long mLastRedrawNs;
+    private int mMaxRedrawRate;
+    // Drawing of the view shared by the renderer and the proxy renderer.
+    private final Picture mSharedDrawing = new Picture();
+    private UIRenderStats.Entry mRenderStats;
+    // Time spent locking and posting the surfaces in the current redraw.
+    private long mSurfaceNs;
 
     public UIWidget(Context aContext) {
         super(aContext);
@@ -121,12 +143,14 @@ public abstract class UIWidget extends FrameLayout implements Widget {
                 mProxyRenderer.release();
             }
             mProxyRenderer = new UISurfaceTextureRenderer(aTexture, aWidth, aHeight);
+            mLastRedrawNs = 0;
             postInvalidate();
             return;
         } else {
             mFirstDrawCallback = aFirstDrawCallback;
         }
         mTexture = aTexture;
+        mLastRedrawNs = 0;
         if (mRenderer != null) {
             mRenderer.release();
             mRenderer = null;
@@ -143,6 +167,7 @@ public abstract class UIWidget extends FrameLayout implements Widget {
     @Override
     public void setSurface(Surface aSurface, final int aWidth, final int aHeight, Runnable aFirstDrawCallback) {
         mFirstDrawCallback = aFirstDrawCallback;
+        mLastRedrawNs = 0;
         if (mRenderer != null) {
             mRenderer.release();
             mRenderer = null;
@@ -221,6 +246,10 @@ public abstract class UIWidget extends FrameLayout implements Widget {
     @Override
     public void releaseWidget() {
         releaseRenderer();
+        if (mRenderStats != null) {
+            UIRenderStats.remove(mRenderStats);
+            mRenderStats = null;
+        }
         mWidgetManager = null;
         mReleased = true;
     }
@@ -250,9 +279,47 @@ public abstract class UIWidget extends FrameLayout implements Widget {
             super.draw(aCanvas);
             return;
         }
-        draw(aCanvas, mRenderer);
-        if (mProxyRenderer != null && mWidgetPlacement.proxifyLayer) {
-            draw(aCanvas, mProxyRenderer);
+        if (!mResizing) {
+            UIRedrawScheduler scheduler = mWidgetManager != null ? mWidgetManager.getRedrawScheduler() : null;
+            if (scheduler != null && !scheduler.shouldDraw(this)) {
+                return;
+            }
+            long drawStart = System.nanoTime();
+            mSurfaceNs = 0;
+            // Without a damaged area the cause of the draw is unknown, so repaint everything.
+            boolean partial = !mFullRedraw && !mDirtyRect.isEmpty();
+            if (mProxyRenderer != null && mWidgetPlacement.proxifyLayer) {
+                // Draw the view hierarchy once and replay the recording in both surfaces.
+                Canvas recordingCanvas = mSharedDrawing.beginRecording(aCanvas.getWidth(), aCanvas.getHeight());
+                if (partial && mRenderer.drawsDirtyRegionOnly() && mProxyRenderer.drawsDirtyRegionOnly()) {
+                    // Only the damaged area of the surfaces is repainted. The margin covers the
+                    // rounding out of the area done when mapping it to the textures. Hardware
+                    // canvases clear the whole surface, so they need the whole view recorded.
+                    int textureWidth = Math.max(1, Math.min(mRenderer.width(), mProxyRenderer.width()));
+                    int margin = (int) Math.ceil(aCanvas.getWidth() / (float) textureWidth) + 1;
+                    recordingCanvas.clipRect(mDirtyRect.left - margin, mDirtyRect.top - margin,
+                            mDirtyRect.right + margin, mDirtyRect.bottom + margin);
+                }
+                super.draw(recordingCanvas);
+                mSharedDrawing.endRecording();
+                draw(aCanvas, mRenderer, partial, mSharedDrawing);
+                draw(aCanvas, mProxyRenderer, partial, mSharedDrawing);
+            } else {
+                draw(aCanvas, mRenderer, partial, null);
+                if (mProxyRenderer != null) {
+                    mProxyRenderer.requestFullDraw();
+                }
+            }
+            mDirtyRect.setEmpty();
+            mFullRedraw = false;
+            if (mRenderStats == null) {
+                mRenderStats = UIRenderStats.obtain(this);
+            }
+            UIRenderStats.record(mRenderStats, mRenderer.width(), mRenderer.height(),
+                    mSurfaceNs, System.nanoTime() - drawStart - mSurfaceNs);
+            if (scheduler != null) {
+                scheduler.onDrawn(this);
+            }
         }
 
         if (mFirstDrawCallback != null) {
@@ -261,27 +328,99 @@ public abstract class UIWidget extends FrameLayout implements Widget {
         }
     }
 
-    private void draw(Canvas aCanvas, UISurfaceTextureRenderer aRenderer) {
-        if (mResizing) {
-            return;
+    private void draw(Canvas aCanvas, UISurfaceTextureRenderer aRenderer, boolean aPartial, Picture aDrawing) {
+        Rect dirty = null;
+        if (aPartial) {
+            // Map the damaged area to the texture, rounding out to cover antialiased edges.
+            float scale = aRenderer.width() / (float) aCanvas.getWidth();
+            dirty = mTextureDirtyRect;
+            dirty.set((int) Math.floor(mDirtyRect.left * scale) - 1,
+                    (int) Math.floor(mDirtyRect.top * scale) - 1,
+                    (int) Math.ceil(mDirtyRect.right * scale) + 1,
+                    (int) Math.ceil(mDirtyRect.bottom * scale) + 1);
+            if (!dirty.intersect(0, 0, aRenderer.width(), aRenderer.height()) && !aRenderer.needsFullDraw()) {
+                return;
+            }
         }
-        Canvas textureCanvas = aRenderer.drawBegin();
+        long lockStart = System.nanoTime();
+        Canvas textureCanvas = aRenderer.drawBegin(dirty);
+        mSurfaceNs += System.nanoTime() - lockStart;
         if(textureCanvas != null) {
             // set the proper scale
             float xScale = textureCanvas.getWidth() / (float)aCanvas.getWidth();
             textureCanvas.scale(xScale, xScale);
             // draw the view to SurfaceTexture
-            super.draw(textureCanvas);
+            if (aDrawing != null) {
+                textureCanvas.drawPicture(aDrawing);
+            } else {
+                super.draw(textureCanvas);
+            }
         }
+        long unlockStart = System.nanoTime();
         aRenderer.drawEnd();
+        mSurfaceNs += System.nanoTime() - unlockStart;
+    }
+
+    /**
+     * Draws the texture again with the area damaged so far, used to run deferred redraws.
+     */
+    void redrawTexture() {
+        super.invalidate();
+    }
+
+    /**
+     * Limits how many times per second the texture can be redrawn, or 0 to use
+     * {@link UIRedrawScheduler#DEFAULT_MAX_REDRAW_RATE}.
+     */
+    public void setMaxRedrawRate(int aRedrawsPerSecond) {
+        mMaxRedrawRate = aRedrawsPerSecond;
+    }
+
+    public int getMaxRedrawRate() {
+        return mMaxRedrawRate;
+    }
+
+    @Override
+    public void invalidate() {
+        mFullRedraw = true;
+        super.invalidate();
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void invalidate(int l, int t, int r, int b) {
+        mDirtyRect.union(l, t, r, b);
+        super.invalidate(l, t, r, b);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void invalidate(Rect aDirty) {
+        mDirtyRect.union(aDirty);
+        super.invalidate(aDirty);
+    }
+
+    @Override
+    public void setBackground(Drawable aBackground) {
+        // The internal invalidation done by the framework doesn't go through invalidate().
+        mFullRedraw = true;
+        super.setBackground(aBackground);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mFullRedraw = true;
     }
 
     @Override
     public void onDescendantInvalidated (View child, View target) {
         super.onDescendantInvalidated(child, target);
         if (mRenderer != null) {
-            // TODO: transform rect and use invalidate(dirty)
-            postInvalidate();
+            Rect dirty = mDescendantDirtyRect;
+            if (getDescendantDirtyRect(target, dirty)) {
+                postInvalidate(dirty.left, dirty.top, dirty.right, dirty.bottom);
+            }
         }
     }
 
@@ -290,13 +429,53 @@ public abstract class UIWidget extends FrameLayout implements Widget {
     @Override
     public ViewParent invalidateChildInParent(int[] aLocation, Rect aDirty) {
         ViewParent parent =  super.invalidateChildInParent(aLocation, aDirty);
-        if (parent != null && mRenderer != null) {
-            // TODO: transform rect and use invalidate(dirty)
-            postInvalidate();
+        // The dirty rect has been mapped to the coordinates of this view.
+        if (parent != null && mRenderer != null && !aDirty.isEmpty()) {
+            postInvalidate(aDirty.left, aDirty.top, aDirty.right, aDirty.bottom);
         }
         return parent;
     }
 
+    /**
+     * Computes the area of the widget that has to be repainted when a descendant is invalidated:
+     * the area covered by the descendant and the one it covered when it was last invalidated,
+     * so views that move are also erased from their previous position. The first time a view is
+     * invalidated its previous position is unknown and the whole widget is repainted.
+     * @return false if the damaged area is not visible.
+     */
+    private boolean getDescendantDirtyRect(@NonNull View aTarget, @NonNull Rect aDirty) {
+        RectF bounds = mTargetRect;
+        bounds.set(0, 0, aTarget.getWidth(), aTarget.getHeight());
+        View view = aTarget;
+        while (view != this) {
+            Matrix matrix = view.getMatrix();
+            if (!matrix.isIdentity()) {
+                matrix.mapRect(bounds);
+            }
+            bounds.offset(view.getLeft(), view.getTop());
+            ViewParent parent = view.getParent();
+            if (!(parent instanceof View)) {
+                // Detached while being invalidated.
+                aDirty.set(0, 0, getWidth(), getHeight());
+                return true;
+            }
+            view = (View) parent;
+            bounds.offset(-view.getScrollX(), -view.getScrollY());
+        }
+
+        RectF previous = mTargetBounds.get(aTarget);
+        if (previous == null) {
+            mTargetBounds.put(aTarget, new RectF(bounds));
+            aDirty.set(0, 0, getWidth(), getHeight());
+            return true;
+        }
+        bounds.roundOut(aDirty);
+        previous.roundOut(mPreviousTargetRect);
+        aDirty.union(mPreviousTargetRect);
+        previous.set(bounds);
+        return aDirty.intersect(0, 0, getWidth(), getHeight());
+    }
+
     public void setDelegate(Delegate aDelegate) {
         mDelegate = aDelegate;
     }
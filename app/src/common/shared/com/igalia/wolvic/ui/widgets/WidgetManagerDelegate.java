@@ -6,6 +6,7 @@ import android.view.View;
 import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
 
+import com.igalia.wolvic.RenderCommandQueue;
 import com.igalia.wolvic.browser.api.WSession;
 import com.igalia.wolvic.ui.widgets.menus.VideoProjectionMenuWidget;
 
@@ -81,6 +82,9 @@ public interface WidgetManagerDelegate {
     void popWorldBrightness(Object aKey);
     void triggerHapticFeedback();
     void setControllersVisible(boolean visible);
+    void setRenderStatsVisible(boolean visible);
+    boolean isRenderStatsVisible();
+    @NonNull RenderCommandQueue.Stats getRenderCommandStats();
     void setWindowSize(float targetWidth, float targetHeight);
     void keyboardDismissed();
     void updateEnvironment();
@@ -120,8 +124,10 @@ public interface WidgetManagerDelegate {
     TrayWidget getTray();
     NavigationBarWidget getNavigationBar();
     Windows getWindows();
-    void saveState();
+    void saveStateNow();
     void updateLocale(@NonNull Context context);
     @NonNull
     AppServicesProvider getServicesProvider();
+    @NonNull
+    UIRedrawScheduler getRedrawScheduler();
 }
@@ -18,6 +18,9 @@ import com.igalia.wolvic.R;
 import com.igalia.wolvic.browser.SettingsStore;
 import com.igalia.wolvic.utils.DeviceType;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 public class WidgetPlacement {
     static final float WORLD_DPI_RATIO = 2.0f/720.0f;
 
@@ -123,6 +126,61 @@ public class WidgetPlacement {
         this.cylinderMapRadius = w.cylinderMapRadius;
     }
 
+    /**
+     * Returns the number of bytes written by {@link #writeTo(ByteBuffer)}.
+     */
+    public int serializedSize() {
+        byte[] nameBytes = name != null ? name.getBytes(StandardCharsets.UTF_8) : null;
+        return SERIALIZED_FIXED_SIZE + (nameBytes != null ? nameBytes.length : 0);
+    }
+
+    // Size of the fields written by writeTo(), except the bytes of the name.
+    private static final int SERIALIZED_FIXED_SIZE = 25 * 4 + 6;
+
+    /**
+     * Writes the placement to a buffer in native byte order, to be read with
+     * WidgetPlacement::FromBuffer in native code. Both must be kept in sync.
+     */
+    public void writeTo(@NonNull ByteBuffer aBuffer) {
+        aBuffer.putInt(width);
+        aBuffer.putInt(height);
+        aBuffer.putFloat(anchorX);
+        aBuffer.putFloat(anchorY);
+        aBuffer.putFloat(translationX);
+        aBuffer.putFloat(translationY);
+        aBuffer.putFloat(translationZ);
+        aBuffer.putFloat(rotationAxisX);
+        aBuffer.putFloat(rotationAxisY);
+        aBuffer.putFloat(rotationAxisZ);
+        aBuffer.putFloat(rotation);
+        aBuffer.putInt(parentHandle);
+        aBuffer.putFloat(parentAnchorX);
+        aBuffer.putFloat(parentAnchorY);
+        aBuffer.putInt(parentAnchorGravity);
+        aBuffer.putFloat(density);
+        aBuffer.putFloat(worldWidth);
+        aBuffer.put((byte) (visible ? 1 : 0));
+        aBuffer.putInt(scene);
+        aBuffer.put((byte) (showPointer ? 1 : 0));
+        aBuffer.put((byte) (composited ? 1 : 0));
+        aBuffer.put((byte) (layer ? 1 : 0));
+        aBuffer.putInt(layerPriority);
+        aBuffer.put((byte) (proxifyLayer ? 1 : 0));
+        aBuffer.putFloat(textureScale);
+        aBuffer.put((byte) (cylinder ? 1 : 0));
+        aBuffer.putFloat(cylinderMapRadius);
+        aBuffer.putInt(tintColor);
+        aBuffer.putInt(borderColor);
+        if (name != null) {
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            aBuffer.putInt(nameBytes.length);
+            aBuffer.put(nameBytes);
+        } else {
+            aBuffer.putInt(-1);
+        }
+        aBuffer.putInt(clearColor);
+    }
+
     public void updateCylinderMapRadius() {
         // We should check the context to make sure it's not null here to avoid crash
         // when we adjust windows distance after we exit from fullscreen mode.
@@ -53,6 +53,7 @@ import com.igalia.wolvic.browser.api.WResult;
 import com.igalia.wolvic.browser.api.WSession;
 import com.igalia.wolvic.browser.api.WSessionSettings;
 import com.igalia.wolvic.browser.api.WWebResponse;
+import com.igalia.wolvic.browser.engine.CaptureScheduler;
 import com.igalia.wolvic.browser.engine.EngineProvider;
 import com.igalia.wolvic.browser.engine.Session;
 import com.igalia.wolvic.browser.engine.SessionState;
@@ -142,7 +143,6 @@ public class WindowWidget extends UIWidget implements SessionChangeListener,
     private WidgetPlacement mPlacementBeforeResize;
     private boolean mIsResizing;
     private boolean mAfterFirstPaint;
-    private boolean mCaptureOnPageStop;
     private PromptDelegate mPromptDelegate;
     private Executor mUIThreadExecutor;
     private WindowViewModel mViewModel;
@@ -1172,8 +1172,6 @@ public class WindowWidget extends UIWidget implements SessionChangeListener,
                 listener.onSessionChanged(oldSession, aSession);
             }
         }
-        mCaptureOnPageStop = false;
-
         if (hidePanel) {
             hideLibraryPanel();
         }
@@ -1875,17 +1873,11 @@ public class WindowWidget extends UIWidget implements SessionChangeListener,
 
     @Override
     public void onPageStart(@NonNull WSession aSession, @NonNull String aUri) {
-        mCaptureOnPageStop = true;
         mViewModel.setIsLoading(true);
     }
 
     @Override
     public void onPageStop(@NonNull WSession aSession, boolean b) {
-        if (mCaptureOnPageStop || !mSession.hasCapturedBitmap()) {
-            mCaptureOnPageStop = false;
-            captureImage();
-        }
-
         mViewModel.setIsLoading(false);
     }
 
@@ -1898,7 +1890,7 @@ public class WindowWidget extends UIWidget implements SessionChangeListener,
     }
 
     public void captureImage() {
-        mSession.captureBitmap();
+        SessionStore.get().getCaptureScheduler().requestCapture(mSession, CaptureScheduler.PRIORITY_VISIBLE);
     }
 
     @Override
@@ -4,6 +4,9 @@ import static com.igalia.wolvic.ui.widgets.settings.SettingsView.SettingViewType
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.AtomicFile;
 import android.util.Log;
 
 import androidx.annotation.IntDef;
@@ -41,17 +44,21 @@ import com.igalia.wolvic.utils.UrlUtils;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import mozilla.components.concept.sync.AccountObserver;
@@ -77,6 +84,8 @@ public class Windows implements TrayListener, TopBarWidget.Delegate, TitleBarWid
 
 
     private static final String WINDOWS_SAVE_FILENAME = "windows_state.json";
+    // Tab changes usually come in bursts, wait a bit to save them all at once.
+    private static final long SAVE_STATE_DELAY_MS = 2000;
 
     private static final int TAB_ADDED_NOTIFICATION_ID = 0;
     private static final int TAB_SENT_NOTIFICATION_ID = 1;
@@ -153,6 +162,13 @@ public class Windows implements TrayListener, TopBarWidget.Delegate, TitleBarWid
     private @NewTabLocation int mAddedTabLocation = OPEN_IN_FOREGROUND;
     private DownloadsManager mDownloadsManager;
     private ConnectivityReceiver mConnectivityReceived;
+    private Executor mSaveExecutor;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    // Latest snapshot waiting to be written, older ones are dropped.
+    private final AtomicReference<WindowsState> mPendingSaveState = new AtomicReference<>();
+    private final Runnable mSaveStateRunnable = this::saveState;
+    // Serializes the background writes with the ones done in the UI thread on pause and destroy.
+    private final Object mWriteLock = new Object();
 
     @IntDef(value = {NONE, BOOKMARKS, WEB_APPS, HISTORY, DOWNLOADS, ADDONS, NOTIFICATIONS})
     public @interface PanelType {}
@@ -207,6 +223,7 @@ public class Windows implements TrayListener, TopBarWidget.Delegate, TitleBarWid
         mConnectivityReceived.addListener(mConnectivityDelegate);
 
         mDownloadsManager = mWidgetManager.getServicesProvider().getDownloadsManager();
+        mSaveExecutor = mWidgetManager.getServicesProvider().getExecutors().diskIO();
 
         mPrefs = PreferenceManager.getDefaultSharedPreferences(mContext);
         mPrefs.registerOnSharedPreferenceChangeListener(mPreferencesListener);
@@ -216,43 +233,104 @@ public class Windows implements TrayListener, TopBarWidget.Delegate, TitleBarWid
         restoreWindows();
     }
 
+    /**
+     * Saves the windows state after a short delay, coalescing the changes that happen meanwhile.
+     */
+    public void scheduleSaveState() {
+        mHandler.removeCallbacks(mSaveStateRunnable);
+        mHandler.postDelayed(mSaveStateRunnable, SAVE_STATE_DELAY_MS);
+    }
+
+    /**
+     * Takes a snapshot of the windows state and writes it in the background.
+     */
     public void saveState() {
-        File file = new File(mContext.getFilesDir(), WINDOWS_SAVE_FILENAME);
-        try (Writer writer = new FileWriter(file)) {
-            WindowsState state = new WindowsState();
-            state.privateMode = mPrivateMode;
-            state.focusedWindowPlacement = mFocusedWindow.isFullScreen() ?  mFocusedWindow.getWindowPlacementBeforeFullscreen() : mFocusedWindow.getWindowPlacement();
-            ArrayList<Session> sessions = SessionStore.get().getSortedSessions(false);
-            state.tabs = sessions.stream()
-                    .map(Session::getSessionState)
-                    .filter(sessionState -> HistoryStore.getBLOCK_LIST().stream().noneMatch(uri ->
-                        sessionState.mUri != null && sessionState.mUri.startsWith(uri)
-                    ))
-                    .collect(Collectors.toCollection(ArrayList::new));
-            for (WindowWidget window : mRegularWindows) {
-                if (window.getSession() != null) {
-                    WindowState windowState = new WindowState();
-                    windowState.load(window, state, state.tabs.indexOf(window.getSession().getSessionState()));
-                    state.regularWindowsState.add(windowState);
-                }
+        if (takeStateSnapshot()) {
+            mSaveExecutor.execute(this::writeState);
+        }
+    }
+
+    /**
+     * Takes a snapshot of the windows state and writes it before returning, used when the app
+     * may be killed before a background write runs.
+     */
+    public void saveStateNow() {
+        takeStateSnapshot();
+        writeState();
+    }
+
+    /**
+     * Replaces the pending state to write with the current one.
+     * @return true if there was no pending state, so a write must be scheduled.
+     */
+    private boolean takeStateSnapshot() {
+        mHandler.removeCallbacks(mSaveStateRunnable);
+        if (mFocusedWindow == null) {
+            return false;
+        }
+
+        WindowsState state = new WindowsState();
+        state.privateMode = mPrivateMode;
+        state.focusedWindowPlacement = mFocusedWindow.isFullScreen() ?  mFocusedWindow.getWindowPlacementBeforeFullscreen() : mFocusedWindow.getWindowPlacement();
+        ArrayList<SessionState> sessionStates = SessionStore.get().getSortedSessions(false).stream()
+                .map(Session::getSessionState)
+                .filter(sessionState -> HistoryStore.getBLOCK_LIST().stream().noneMatch(uri ->
+                    sessionState.mUri != null && sessionState.mUri.startsWith(uri)
+                ))
+                .collect(Collectors.toCollection(ArrayList::new));
+        for (WindowWidget window : mRegularWindows) {
+            if (window.getSession() != null) {
+                WindowState windowState = new WindowState();
+                windowState.load(window, state, sessionStates.indexOf(window.getSession().getSessionState()));
+                state.regularWindowsState.add(windowState);
             }
-            Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        }
+        state.tabs = sessionStates.stream()
+                .map(SessionState::snapshot)
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        return mPendingSaveState.getAndSet(state) == null;
+    }
+
+    private void writeState() {
+        synchronized (mWriteLock) {
+            WindowsState state = mPendingSaveState.getAndSet(null);
+            if (state != null) {
+                writeState(state);
+            }
+        }
+    }
+
+    private void writeState(@NonNull WindowsState state) {
+        // AtomicFile writes to a temporary file and renames it on success, so a crash while
+        // writing never leaves a truncated state behind.
+        AtomicFile file = new AtomicFile(new File(mContext.getFilesDir(), WINDOWS_SAVE_FILENAME));
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            Gson gson = new GsonBuilder().create();
             gson.toJson(state, writer);
             writer.flush();
+            file.finishWrite(out);
 
             Log.d(LOGTAG, "Windows state saved");
 
-        } catch (IOException e) {
+        } catch (Exception e) {
             Log.e(LOGTAG, "Error saving windows state: " + e.getLocalizedMessage());
-            file.delete();
+            if (out != null) {
+                file.failWrite(out);
+            }
         }
     }
 
     private WindowsState restoreState() {
         WindowsState restored = null;
 
-        File file = new File(mContext.getFilesDir(), WINDOWS_SAVE_FILENAME);
-        try (Reader reader = new FileReader(file)) {
+        AtomicFile file = new AtomicFile(new File(mContext.getFilesDir(), WINDOWS_SAVE_FILENAME));
+        // The file is parsed as a stream. The engine state of each tab is kept serialized until the
+        // tab is restored, so this only builds lightweight tab records.
+        try (Reader reader = new BufferedReader(new InputStreamReader(file.openRead(), StandardCharsets.UTF_8))) {
             Gson gson = new GsonBuilder().create();
             Type type = new TypeToken<WindowsState>() {}.getType();
             restored = gson.fromJson(reader, type);
@@ -514,7 +592,7 @@ public class Windows implements TrayListener, TopBarWidget.Delegate, TitleBarWid
     public void onPause() {
         mIsPaused = true;
 
-        saveState();
+        saveStateNow();
     }
 
     public void onResume() {
@@ -532,6 +610,8 @@ public class Windows implements TrayListener, TopBarWidget.Delegate, TitleBarWid
     }
 
     public void onDestroy() {
+        // Saved before closing the windows, which closes their sessions.
+        saveStateNow();
         if (mTabsWidget != null && !mTabsWidget.isReleased()) {
             mTabsWidget.releaseWidget();
             mTabsWidget = null;
@@ -1419,7 +1499,7 @@ public void selectTab(@NonNull Session aTab) {
     public void openNewTabAfterRestore(@NonNull String aUri, @NewTabLocation int aLocation) {
         if (mAfterRestore) {
             openNewTab(aUri, aLocation);
-            saveState();
+            scheduleSaveState();
         } else {
             mAddedTabUri = aUri;
             mAddedTabLocation = aLocation;
@@ -1473,6 +1553,7 @@ public void selectTab(@NonNull Session aTab) {
         if (aUri == null || aUri.isEmpty()) {
             session.loadHomePage();
         }
+        scheduleSaveState();
     }
 
     public void addBackgroundTab(WindowWidget targetWindow, String aUri) {
@@ -1480,6 +1561,7 @@ public void selectTab(@NonNull Session aTab) {
         session.updateLastUse();
         mFocusedWindow.getSession().updateLastUse();
         showTabAddedNotification();
+        scheduleSaveState();
     }
 
     @Override
@@ -1555,6 +1637,7 @@ public void selectTab(@NonNull Session aTab) {
             cache.removeBitmap(session.getId());
             SessionStore.get().destroySession(session);
         }
+        scheduleSaveState();
     }
 
     @Override
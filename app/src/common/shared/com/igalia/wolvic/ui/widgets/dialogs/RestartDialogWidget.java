@@ -30,7 +30,7 @@ public class RestartDialogWidget extends PromptDialogWidget {
                 onDismiss();
 
             } else if (index == PromptDialogWidget.POSITIVE) {
-                mWidgetManager.saveState();
+                mWidgetManager.saveStateNow();
                 postDelayed(() -> SystemUtils.restart(getContext()), 500);
             }
         });
@@ -6,6 +6,7 @@
 package com.igalia.wolvic.ui.widgets.settings;
 
 import android.content.Context;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 
@@ -13,15 +14,32 @@ import androidx.databinding.DataBindingUtil;
 
 import com.igalia.wolvic.BuildConfig;
 import com.igalia.wolvic.R;
+import com.igalia.wolvic.VRBrowserApplication;
 import com.igalia.wolvic.browser.SettingsStore;
+import com.igalia.wolvic.browser.engine.SessionEventBus;
 import com.igalia.wolvic.browser.engine.SessionStore;
 import com.igalia.wolvic.databinding.OptionsDeveloperBinding;
+import com.igalia.wolvic.input.InputLatencyTracker;
 import com.igalia.wolvic.ui.views.settings.SwitchSetting;
+import com.igalia.wolvic.ui.widgets.UIRenderStats;
 import com.igalia.wolvic.ui.widgets.WidgetManagerDelegate;
 import com.igalia.wolvic.utils.DeviceType;
+import com.igalia.wolvic.utils.SystemUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 class DeveloperOptionsView extends SettingsView {
 
+    private static final String LOGTAG = SystemUtils.createLogtag(DeveloperOptionsView.class);
+    private static final String INPUT_LATENCY_DUMP_FILENAME = "input_latency.txt";
+    private static final String RENDER_STATS_DUMP_FILENAME = "render_stats.txt";
+
     private OptionsDeveloperBinding mBinding;
 
     public DeveloperOptionsView(Context aContext, WidgetManagerDelegate aWidgetManager) {
@@ -77,8 +95,70 @@ class DeveloperOptionsView extends SettingsView {
 
         mBinding.localAddonSwitch.setOnCheckedChangeListener(mLocalAddonListener);
         setLocalAddon(SettingsStore.getInstance(getContext()).isLocalAddonAllowed(), false);
+
+        mBinding.inputLatencyButton.setOnClickListener(v -> exportInputLatency());
+        updateInputLatency();
+
+        mBinding.renderStatsSwitch.setValue(mWidgetManager.isRenderStatsVisible(), false);
+        mBinding.renderStatsSwitch.setOnCheckedChangeListener(mRenderStatsListener);
+
+        mBinding.renderStatsButton.setOnClickListener(v -> exportRenderStats());
     }
 
+    @Override
+    public void onShown() {
+        super.onShown();
+        // The latencies keep changing while the view is hidden.
+        updateInputLatency();
+    }
+
+    private void updateInputLatency() {
+        List<String> summary = InputLatencyTracker.getSummary();
+        StringBuilder description = new StringBuilder(getContext().getString(R.string.developer_options_input_latency));
+        if (summary.isEmpty()) {
+            description.append('\n').append(getContext().getString(R.string.developer_options_input_latency_empty));
+        }
+        for (String line : summary) {
+            description.append('\n').append(line);
+        }
+        mBinding.inputLatencyButton.setDescription(description.toString());
+    }
+
+    private void exportInputLatency() {
+        updateInputLatency();
+        writeDump(INPUT_LATENCY_DUMP_FILENAME, InputLatencyTracker.dump(), "input latency histograms");
+    }
+
+    private void exportRenderStats() {
+        StringBuilder dump = new StringBuilder(UIRenderStats.dump());
+        // Recorded while the render stats overlay is visible.
+        dump.append("\nSession listeners:\n");
+        for (SessionEventBus.ListenerStats stats : SessionEventBus.getDispatchStats()) {
+            dump.append(stats).append('\n');
+        }
+        writeDump(RENDER_STATS_DUMP_FILENAME, dump.toString(), "widget render stats");
+    }
+
+    /**
+     * Writes a developer dump to the app external files directory in the background.
+     * @param what Description of the dump for the log messages.
+     */
+    private void writeDump(String fileName, String content, String what) {
+        File file = new File(getContext().getExternalFilesDir(null), fileName);
+        ((VRBrowserApplication) getContext().getApplicationContext()).getExecutors().diskIO().execute(() -> {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+                writer.write(content);
+                Log.i(LOGTAG, "Written " + what + " to " + file.getAbsolutePath());
+            } catch (IOException e) {
+                Log.e(LOGTAG, "Error writing " + what + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private SwitchSetting.OnCheckedChangeListener mRenderStatsListener = (compoundButton, value, doApply) -> {
+        mWidgetManager.setRenderStatsVisible(value);
+    };
+
     private SwitchSetting.OnCheckedChangeListener mRemoteDebuggingListener = (compoundButton, value, doApply) -> {
         setRemoteDebugging(value, doApply);
     };
@@ -4,6 +4,8 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.SurfaceTexture;
+import android.os.Build;
+import android.os.SystemClock;
 import android.util.Log;
 import android.util.LruCache;
 import android.view.Surface;
@@ -14,27 +16,133 @@ import androidx.annotation.Nullable;
 import com.igalia.wolvic.VRBrowserApplication;
 import com.jakewharton.disklrucache.DiskLruCache;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
 import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Three tier cache for tab thumbnails and other small images:
+ * <ul>
+ *     <li>Memory tier: decoded Bitmaps, keyed by the raw key and accessed on the main thread.</li>
+ *     <li>Compressed tier: lossy WebP encoded bytes, bounded by the number of source pixels.</li>
+ *     <li>Disk tier: the same WebP bytes persisted in a {@link DiskLruCache}.</li>
+ * </ul>
+ * Key hashing, encoding and decoding always happen on a small pool of disk threads. Disk reads run
+ * concurrently, while writes and removals take an exclusive lock on the key stripe they affect.
+ */
 public class BitmapCache {
     private Context mContext;
     private LruCache<String, Bitmap> mMemoryCache;
-    private DiskLruCache mDiskCache;
+    private LruCache<String, CompressedBitmap> mCompressedCache;
+    private volatile DiskLruCache mDiskCache;
     private Executor mIOExecutor;
     private Executor mMainThreadExecutor;
-    private final Object mLock = new Object();
+    private ExecutorService mDiskExecutor;
+    private final ReadWriteLock[] mDiskLocks = new ReadWriteLock[DISK_LOCK_STRIPES];
+    // Latest add/remove operation issued for each key, older pending operations are skipped.
+    private final ConcurrentHashMap<String, Integer> mPendingWrites = new ConcurrentHashMap<>();
+    private final AtomicInteger mWriteSequence = new AtomicInteger();
     private static final int DISK_CACHE_SIZE = 1024 * 1024 * 100; // 100MB
+    // Bumped when the on-disk format changes (PNG -> WebP) so that stale entries are discarded.
+    private static final int DISK_CACHE_VERSION = 2;
+    // Roughly 64 tab thumbnails of 500x300 pixels.
+    private static final int COMPRESSED_CACHE_PIXEL_BUDGET = 64 * 500 * 300;
+    private static final int COMPRESS_QUALITY = 80;
+    private static final int BITMAP_POOL_SIZE = 1024 * 1024 * 8; // 8MB
+    private static final int DISK_THREADS = 3;
+    // Must be a power of two.
+    private static final int DISK_LOCK_STRIPES = 16;
     private static final String LOGTAG = SystemUtils.createLogtag(BitmapCache.class);
     private SurfaceTexture mCaptureSurfaceTexture;
     private Surface mCaptureSurface;
     private boolean mCapturedAcquired;
+    private final Stats mStats = new Stats();
+    private final BitmapPool mBitmapPool = new BitmapPool(BITMAP_POOL_SIZE);
+    private final Set<Bitmap> mLeasedBitmaps = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private static class CompressedBitmap {
+        final byte[] data;
+        final int pixels;
+
+        CompressedBitmap(@NonNull byte[] aData, int aPixels) {
+            data = aData;
+            pixels = aPixels;
+        }
+    }
+
+    /**
+     * Counters used to tune the cache tiers. All values are cumulative since the cache was created.
+     */
+    public static class Stats {
+        private final AtomicLong mMemoryHits = new AtomicLong();
+        private final AtomicLong mCompressedHits = new AtomicLong();
+        private final AtomicLong mDiskHits = new AtomicLong();
+        private final AtomicLong mMisses = new AtomicLong();
+        private final AtomicLong mEncodeCount = new AtomicLong();
+        private final AtomicLong mEncodeTimeMs = new AtomicLong();
+        private final AtomicLong mEncodedBytes = new AtomicLong();
+
+        public long getMemoryHits() {
+            return mMemoryHits.get();
+        }
+
+        public long getCompressedHits() {
+            return mCompressedHits.get();
+        }
+
+        public long getDiskHits() {
+            return mDiskHits.get();
+        }
+
+        public long getMisses() {
+            return mMisses.get();
+        }
+
+        public long getEncodeCount() {
+            return mEncodeCount.get();
+        }
+
+        public long getEncodeTimeMs() {
+            return mEncodeTimeMs.get();
+        }
+
+        public long getEncodedBytes() {
+            return mEncodedBytes.get();
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            long encodes = mEncodeCount.get();
+            return "memoryHits=" + mMemoryHits.get() +
+                    " compressedHits=" + mCompressedHits.get() +
+                    " diskHits=" + mDiskHits.get() +
+                    " misses=" + mMisses.get() +
+                    " encodes=" + encodes +
+                    " avgEncodeMs=" + (encodes > 0 ? mEncodeTimeMs.get() / encodes : 0) +
+                    " avgEncodedBytes=" + (encodes > 0 ? mEncodedBytes.get() / encodes : 0);
+        }
+    }
 
     private static String bytesToHex(byte[] hash) {
         StringBuilder hexString = new StringBuilder(2 * hash.length);
@@ -66,10 +174,18 @@ public class BitmapCache {
         mContext = aContext;
         mIOExecutor = aIOExecutor;
         mMainThreadExecutor = aMainThreadExecutor;
+        for (int i = 0; i < mDiskLocks.length; i++) {
+            mDiskLocks[i] = new ReentrantReadWriteLock();
+        }
     }
 
     public void onCreate() {
+        // The cache outlives the activity, the disk threads are created again when it is recreated.
+        AtomicInteger threadCount = new AtomicInteger();
+        mDiskExecutor = Executors.newFixedThreadPool(DISK_THREADS,
+                runnable -> new Thread(runnable, "BitmapCacheDisk-" + threadCount.incrementAndGet()));
         initMemoryCache();
+        initCompressedCache();
         initDiskCache();
     }
 
@@ -88,11 +204,20 @@ public class BitmapCache {
         };
     }
 
+    void initCompressedCache() {
+        mCompressedCache = new LruCache<String, CompressedBitmap>(COMPRESSED_CACHE_PIXEL_BUDGET) {
+            @Override
+            protected int sizeOf(String key, CompressedBitmap value) {
+                return value.pixels;
+            }
+        };
+    }
+
     void initDiskCache() {
         String path = mContext.getCacheDir() + File.separator + "snapshots";
         mIOExecutor.execute(() -> {
             try {
-                mDiskCache = DiskLruCache.open(new File(path), 1, 1, DISK_CACHE_SIZE);
+                mDiskCache = DiskLruCache.open(new File(path), DISK_CACHE_VERSION, 1, DISK_CACHE_SIZE);
             }
             catch (Exception ex) {
                 Log.e(LOGTAG, "Failed to initialize DiskLruCache:" + ex.getMessage());
@@ -101,14 +226,32 @@ public class BitmapCache {
     }
 
     public void addBitmap(@NonNull String aKey, @NonNull Bitmap aBitmap) {
-        String finalKey = hashKey(aKey);
-        mMemoryCache.put(finalKey, aBitmap);
+        mMemoryCache.put(aKey, aBitmap);
+        int sequence = beginWrite(aKey);
         runIO(() -> {
+            if (isWriteSuperseded(aKey, sequence)) {
+                return;
+            }
+            String finalKey = hashKey(aKey);
+            // Encoding is the slowest step, do it before taking the lock.
+            CompressedBitmap compressed = compress(aBitmap);
+            if (compressed == null) {
+                mPendingWrites.remove(aKey, sequence);
+                return;
+            }
+            Lock lock = getDiskLock(finalKey).writeLock();
+            lock.lock();
             DiskLruCache.Editor editor = null;
             try {
+                if (isWriteSuperseded(aKey, sequence)) {
+                    return;
+                }
+                mCompressedCache.put(finalKey, compressed);
                 editor = mDiskCache.edit(finalKey);
                 if (editor != null) {
-                    aBitmap.compress(Bitmap.CompressFormat.PNG, 80, editor.newOutputStream(0));
+                    try (OutputStream out = editor.newOutputStream(0)) {
+                        out.write(compressed.data);
+                    }
                     editor.commit();
                 }
             }
@@ -123,69 +266,263 @@ public class BitmapCache {
                     }
                 }
             }
-        });
+            finally {
+                mPendingWrites.remove(aKey, sequence);
+                lock.unlock();
+            }
+        }, () -> mPendingWrites.remove(aKey, sequence));
     }
 
     public @NonNull CompletableFuture<Bitmap> getBitmap(@NonNull String aKey) {
-        String finalKey = hashKey(aKey);
-        Bitmap cached = mMemoryCache.get(finalKey);
+        Bitmap cached = mMemoryCache.get(aKey);
         if (cached != null) {
+            mStats.mMemoryHits.incrementAndGet();
             return CompletableFuture.completedFuture(cached);
         } else {
             CompletableFuture<Bitmap> result = new CompletableFuture<>();
             runIO(() -> {
-                try (DiskLruCache.Snapshot snapshot = mDiskCache.get(finalKey)){
-                    if (snapshot != null) {
-                        Bitmap bitmap = BitmapFactory.decodeStream(snapshot.getInputStream(0));
-                        if (bitmap != null) {
-                            mMainThreadExecutor.execute(() -> {
-                                if (mMemoryCache.get(finalKey) == null) {
-                                    // Do not update cache if it already contains a value
-                                    // A tab could have saved a new image while we were loading the cached disk image.
-                                    mMemoryCache.put(finalKey, bitmap);
-                                }
-                                result.complete(bitmap);
-                            });
-
-                            return;
+                byte[] data = loadCompressed(hashKey(aKey));
+                Bitmap bitmap = data != null ? BitmapFactory.decodeByteArray(data, 0, data.length) : null;
+                if (bitmap != null) {
+                    mMainThreadExecutor.execute(() -> {
+                        if (mMemoryCache.get(aKey) == null) {
+                            // Do not update cache if it already contains a value
+                            // A tab could have saved a new image while we were loading the cached disk image.
+                            mMemoryCache.put(aKey, bitmap);
                         }
-                    }
-                }
-                catch (Exception ex) {
-                    Log.e(LOGTAG, "Failed to get Bitmap from DiskLruCache:" + ex.getMessage());
+                        result.complete(bitmap);
+                    });
+                    return;
                 }
 
                 mMainThreadExecutor.execute(() -> result.complete(null));
 
-            });
+            }, () -> mMainThreadExecutor.execute(() -> result.complete(null)));
             return result;
         }
     }
 
+    /**
+     * Returns a Bitmap suitable to be displayed in a view of the given size.
+     * If the full size Bitmap is already in the memory tier it is returned as is. Otherwise the
+     * compressed data is decoded using the smallest power of two subsampling that still covers the
+     * requested size, reusing a pooled Bitmap when possible. Those decoded Bitmaps are not added to
+     * the memory tier: callers must hand them back using {@link #releaseBitmap(Bitmap)} when they
+     * no longer display them.
+     */
+    public @NonNull CompletableFuture<Bitmap> getBitmap(@NonNull String aKey, int aTargetWidth, int aTargetHeight) {
+        Bitmap cached = mMemoryCache.get(aKey);
+        if (cached != null) {
+            mStats.mMemoryHits.incrementAndGet();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<Bitmap> result = new CompletableFuture<>();
+        runIO(() -> {
+            byte[] data = loadCompressed(hashKey(aKey));
+            Bitmap bitmap = data != null ? decodeSampled(data, aTargetWidth, aTargetHeight) : null;
+            mMainThreadExecutor.execute(() -> {
+                if (!result.complete(bitmap) && bitmap != null) {
+                    // The request was cancelled while decoding, e.g. the tab view was rebound.
+                    releaseBitmap(bitmap);
+                }
+            });
+        }, () -> mMainThreadExecutor.execute(() -> result.complete(null)));
+        return result;
+    }
+
+    /**
+     * Returns a Bitmap obtained from {@link #getBitmap(String, int, int)} to the pool. Bitmaps that
+     * were not decoded by the pool, like the ones from the memory tier, are ignored.
+     */
+    public void releaseBitmap(@Nullable Bitmap aBitmap) {
+        if (aBitmap != null && mLeasedBitmaps.remove(aBitmap)) {
+            mBitmapPool.put(aBitmap);
+        }
+    }
+
+    private @Nullable Bitmap decodeSampled(@NonNull byte[] aData, int aTargetWidth, int aTargetHeight) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(aData, 0, aData.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        int sampleSize = 1;
+        if (aTargetWidth > 0 && aTargetHeight > 0) {
+            while ((options.outWidth / (sampleSize * 2)) >= aTargetWidth &&
+                    (options.outHeight / (sampleSize * 2)) >= aTargetHeight) {
+                sampleSize *= 2;
+            }
+        }
+        int width = (options.outWidth + sampleSize - 1) / sampleSize;
+        int height = (options.outHeight + sampleSize - 1) / sampleSize;
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inMutable = true;
+        options.inBitmap = mBitmapPool.get(width * height * 4);
+
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeByteArray(aData, 0, aData.length, options);
+        } catch (IllegalArgumentException ex) {
+            // The pooled Bitmap can not be reused for this image, decode into a new one.
+            mBitmapPool.put(options.inBitmap);
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeByteArray(aData, 0, aData.length, options);
+        }
+        if (bitmap != null) {
+            mLeasedBitmaps.add(bitmap);
+        }
+        return bitmap;
+    }
+
     public void removeBitmap(@NonNull String aKey) {
-        String finalKey = hashKey(aKey);
-        mMemoryCache.remove(finalKey);
+        mMemoryCache.remove(aKey);
+        int sequence = beginWrite(aKey);
         runIO(() -> {
+            String finalKey = hashKey(aKey);
+            Lock lock = getDiskLock(finalKey).writeLock();
+            lock.lock();
             try {
+                if (isWriteSuperseded(aKey, sequence)) {
+                    return;
+                }
+                mCompressedCache.remove(finalKey);
                 mDiskCache.remove(finalKey);
             } catch (Exception ex) {
                 Log.e(LOGTAG, "Failed to remove Bitmap from DiskLruCache:" + ex.getMessage());
+            } finally {
+                mPendingWrites.remove(aKey, sequence);
+                lock.unlock();
             }
-        });
+        }, () -> mPendingWrites.remove(aKey, sequence));
+    }
+
+    private int beginWrite(@NonNull String aKey) {
+        int sequence = mWriteSequence.incrementAndGet();
+        mPendingWrites.put(aKey, sequence);
+        return sequence;
+    }
+
+    // Operations run concurrently, so a newer add or remove for the same key may already be queued.
+    private boolean isWriteSuperseded(@NonNull String aKey, int aSequence) {
+        Integer latest = mPendingWrites.get(aKey);
+        return latest != null && latest != aSequence;
+    }
+
+    @NonNull
+    private ReadWriteLock getDiskLock(@NonNull String aHashedKey) {
+        return mDiskLocks[aHashedKey.hashCode() & (DISK_LOCK_STRIPES - 1)];
+    }
+
+    public @NonNull Stats getStats() {
+        return mStats;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat getCompressFormat() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            return Bitmap.CompressFormat.WEBP_LOSSY;
+        }
+        // Before API 30 WEBP is lossy for any quality below 100.
+        return Bitmap.CompressFormat.WEBP;
+    }
+
+    @Nullable
+    private CompressedBitmap compress(@NonNull Bitmap aBitmap) {
+        if (aBitmap.isRecycled()) {
+            return null;
+        }
+        long start = SystemClock.elapsedRealtime();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!aBitmap.compress(getCompressFormat(), COMPRESS_QUALITY, out)) {
+            Log.e(LOGTAG, "Failed to compress Bitmap");
+            return null;
+        }
+        byte[] data = out.toByteArray();
+        mStats.mEncodeCount.incrementAndGet();
+        mStats.mEncodeTimeMs.addAndGet(SystemClock.elapsedRealtime() - start);
+        mStats.mEncodedBytes.addAndGet(data.length);
+        return new CompressedBitmap(data, aBitmap.getWidth() * aBitmap.getHeight());
+    }
+
+    /**
+     * Looks up the encoded bytes for a hashed key in the compressed tier and then in the disk tier.
+     * Must be called from the disk executor.
+     */
+    @Nullable
+    private byte[] loadCompressed(@NonNull String aHashedKey) {
+        CompressedBitmap compressed = mCompressedCache.get(aHashedKey);
+        if (compressed != null) {
+            mStats.mCompressedHits.incrementAndGet();
+            return compressed.data;
+        }
+
+        Lock lock = getDiskLock(aHashedKey).readLock();
+        lock.lock();
+        try (DiskLruCache.Snapshot snapshot = mDiskCache.get(aHashedKey)) {
+            if (snapshot != null) {
+                byte[] data = readFully(snapshot.getInputStream(0), (int) snapshot.getLength(0));
+                BitmapFactory.Options options = new BitmapFactory.Options();
+                options.inJustDecodeBounds = true;
+                BitmapFactory.decodeByteArray(data, 0, data.length, options);
+                if (options.outWidth > 0 && options.outHeight > 0) {
+                    mStats.mDiskHits.incrementAndGet();
+                    // Promote the entry so that the next miss in the memory tier doesn't hit the disk.
+                    mCompressedCache.put(aHashedKey, new CompressedBitmap(data, options.outWidth * options.outHeight));
+                    return data;
+                }
+            }
+        } catch (Exception ex) {
+            Log.e(LOGTAG, "Failed to get Bitmap from DiskLruCache:" + ex.getMessage());
+        } finally {
+            lock.unlock();
+        }
+
+        mStats.mMisses.incrementAndGet();
+        return null;
+    }
+
+    private static byte[] readFully(@NonNull InputStream aStream, int aSizeHint) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(aSizeHint, 1024));
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = aStream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
     }
 
     public boolean hasBitmap(@NonNull String aKey) {
-        return mMemoryCache.get(hashKey(aKey)) != null;
+        return mMemoryCache.get(aKey) != null;
     }
 
-    private void runIO(Runnable aRunnable) {
-        mIOExecutor.execute(() -> {
-            if (mDiskCache != null) {
-                synchronized (mLock) {
+    private void runIO(@NonNull Runnable aRunnable) {
+        runIO(aRunnable, null);
+    }
+
+    /**
+     * Runs the task in a disk thread if the disk cache is open. Otherwise, e.g. after
+     * {@link #onDestroy()}, aOnClosed is run instead, so callers can complete what they return.
+     */
+    private void runIO(@NonNull Runnable aRunnable, @Nullable Runnable aOnClosed) {
+        try {
+            mDiskExecutor.execute(() -> {
+                if (mDiskCache != null) {
                     aRunnable.run();
+                } else if (aOnClosed != null) {
+                    aOnClosed.run();
                 }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(LOGTAG, "Disk cache used after destroy");
+            if (aOnClosed != null) {
+                aOnClosed.run();
             }
-        });
+        }
     }
 
     public CompletableFuture<Bitmap> scaleBitmap(Bitmap aBitmap, int aMaxWidth, int aMaxHeight) {
@@ -209,15 +546,21 @@ public class BitmapCache {
         final int scaleH = h;
         CompletableFuture<Bitmap> result = new CompletableFuture<>();
 
-        runIO(() -> {
-            Bitmap scaled = Bitmap.createScaledBitmap(aBitmap, scaledW, scaleH, true);
-            if (scaled != null && scaled != aBitmap) {
-                aBitmap.recycle();
-                mMainThreadExecutor.execute(() -> result.complete(scaled));
-            } else {
-                mMainThreadExecutor.execute(() -> result.complete(aBitmap));
-            }
-        });
+        // Scaling does not touch the disk tier, so it doesn't need to wait for it.
+        try {
+            mDiskExecutor.execute(() -> {
+                Bitmap scaled = Bitmap.createScaledBitmap(aBitmap, scaledW, scaleH, true);
+                if (scaled != null && scaled != aBitmap) {
+                    aBitmap.recycle();
+                    mMainThreadExecutor.execute(() -> result.complete(scaled));
+                } else {
+                    mMainThreadExecutor.execute(() -> result.complete(aBitmap));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Destroyed, the disk threads are gone. Scaling is just an optimization.
+            result.complete(aBitmap);
+        }
 
         return result;
     }
@@ -243,14 +586,24 @@ public class BitmapCache {
     public void onDestroy() {
         if (mDiskCache != null) {
             runIO(() -> {
+                for (ReadWriteLock lock : mDiskLocks) {
+                    lock.writeLock().lock();
+                }
                 try {
                     mDiskCache.close();
                 } catch (IOException ex) {
                     Log.e(LOGTAG, "Failed to close DiskLruCache:" + ex.getMessage());
+                } finally {
+                    mDiskCache = null;
+                    for (ReadWriteLock lock : mDiskLocks) {
+                        lock.writeLock().unlock();
+                    }
                 }
-                mDiskCache = null;
             });
         }
+        // Lets the disk threads finish the pending tasks, including closing the cache, and exit.
+        mDiskExecutor.shutdown();
+        mBitmapPool.clear();
         if (mCaptureSurface != null) {
             mCaptureSurface.release();
             mCaptureSurface = null;
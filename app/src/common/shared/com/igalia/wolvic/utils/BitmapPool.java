@@ -0,0 +1,66 @@
+package com.igalia.wolvic.utils;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.Nullable;
+
+import java.util.LinkedList;
+
+/**
+ * A small pool of mutable Bitmaps that can be reused as {@code BitmapFactory.Options.inBitmap}.
+ * The pool is bounded by the total allocation size of the Bitmaps it holds, evicting the oldest
+ * ones first. It can be used from any thread.
+ */
+class BitmapPool {
+    private final LinkedList<Bitmap> mBitmaps = new LinkedList<>();
+    private final int mMaxSize;
+    private int mSize;
+
+    BitmapPool(int aMaxSize) {
+        mMaxSize = aMaxSize;
+    }
+
+    /**
+     * Returns the smallest pooled Bitmap whose allocation can hold the given number of bytes, or
+     * null if there is none. The returned Bitmap is removed from the pool.
+     */
+    synchronized @Nullable Bitmap get(int aByteCount) {
+        Bitmap best = null;
+        for (Bitmap bitmap : mBitmaps) {
+            int size = bitmap.getAllocationByteCount();
+            if (size >= aByteCount && (best == null || size < best.getAllocationByteCount())) {
+                best = bitmap;
+            }
+        }
+        if (best != null) {
+            mBitmaps.remove(best);
+            mSize -= best.getAllocationByteCount();
+        }
+        return best;
+    }
+
+    synchronized void put(@Nullable Bitmap aBitmap) {
+        if (aBitmap == null || aBitmap.isRecycled() || !aBitmap.isMutable()) {
+            return;
+        }
+        int size = aBitmap.getAllocationByteCount();
+        if (size > mMaxSize || mBitmaps.contains(aBitmap)) {
+            return;
+        }
+        mBitmaps.addLast(aBitmap);
+        mSize += size;
+        while (mSize > mMaxSize) {
+            Bitmap evicted = mBitmaps.removeFirst();
+            mSize -= evicted.getAllocationByteCount();
+            evicted.recycle();
+        }
+    }
+
+    synchronized void clear() {
+        for (Bitmap bitmap : mBitmaps) {
+            bitmap.recycle();
+        }
+        mBitmaps.clear();
+        mSize = 0;
+    }
+}
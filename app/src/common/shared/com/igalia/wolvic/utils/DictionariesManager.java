@@ -2,10 +2,11 @@ package com.igalia.wolvic.utils;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.os.Build;
+import android.content.res.AssetFileDescriptor;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.preference.PreferenceManager;
 
 import com.igalia.wolvic.R;
@@ -14,27 +15,48 @@ import com.igalia.wolvic.downloads.DownloadJob;
 import com.igalia.wolvic.downloads.DownloadsManager;
 import com.igalia.wolvic.ui.widgets.WidgetManagerDelegate;
 
+import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.URL;
-import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
 
 public class DictionariesManager implements DownloadsManager.DownloadsListener, SharedPreferences.OnSharedPreferenceChangeListener {
 
+    public interface DictionaryListener {
+        default void onDictionaryInstallProgress(@NonNull String lang, double progress) {}
+        default void onDictionaryInstalled(@NonNull String lang) {}
+        default void onDictionaryInstallError(@NonNull String lang, @NonNull String error) {}
+    }
+
     static final String LOGTAG = SystemUtils.createLogtag(DictionariesManager.class);
 
     private final WidgetManagerDelegate mApplicationDelegate;
     private final Context mContext;
     private final DownloadsManager mDownloadManager;
     private final SharedPreferences mPrefs;
+    private final Executor mDiskIOExecutor;
+    private final Executor mUIThreadExecutor;
+    private final ArrayList<DictionaryListener> mListeners = new ArrayList<>();
+    // Names of the databases being installed, only used in the UI thread.
+    private final Set<String> mInstalling = new HashSet<>();
     private long mDicDownloadLang = -1;
 
-    public DictionariesManager(@NonNull Context context) {
+    public DictionariesManager(@NonNull Context context, @NonNull Executor diskIOExecutor, @NonNull Executor uiThreadExecutor) {
         mContext = context;
+        mDiskIOExecutor = diskIOExecutor;
+        mUIThreadExecutor = uiThreadExecutor;
         mApplicationDelegate = ((WidgetManagerDelegate)context);
         WidgetManagerDelegate mApplicationDelegate = ((WidgetManagerDelegate) context);
         mDownloadManager = mApplicationDelegate.getServicesProvider().getDownloadsManager();
@@ -44,6 +66,13 @@ public class DictionariesManager implements DownloadsManager.DownloadsListener,
     public void init() {
         mDownloadManager.addListener(this);
         mPrefs.registerOnSharedPreferenceChangeListener(this);
+        if (!mPrefs.getBoolean(mContext.getString(R.string.settings_key_dictionaries_indexed), false)) {
+            // Copying the dictionaries can take a while, so it doesn't hold the shared disk IO
+            // thread. The thread ends once the migration is done.
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            executor.execute(this::addMissingIndexes);
+            executor.shutdown();
+        }
     }
 
     public void end() {
@@ -51,22 +80,65 @@ public class DictionariesManager implements DownloadsManager.DownloadsListener,
         mPrefs.unregisterOnSharedPreferenceChangeListener(this);
     }
 
+    public void addListener(@NonNull DictionaryListener listener) {
+        if (!mListeners.contains(listener)) {
+            mListeners.add(listener);
+        }
+    }
+
+    public void removeListener(@NonNull DictionaryListener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * Builds the lookup indexes of the dictionaries installed by versions that didn't build them
+     * on install. Runs once, in its own thread. Installs only write dictionaries that don't exist
+     * yet, so they don't touch the ones migrated here.
+     */
+    private void addMissingIndexes() {
+        // The databases directory is the parent of any database path.
+        File[] files = mContext.getDatabasePath(DictionaryUtils.EXTERNAL_DICS_SUFFIX).getParentFile().listFiles();
+        if (files == null) {
+            return;
+        }
+        Set<String> builtinNames = new HashSet<>();
+        for (String[] names : DictionaryUtils.BUILTIN_DICS_MAP.values()) {
+            builtinNames.addAll(Arrays.asList(names));
+        }
+        boolean failed = false;
+        for (File file : files) {
+            if (!builtinNames.contains(file.getName()) && !file.getName().endsWith(DictionaryUtils.EXTERNAL_DICS_SUFFIX)) {
+                continue;
+            }
+            try {
+                if (DictionaryInstaller.addMissingIndexes(file)) {
+                    Log.d(LOGTAG, "Added the missing indexes to " + file.getName());
+                }
+            } catch (Exception e) {
+                // Tried again on the next start.
+                Log.e(LOGTAG, "Error adding the indexes to " + file.getName() + ": " + e.getMessage());
+                failed = true;
+            }
+        }
+        if (!failed) {
+            mPrefs.edit().putBoolean(mContext.getString(R.string.settings_key_dictionaries_indexed), true).apply();
+        }
+    }
+
     public void getOrDownloadDictionary(@NonNull String lang) {
         if (DictionaryUtils.isBuiltinDictionary(lang)) {
             for (String dbName : DictionaryUtils.getBuiltinDicNames(lang)) {
                 if (!mContext.getDatabasePath(dbName).exists()) {
-                    try {
-                        InputStream in = mContext.getAssets().open(
-                            DictionaryUtils.getBuiltinDicPath() + dbName);
-                        storeDatabase(in, dbName);
-                    } catch (Exception e) {
-                        Log.e(LOGTAG, Objects.requireNonNull(e.getMessage()));
-                    }
+                    String path = DictionaryUtils.getBuiltinDicPath() + dbName;
+                    installDatabase(lang, dbName, () -> mContext.getAssets().open(path),
+                            () -> getAssetLength(path), null, null);
                 }
             }
         } else if (DictionaryUtils.isExternalDictionary(mContext, lang)) {
             if (DictionaryUtils.getExternalDicPath(mContext, lang) != null)
                 return;
+            if (mInstalling.contains(DictionaryUtils.getExternalDicFullName(lang)))
+                return;
 
             if (mDicDownloadLang != -1) {
                 mDownloadManager.removeDownload(mDicDownloadLang, true);
@@ -112,24 +184,56 @@ public class DictionariesManager implements DownloadsManager.DownloadsListener,
         }
     }
 
-    private void storeDatabase(@NonNull InputStream inputStream, @NonNull String databaseName) {
-        OutputStream outputStream;
-        try {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                outputStream = Files.newOutputStream(mContext.getDatabasePath(databaseName).toPath());
-            } else {
-                outputStream = new FileOutputStream(mContext.getDatabasePath(databaseName));
-            }
+    /**
+     * Returns the size of an asset, or -1 if it is compressed, as those can't be opened as a file
+     * descriptor.
+     */
+    private long getAssetLength(@NonNull String path) {
+        try (AssetFileDescriptor fd = mContext.getAssets().openFd(path)) {
+            return fd.getLength();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
 
-            byte[] buffer = new byte[1024 * 8];
-            int numOfBytesToRead;
-            while ((numOfBytesToRead = inputStream.read(buffer)) > 0)
-                outputStream.write(buffer, 0, numOfBytesToRead);
-            inputStream.close();
-            outputStream.close();
-        } catch (Exception e) {
-            Log.e(LOGTAG, Objects.requireNonNull(e.getMessage()));
+    /**
+     * Installs a database with {@link DictionaryInstaller} in the disk IO thread. The listeners
+     * and onDone, if any, are called in the UI thread.
+     * @param size Returns the size of the source, called in the disk IO thread.
+     */
+    private void installDatabase(@NonNull String lang, @NonNull String databaseName,
+                                 @NonNull Callable<InputStream> source, @NonNull LongSupplier size,
+                                 @Nullable String sha256, @Nullable Runnable onDone) {
+        if (!mInstalling.add(databaseName)) {
+            return;
         }
+        final File target = mContext.getDatabasePath(databaseName);
+        mDiskIOExecutor.execute(() -> {
+            String error = null;
+            try (InputStream in = source.call()) {
+                DictionaryInstaller.install(in, size.getAsLong(), target, sha256, progress ->
+                        mUIThreadExecutor.execute(() ->
+                                mListeners.forEach(listener -> listener.onDictionaryInstallProgress(lang, progress))));
+            } catch (Exception e) {
+                error = e.getMessage() != null ? e.getMessage() : e.toString();
+            }
+
+            final String installError = error;
+            mUIThreadExecutor.execute(() -> {
+                mInstalling.remove(databaseName);
+                if (onDone != null) {
+                    onDone.run();
+                }
+                if (installError != null) {
+                    Log.e(LOGTAG, "Error installing " + databaseName + ": " + installError);
+                    mListeners.forEach(listener -> listener.onDictionaryInstallError(lang, installError));
+                    return;
+                }
+                Log.d(LOGTAG, "Installed " + databaseName);
+                mListeners.forEach(listener -> listener.onDictionaryInstalled(lang));
+                mApplicationDelegate.updateKeyboardDictionary();
+            });
+        });
     }
 
     // DownloadsManager
@@ -151,20 +255,12 @@ public class DictionariesManager implements DownloadsManager.DownloadsListener,
         }
         mDicDownloadLang = -1;
 
-        // Store as database
-        try {
-            InputStream in;
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                in = Files.newInputStream(download.getOutputFile().toPath());
-            } else {
-                in = new FileInputStream(download.getOutputFile());
-            }
-            storeDatabase(in, DictionaryUtils.getExternalDicFullName(dic.getLang()));
-        } catch (Exception e) {
-            Log.e(LOGTAG, Objects.requireNonNull(e.getMessage()));
-        }
-
-        mDownloadManager.removeDownload(download.getId(), true);
+        // Store as database. The download is removed once it has been installed, or if it
+        // couldn't be installed, so it is downloaded again the next time.
+        final File file = download.getOutputFile();
+        installDatabase(dic.getLang(), DictionaryUtils.getExternalDicFullName(dic.getLang()),
+                () -> new FileInputStream(file), file::length, dic.getSha256(),
+                () -> mDownloadManager.removeDownload(download.getId(), true));
     }
 
     @Override
@@ -0,0 +1,227 @@
+package com.igalia.wolvic.utils;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Installs a dictionary database in the databases directory. Runs in the calling thread, so it
+ * must be called from a background thread.
+ *
+ * The database is written to a temporary file next to the final one while its SHA-256 is
+ * computed, the indexes used by the keyboard lookups are added if the database lacks them, and
+ * then the temporary file is renamed. Readers only ever see a complete, indexed dictionary.
+ */
+class DictionaryInstaller {
+
+    interface ProgressListener {
+        void onProgress(double progress);
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String[] SQLITE_SUFFIXES = {"-journal", "-wal", "-shm"};
+
+    // Columns the keyboards look up by value. The ones also looked up by prefix, with LIKE, need
+    // a case insensitive index too, as SQLite only optimizes LIKE with an index using NOCASE.
+    private static final List<String> LOOKUP_COLUMNS = Arrays.asList("keymap", "inputcode", "code");
+    private static final List<String> PREFIX_LOOKUP_COLUMNS = Arrays.asList("code");
+
+    /**
+     * @param size The size of the input in bytes, used for the progress. If it is not positive
+     *             no progress is reported.
+     * @param sha256 The expected checksum in hexadecimal, or null to skip the verification.
+     * @param listener Called with the progress of the copy, at most once per percent.
+     */
+    static void install(@NonNull InputStream input, long size, @NonNull File target,
+                        @Nullable String sha256, @Nullable ProgressListener listener) throws IOException {
+        File temp = new File(target.getParentFile(), target.getName() + TEMP_SUFFIX);
+        try {
+            String checksum = copy(input, size, temp, listener);
+            if (sha256 != null && !sha256.equalsIgnoreCase(checksum)) {
+                throw new IOException("Checksum mismatch for " + target.getName() + ": " + checksum);
+            }
+            buildIndexes(temp);
+            deleteSqliteFiles(temp);
+            if (!temp.renameTo(target)) {
+                throw new IOException("Unable to move " + temp.getName() + " to " + target.getName());
+            }
+        } finally {
+            temp.delete();
+            deleteSqliteFiles(temp);
+        }
+    }
+
+    /**
+     * Adds the lookup indexes to a dictionary installed by a version that didn't build them. Only
+     * a database missing indexes is copied, the indexes are built on the copy which then replaces
+     * it, so the keyboards reading it never see it half indexed.
+     * @return true if the database was missing indexes.
+     */
+    static boolean addMissingIndexes(@NonNull File database) throws IOException {
+        try (SQLiteDatabase db = SQLiteDatabase.openDatabase(database.getPath(), null,
+                SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS)) {
+            if (getMissingIndexes(db).isEmpty()) {
+                return false;
+            }
+        }
+        try (InputStream input = new FileInputStream(database)) {
+            install(input, database.length(), database, null, null);
+        }
+        return true;
+    }
+
+    @NonNull
+    private static String copy(@NonNull InputStream input, long size, @NonNull File output,
+                               @Nullable ProgressListener listener) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        File parent = output.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create " + parent);
+        }
+        try (FileOutputStream stream = new FileOutputStream(output)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long copied = 0;
+            int lastPercent = -1;
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                stream.write(buffer, 0, read);
+                digest.update(buffer, 0, read);
+                copied += read;
+                if (listener != null && size > 0) {
+                    int percent = (int) Math.min(100, copied * 100 / size);
+                    if (percent != lastPercent) {
+                        lastPercent = percent;
+                        listener.onProgress(percent / 100.0);
+                    }
+                }
+            }
+            // The rename must not be written before the data.
+            stream.getFD().sync();
+        }
+
+        StringBuilder checksum = new StringBuilder();
+        for (byte b : digest.digest()) {
+            checksum.append(String.format(Locale.US, "%02x", b));
+        }
+        return checksum.toString();
+    }
+
+    private static void buildIndexes(@NonNull File database) {
+        try (SQLiteDatabase db = SQLiteDatabase.openDatabase(database.getPath(), null,
+                SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.NO_LOCALIZED_COLLATORS)) {
+            List<String> statements = getMissingIndexes(db);
+            if (statements.isEmpty()) {
+                return;
+            }
+            db.beginTransaction();
+            try {
+                for (String statement : statements) {
+                    db.execSQL(statement);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+    }
+
+    /**
+     * Returns the statements that create the lookup indexes the database lacks.
+     */
+    @NonNull
+    private static List<String> getMissingIndexes(@NonNull SQLiteDatabase db) {
+        List<String> tables = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name NOT LIKE 'sqlite\\_%' ESCAPE '\\'", null)) {
+            while (cursor.moveToNext()) {
+                tables.add(cursor.getString(0));
+            }
+        }
+
+        List<String> statements = new ArrayList<>();
+        for (String table : tables) {
+            Set<String> columns = getColumns(db, table);
+            Set<String> indexed = getIndexedColumns(db, table);
+            for (String column : LOOKUP_COLUMNS) {
+                if (columns.contains(column) && !indexed.contains(column + "/BINARY")) {
+                    statements.add("CREATE INDEX \"idx_" + table + "_" + column + "\" ON \"" + table + "\" (\"" + column + "\")");
+                }
+            }
+            for (String column : PREFIX_LOOKUP_COLUMNS) {
+                if (columns.contains(column) && !indexed.contains(column + "/NOCASE")) {
+                    statements.add("CREATE INDEX \"idx_" + table + "_" + column + "_nocase\" ON \"" + table + "\" (\"" + column + "\" COLLATE NOCASE)");
+                }
+            }
+        }
+        return statements;
+    }
+
+    @NonNull
+    private static Set<String> getColumns(@NonNull SQLiteDatabase db, @NonNull String table) {
+        Set<String> columns = new HashSet<>();
+        try (Cursor cursor = db.rawQuery("PRAGMA table_info(\"" + table + "\")", null)) {
+            int name = cursor.getColumnIndexOrThrow("name");
+            while (cursor.moveToNext()) {
+                columns.add(cursor.getString(name));
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Returns the first column of every index of the table, with its collation, as "column/COLLATION".
+     */
+    @NonNull
+    private static Set<String> getIndexedColumns(@NonNull SQLiteDatabase db, @NonNull String table) {
+        List<String> indexes = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("PRAGMA index_list(\"" + table + "\")", null)) {
+            int name = cursor.getColumnIndexOrThrow("name");
+            while (cursor.moveToNext()) {
+                indexes.add(cursor.getString(name));
+            }
+        }
+
+        Set<String> columns = new HashSet<>();
+        for (String index : indexes) {
+            try (Cursor cursor = db.rawQuery("PRAGMA index_xinfo(\"" + index + "\")", null)) {
+                int seqno = cursor.getColumnIndexOrThrow("seqno");
+                int name = cursor.getColumnIndexOrThrow("name");
+                int collation = cursor.getColumnIndexOrThrow("coll");
+                while (cursor.moveToNext()) {
+                    if (cursor.getInt(seqno) == 0 && !cursor.isNull(name)) {
+                        columns.add(cursor.getString(name) + "/" + cursor.getString(collation).toUpperCase(Locale.US));
+                    }
+                }
+            }
+        }
+        return columns;
+    }
+
+    private static void deleteSqliteFiles(@NonNull File database) {
+        for (String suffix : SQLITE_SUFFIXES) {
+            new File(database.getPath() + suffix).delete();
+        }
+    }
+}
@@ -9,7 +9,9 @@ data class Environment(
 
 data class Dictionary(
         val lang: String,
-        val payload: String
+        val payload: String,
+        // SHA-256 of the payload in hexadecimal, it is verified when present.
+        val sha256: String? = null
 )
 
 data class RemoteProperties(
@@ -329,19 +329,19 @@ public abstract class PlatformActivity extends FragmentActivity implements Surfa
     protected void onStop() {
         super.onStop();
         Log.i(TAG, "PlatformActivity onStop");
-        queueRunnable(this::nativeOnStop);
+        queueRenderRunnable(this::nativeOnStop);
     }
 
     @Override
     protected void onPause() {
         super.onPause();
         Log.i(TAG, "PlatformActivity onPause");
-        queueRunnable(this::nativeOnPause);
+        queueRenderRunnable(this::nativeOnPause);
     }
 
     @Override
     public void onBackPressed() {
-        queueRunnable(() -> {
+        queueRenderRunnable(() -> {
             finish();
             System.exit(0);
         });
@@ -351,7 +351,7 @@ public abstract class PlatformActivity extends FragmentActivity implements Surfa
     protected void onResume() {
         super.onResume();
         Log.i(TAG, "PlatformActivity onResume");
-        queueRunnable(this::nativeOnResume);
+        queueRenderRunnable(this::nativeOnResume);
     }
 
     @Override
@@ -362,19 +362,25 @@ public abstract class PlatformActivity extends FragmentActivity implements Surfa
     @Override
     public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
         Log.i(TAG, "PlatformActivity surfaceChanged");
-        queueRunnable(() -> nativeOnSurfaceChanged(holder.getSurface()));
+        queueRenderRunnable(() -> nativeOnSurfaceChanged(holder.getSurface()));
     }
 
     @Override
     public void surfaceDestroyed(SurfaceHolder holder)
     {
         Log.i(TAG, "PlatformActivity surfaceDestroyed");
-        queueRunnable(this::nativeOnSurfaceDestroyed);
+        queueRenderRunnable(this::nativeOnSurfaceDestroyed);
     }
 
     protected boolean platformExit() {
         return false;
     }
+    // Queues a runnable in the render thread. VRBrowserActivity overrides it to keep the order of
+    // these runnables relative to its render commands.
+    protected void queueRenderRunnable(Runnable aRunnable) {
+        queueRunnable(aRunnable);
+    }
+
     protected native void queueRunnable(Runnable aRunnable);
     protected native void nativeOnCreate();
     protected native void nativeOnDestroy();
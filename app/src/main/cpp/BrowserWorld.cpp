@@ -59,6 +59,7 @@
 
 #include <android/asset_manager_jni.h>
 #include <array>
+#include <cstring>
 #include <functional>
 #include <fstream>
 #include <unordered_map>
@@ -210,6 +211,8 @@ struct BrowserWorld::State {
   bool reorientRequested = false;
   bool inHeadLockMode = false;
   VRLayerPassthroughPtr layerPassthrough;
+  bool frameCallbackRequested = false;
+  std::vector<int32_t> outOfViewHandles;
 #if HVR
   bool wasButtonAppPressed = false;
 #elif defined(OCULUSVR) && defined(STORE_BUILD)
@@ -264,6 +267,8 @@ struct BrowserWorld::State {
   int ParentCount(const WidgetPtr& aWidget) const;
   float ComputeNormalizedZ(const Widget& aWidget) const;
   void SortWidgets();
+  bool IsBehindHead(const Widget& aWidget) const;
+  void NotifyFrameStart();
   void UpdateWidgetCylinder(const WidgetPtr& aWidget, const float aDensity);
 };
 
@@ -766,6 +771,53 @@ BrowserWorld::State::ComputeNormalizedZ(const Widget& aWidget) const {
   return ndc.z();
 }
 
+bool
+BrowserWorld::State::IsBehindHead(const Widget& aWidget) const {
+  // Cylinders wrap around the user, only flat widgets are checked.
+  if (!aWidget.GetQuad()) {
+    return false;
+  }
+  vrb::Matrix root;
+  switch (aWidget.GetPlacement()->GetScene()) {
+    case WidgetPlacement::Scene::ROOT_OPAQUE:
+      root = rootOpaque->GetTransform();
+      break;
+    case WidgetPlacement::Scene::WEBXR_INTERSTITIAL:
+      root = rootWebXRInterstitial->GetTransform();
+      break;
+    default:
+      root = rootTransparent->GetTransform();
+      break;
+  }
+  const vrb::Matrix transform = root.PostMultiply(aWidget.GetTransform());
+  const vrb::Vector headPosition = device->GetHeadTransform().GetTranslation();
+  const vrb::Vector headDirection = device->GetHeadTransform().MultiplyDirection(vrb::Vector(0.0f, 0.0f, -1.0f));
+
+  vrb::Vector min, max;
+  aWidget.GetWidgetMinAndMax(min, max);
+  const vrb::Vector corners[] = {
+    min, max, vrb::Vector(min.x(), max.y(), 0.0f), vrb::Vector(max.x(), min.y(), 0.0f)
+  };
+  for (const vrb::Vector& corner: corners) {
+    if ((transform.MultiplyPosition(corner) - headPosition).Dot(headDirection) > 0.0f) {
+      return false;
+    }
+  }
+  return true;
+}
+
+void
+BrowserWorld::State::NotifyFrameStart() {
+  frameCallbackRequested = false;
+  outOfViewHandles.clear();
+  for (const WidgetPtr& widget: widgets) {
+    if (widget->IsVisible() && IsBehindHead(*widget)) {
+      outOfViewHandles.push_back(widget->GetHandle());
+    }
+  }
+  VRBrowser::HandleFrameStart(outOfViewHandles);
+}
+
 void
 BrowserWorld::State::SortWidgets() {
   depthSorting.clear();
@@ -1155,6 +1207,10 @@ BrowserWorld::StartFrame() {
     TickWorld();
     m.externalVR->PushSystemState();
   }
+
+  if (m.frameCallbackRequested) {
+    m.NotifyFrameStart();
+  }
 }
 
 void
@@ -1662,6 +1718,12 @@ BrowserWorld::SetCylinderDensity(const float aDensity) {
   }
 }
 
+void
+BrowserWorld::RequestFrameCallback() {
+  ASSERT_ON_RENDER_THREAD();
+  m.frameCallbackRequested = true;
+}
+
 void
 BrowserWorld::SetCPULevel(const device::CPULevel aLevel) {
   m.device->SetCPULevel(aLevel);
@@ -1987,11 +2049,29 @@ JNI_METHOD(void, addWidgetNative)
   }
 }
 
-JNI_METHOD(void, updateWidgetNative)
-(JNIEnv* aEnv, jobject, jint aHandle, jobject aPlacement) {
-  crow::WidgetPlacementPtr placement = crow::WidgetPlacement::FromJava(aEnv, aPlacement);
-  if (placement) {
-    crow::BrowserWorld::Instance().UpdateWidgetRecursive(aHandle, placement);
+JNI_METHOD(void, updateWidgetsNative)
+(JNIEnv* aEnv, jobject, jobject aBuffer, jint aLength, jint aCount) {
+  auto* data = (const uint8_t*)aEnv->GetDirectBufferAddress(aBuffer);
+  if (!data || aLength > aEnv->GetDirectBufferCapacity(aBuffer)) {
+    VRB_ERROR("updateWidgetsNative: invalid buffer");
+    return;
+  }
+  const uint8_t* cursor = data;
+  const uint8_t* end = data + aLength;
+  for (int i = 0; i < aCount; ++i) {
+    int32_t handle = 0;
+    if (end - cursor < (ptrdiff_t)sizeof(handle)) {
+      VRB_ERROR("updateWidgetsNative: truncated buffer");
+      return;
+    }
+    memcpy(&handle, cursor, sizeof(handle));
+    cursor += sizeof(handle);
+    crow::WidgetPlacementPtr placement = crow::WidgetPlacement::FromBuffer(cursor, end);
+    if (!placement) {
+      VRB_ERROR("updateWidgetsNative: truncated buffer");
+      return;
+    }
+    crow::BrowserWorld::Instance().UpdateWidgetRecursive(handle, placement);
   }
 }
 
@@ -2119,6 +2199,11 @@ JNI_METHOD(void, setCylinderDensityNative)
   crow::BrowserWorld::Instance().SetCylinderDensity(aDensity);
 }
 
+JNI_METHOD(void, requestFrameCallbackNative)
+(JNIEnv*, jobject) {
+  crow::BrowserWorld::Instance().RequestFrameCallback();
+}
+
 JNI_METHOD(void, runCallbackNative)
 (JNIEnv*, jobject, jlong aCallback) {
   if (aCallback) {
@@ -73,6 +73,8 @@ public:
   enum class YawTarget { ALL, WIDGETS };
   void RecenterUIYaw(const YawTarget aTarget);
   void SetCylinderDensity(const float aDensity);
+  // Calls VRBrowser::HandleFrameStart() when the next frame starts.
+  void RequestFrameCallback();
   enum class WebXRInterstialState { FORCED, ALLOW_DISMISS, HIDDEN };
   void SetWebXRInterstitalState(const WebXRInterstialState aState);
   void SetIsServo(const bool aIsServo);
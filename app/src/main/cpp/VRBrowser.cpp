@@ -70,6 +70,8 @@ const char* const kUpdateControllerBatteryLevelsName = "updateControllerBatteryL
 const char* const kUpdateControllerBatteryLevelsSignature = "(II)V";
 const char* const kOnAppFocusChangedName = "onAppFocusChanged";
 const char* const kOnAppFocusChangedSignature = "(Z)V";
+const char* const kHandleFrameStartName = "handleFrameStart";
+const char* const kHandleFrameStartSignature = "([I)V";
 
 JNIEnv* sEnv = nullptr;
 jclass sBrowserClass = nullptr;
@@ -104,6 +106,7 @@ jmethodID sDisableLayers = nullptr;
 jmethodID sAppendAppNotesToCrashReport = nullptr;
 jmethodID sUpdateControllerBatteryLevels = nullptr;
 jmethodID sOnAppFocusChanged = nullptr;
+jmethodID sHandleFrameStart = nullptr;
 }
 
 namespace crow {
@@ -153,6 +156,7 @@ VRBrowser::InitializeJava(JNIEnv* aEnv, jobject aActivity) {
   sAppendAppNotesToCrashReport = FindJNIMethodID(sEnv, sBrowserClass, kAppendAppNotesToCrashReport, kAppendAppNotesToCrashReportSignature);
   sUpdateControllerBatteryLevels = FindJNIMethodID(sEnv, sBrowserClass, kUpdateControllerBatteryLevelsName, kUpdateControllerBatteryLevelsSignature);
   sOnAppFocusChanged = FindJNIMethodID(sEnv, sBrowserClass, kOnAppFocusChangedName, kOnAppFocusChangedSignature);
+  sHandleFrameStart = FindJNIMethodID(sEnv, sBrowserClass, kHandleFrameStartName, kHandleFrameStartSignature);
 }
 
 JNIEnv * VRBrowser::Env()
@@ -184,6 +188,7 @@ VRBrowser::ShutdownJava() {
   sHandleAppExit = nullptr;
   sRegisterExternalContext = nullptr;
   sOnAppFocusChanged = nullptr;
+  sHandleFrameStart = nullptr;
   sOnEnterWebXR = nullptr;
   sOnExitWebXR = nullptr;
   sOnDismissWebXRInterstitial = nullptr;
@@ -457,4 +462,16 @@ VRBrowser::OnAppFocusChanged(const bool aIsFocused) {
   CheckJNIException(sEnv, __FUNCTION__);
 }
 
+void
+VRBrowser::HandleFrameStart(const std::vector<int32_t>& aOutOfViewHandles) {
+  if (!ValidateMethodID(sEnv, sActivity, sHandleFrameStart, __FUNCTION__)) { return; }
+  jintArray handles = sEnv->NewIntArray((jsize) aOutOfViewHandles.size());
+  if (!aOutOfViewHandles.empty()) {
+    sEnv->SetIntArrayRegion(handles, 0, (jsize) aOutOfViewHandles.size(), aOutOfViewHandles.data());
+  }
+  sEnv->CallVoidMethod(sActivity, sHandleFrameStart, handles);
+  sEnv->DeleteLocalRef(handles);
+  CheckJNIException(sEnv, __FUNCTION__);
+}
+
 } // namespace crow
@@ -10,6 +10,7 @@
 
 #include <memory>
 #include <string>
+#include <vector>
 #include <jni.h>
 #include <functional>
 
@@ -49,6 +50,7 @@ void DisableLayers();
 void AppendAppNotesToCrashLog(const std::string& aNotes);
 void UpdateControllerBatteryLevels(const jint aLeftBatteryLevel, const jint aRightBatteryLevel);
 void OnAppFocusChanged(const bool aIsFocused);
+void HandleFrameStart(const std::vector<int32_t>& aOutOfViewHandles);
 } // namespace VRBrowser;
 
 } // namespace crow
@@ -5,6 +5,8 @@
 
 #include "WidgetPlacement.h"
 
+#include <cstring>
+
 namespace crow {
 
 const float WidgetPlacement::kWorldDPIRatio = 2.0f/720.0f;
@@ -80,6 +82,81 @@ WidgetPlacement::FromJava(JNIEnv* aEnv, jobject& aObject) {
   return result;
 }
 
+namespace {
+
+template <typename T>
+bool
+ReadValue(const uint8_t*& aCursor, const uint8_t* aEnd, T& aValue) {
+  if (aEnd - aCursor < (ptrdiff_t)sizeof(T)) {
+    return false;
+  }
+  memcpy(&aValue, aCursor, sizeof(T));
+  aCursor += sizeof(T);
+  return true;
+}
+
+}
+
+// Reads a placement written by WidgetPlacement.writeTo() in Java. Both must be kept in sync.
+WidgetPlacementPtr
+WidgetPlacement::FromBuffer(const uint8_t*& aCursor, const uint8_t* aEnd) {
+  std::shared_ptr<WidgetPlacement> result(new WidgetPlacement());
+  bool ok = true;
+
+#define READ_INT(to) { int32_t value = 0; ok = ok && ReadValue(aCursor, aEnd, value); result->to = value; }
+#define READ_FLOAT(to) { float value = 0.0f; ok = ok && ReadValue(aCursor, aEnd, value); result->to = value; }
+#define READ_BOOLEAN(to) { uint8_t value = 0; ok = ok && ReadValue(aCursor, aEnd, value); result->to = value != 0; }
+
+  READ_INT(width);
+  READ_INT(height);
+  READ_FLOAT(anchor.x());
+  READ_FLOAT(anchor.y());
+  READ_FLOAT(translation.x());
+  READ_FLOAT(translation.y());
+  READ_FLOAT(translation.z());
+  READ_FLOAT(rotationAxis.x());
+  READ_FLOAT(rotationAxis.y());
+  READ_FLOAT(rotationAxis.z());
+  READ_FLOAT(rotation);
+  READ_INT(parentHandle);
+  READ_FLOAT(parentAnchor.x());
+  READ_FLOAT(parentAnchor.y());
+  READ_INT(parentAnchorGravity);
+  READ_FLOAT(density);
+  READ_FLOAT(worldWidth);
+  READ_BOOLEAN(visible);
+  READ_INT(scene);
+  READ_BOOLEAN(showPointer);
+  READ_BOOLEAN(composited);
+  READ_BOOLEAN(layer);
+  READ_INT(layerPriority);
+  READ_BOOLEAN(proxifyLayer);
+  READ_FLOAT(textureScale);
+  READ_BOOLEAN(cylinder);
+  READ_FLOAT(cylinderMapRadius);
+  READ_INT(tintColor);
+  READ_INT(borderColor);
+
+  int32_t nameLength = -1;
+  ok = ok && ReadValue(aCursor, aEnd, nameLength);
+  if (ok && nameLength > 0) {
+    if (aEnd - aCursor < nameLength) {
+      ok = false;
+    } else {
+      result->name.assign((const char*)aCursor, (size_t)nameLength);
+      aCursor += nameLength;
+    }
+  }
+
+  READ_INT(clearColor);
+
+#undef READ_INT
+#undef READ_FLOAT
+#undef READ_BOOLEAN
+
+  return ok ? result : nullptr;
+}
+
 WidgetPlacementPtr
 WidgetPlacement::Create(const WidgetPlacement& aPlacement) {
   return WidgetPlacementPtr(new WidgetPlacement(aPlacement));
@@ -57,6 +57,7 @@ struct WidgetPlacement {
 
   static const float kWorldDPIRatio;
   static WidgetPlacementPtr FromJava(JNIEnv* aEnv, jobject& aObject);
+  static WidgetPlacementPtr FromBuffer(const uint8_t*& aCursor, const uint8_t* aEnd);
   static WidgetPlacementPtr Create(const WidgetPlacement& aPlacement);
 
   static const int kParentAnchorGravityDefault = 0x0000;
@@ -142,7 +142,7 @@ public class PlatformActivity extends ComponentActivity {
 
         final float xx = aEvent.getX(0);
         final float yy = aEvent.getY(0);
-        queueRunnable(() -> touchEvent(isDown, xx, yy));
+        queueRenderRunnable(() -> touchEvent(isDown, xx, yy));
         return true;
     }
 
@@ -159,7 +159,7 @@ public class PlatformActivity extends ComponentActivity {
 
         final float xx = aEvent.getX(0);
         final float yy = aEvent.getY(0);
-        queueRunnable(() -> touchEvent(false, xx, yy));
+        queueRenderRunnable(() -> touchEvent(false, xx, yy));
         return true;
     }
 
@@ -167,7 +167,7 @@ public class PlatformActivity extends ComponentActivity {
     protected void onPause() {
         Log.d(LOGTAG, "PlatformActivity onPause");
         synchronized (mRenderLock) {
-            queueRunnable(activityPausedRunnable);
+            queueRenderRunnable(activityPausedRunnable);
             try {
                 mRenderLock.wait();
             } catch(InterruptedException e) {
@@ -183,7 +183,7 @@ public class PlatformActivity extends ComponentActivity {
         Log.d(LOGTAG, "PlatformActivity onResume");
         super.onResume();
         mView.onResume();
-        queueRunnable(activityResumedRunnable);
+        queueRenderRunnable(activityResumedRunnable);
         setImmersiveSticky();
     }
 
@@ -192,7 +192,7 @@ public class PlatformActivity extends ComponentActivity {
         Log.d(LOGTAG, "PlatformActivity onDestroy");
         super.onDestroy();
         synchronized (mRenderLock) {
-            queueRunnable(activityDestroyedRunnable);
+            queueRenderRunnable(activityDestroyedRunnable);
             try {
                 mRenderLock.wait();
             } catch(InterruptedException e) {
@@ -222,6 +222,12 @@ public class PlatformActivity extends ComponentActivity {
         }
     }
 
+    // Queues a runnable in the render thread. VRBrowserActivity overrides it to keep the order of
+    // these runnables relative to its render commands.
+    protected void queueRenderRunnable(Runnable aRunnable) {
+        queueRunnable(aRunnable);
+    }
+
     void queueRunnable(Runnable aRunnable) {
         if (mSurfaceCreated) {
             mView.queueEvent(aRunnable);
@@ -292,19 +298,19 @@ public class PlatformActivity extends ComponentActivity {
     }
 
     private void dispatchMoveAxis(final float aX, final float aY, final float aZ) {
-        queueRunnable(() -> moveAxis(aX, aY, aZ));
+        queueRenderRunnable(() -> moveAxis(aX, aY, aZ));
     }
 
     private void dispatchRotateHeading(final float aHeading) {
-        queueRunnable(() -> rotateHeading(aHeading));
+        queueRenderRunnable(() -> rotateHeading(aHeading));
     }
 
     private void dispatchRotatePitch(final float aPitch) {
-        queueRunnable(() -> rotatePitch(aPitch));
+        queueRenderRunnable(() -> rotatePitch(aPitch));
     }
 
     private void buttonClicked(final boolean aPressed) {
-        queueRunnable(() -> controllerButtonPressed(aPressed));
+        queueRenderRunnable(() -> controllerButtonPressed(aPressed));
     }
 
     @Keep
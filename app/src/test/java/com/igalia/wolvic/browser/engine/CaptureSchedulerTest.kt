@@ -0,0 +1,162 @@
+package com.igalia.wolvic.browser.engine
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.os.Looper
+import android.view.Surface
+import com.igalia.wolvic.BuildConfig
+import com.igalia.wolvic.VRBrowserApplication
+import com.igalia.wolvic.browser.api.WDisplay
+import com.igalia.wolvic.browser.api.WResult
+import com.igalia.wolvic.browser.api.WSession
+import com.igalia.wolvic.utils.BitmapCache
+import org.junit.Assume.assumeFalse
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.ArgumentMatchers.any
+import org.mockito.ArgumentMatchers.anyInt
+import org.mockito.Mockito.CALLS_REAL_METHODS
+import org.mockito.Mockito.`when`
+import org.mockito.Mockito.mock
+import org.mockito.Mockito.never
+import org.mockito.Mockito.verify
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+import org.robolectric.annotation.Config
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE)
+class CaptureSchedulerTest {
+
+    private lateinit var scheduler: CaptureScheduler
+
+    @Before
+    fun setup() {
+        scheduler = CaptureScheduler()
+    }
+
+    private fun createSession(active: Boolean): Session {
+        val session = mock(Session::class.java)
+        `when`(session.isActive).thenReturn(active)
+        `when`(session.hasCapturedBitmap()).thenReturn(true)
+        `when`(session.captureBitmap()).thenReturn(CompletableFuture.completedFuture(null))
+        return session
+    }
+
+    private fun setField(session: Session, name: String, value: Any?) {
+        val field = Session::class.java.getDeclaredField(name)
+        field.isAccessible = true
+        field.set(session, value)
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun captureResult(bitmap: Bitmap): WResult<Bitmap> {
+        val result = mock(WResult::class.java) as WResult<Bitmap>
+        val chained = mock(WResult::class.java) as WResult<Void>
+        `when`(result.then(any<WResult.OnValueListener<Bitmap, Void>>())).thenAnswer {
+            it.getArgument<WResult.OnValueListener<Bitmap, Void>>(0).onValue(bitmap)
+            chained
+        }
+        return result
+    }
+
+    private fun idle(millis: Long) {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(millis))
+    }
+
+    @Test
+    fun pageStopIsCapturedAfterDelay() {
+        val session = createSession(true)
+        scheduler.onPageStart(session)
+        scheduler.onPageStop(session)
+
+        idle(500)
+        verify(session, never()).captureBitmap()
+        idle(1000)
+        verify(session).captureBitmap()
+    }
+
+    @Test
+    fun pageStopIsCapturedAfterSessionSwitch() {
+        val previous = createSession(true)
+        val current = createSession(true)
+        scheduler.onPageStart(previous)
+        scheduler.onPageStop(previous)
+
+        // The window shows another session before the capture of the previous one is due.
+        `when`(previous.isActive).thenReturn(false)
+        scheduler.onPageStart(current)
+        scheduler.onPageStop(current)
+
+        idle(2000)
+        verify(previous).captureBitmap()
+        verify(current).captureBitmap()
+    }
+
+    @Test
+    fun pageStopIsCapturedAfterSwitchWhileLoading() {
+        val session = createSession(true)
+        scheduler.onPageStart(session)
+
+        // The session stops loading once it is no longer shown in the window.
+        `when`(session.isActive).thenReturn(false)
+        scheduler.onPageStop(session)
+
+        idle(2000)
+        verify(session).captureBitmap()
+    }
+
+    @Test
+    fun pageStopWithoutPageStartIsNotCaptured() {
+        val session = createSession(true)
+        scheduler.onPageStop(session)
+
+        idle(2000)
+        verify(session, never()).captureBitmap()
+    }
+
+    @Test
+    fun pageStopIsCapturedAfterDisplayRelease() {
+        // Background captures are disabled in the Chromium backend.
+        assumeFalse(BuildConfig.FLAVOR_backend == "chromium")
+
+        val bitmapCache = mock(BitmapCache::class.java)
+        val captureSurface = mock(Surface::class.java)
+        `when`(bitmapCache.acquireCaptureSurface(anyInt(), anyInt())).thenReturn(captureSurface)
+        val application = mock(VRBrowserApplication::class.java)
+        `when`(application.bitmapCache).thenReturn(bitmapCache)
+        val context = mock(Context::class.java)
+        `when`(context.applicationContext).thenReturn(application)
+
+        val bitmap = Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888)
+        val windowDisplay = mock(WDisplay::class.java)
+        val captureDisplay = mock(WDisplay::class.java)
+        `when`(captureDisplay.capturePixelsWithAspectPreservingSize(anyInt())).thenReturn(captureResult(bitmap))
+        val wSession = mock(WSession::class.java)
+        `when`(wSession.acquireDisplay()).thenReturn(windowDisplay, captureDisplay)
+
+        val state = SessionState()
+        state.mSession = wSession
+        val session = mock(Session::class.java, CALLS_REAL_METHODS)
+        setField(session, "mState", state)
+        setField(session, "mContext", context)
+        setField(session, "mFirstContentfulPaint", true)
+        setField(session, "mBitmapChangedListeners", SessionEventBus().createChannel<Session.BitmapChangedListener>())
+        session.surfaceChanged(mock(Surface::class.java), 0, 0, 800, 450)
+
+        scheduler.onPageStart(session)
+        scheduler.onPageStop(session)
+        // The window switches to another session and releases the display before the capture.
+        session.releaseDisplay()
+        verify(wSession).releaseDisplay(windowDisplay)
+
+        idle(2000)
+        verify(captureDisplay).surfaceChanged(captureSurface, 800, 450)
+        verify(bitmapCache).addBitmap(state.mId, bitmap)
+        verify(wSession).releaseDisplay(captureDisplay)
+        verify(bitmapCache).releaseCaptureSurface()
+    }
+}
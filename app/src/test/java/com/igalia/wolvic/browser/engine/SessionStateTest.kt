@@ -0,0 +1,90 @@
+package com.igalia.wolvic.browser.engine
+
+import com.google.gson.Gson
+import com.google.gson.JsonParser
+import com.igalia.wolvic.browser.api.WSessionState
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE)
+class SessionStateTest {
+
+    companion object {
+        private const val ENGINE_STATE = "{\"history\":{\"index\":1,\"entries\":[{\"url\":\"https://example.com/\"},{\"url\":\"https://example.org/\"}]}}"
+    }
+
+    private class TestSessionState(private val json: String) : WSessionState {
+        override fun isEmpty(): Boolean = false
+        override fun toJson(): String = json
+    }
+
+    private fun createState(privateMode: Boolean): SessionState {
+        val state = SessionState()
+        state.mUri = "https://example.org/"
+        state.mTitle = "Example"
+        state.mSettings = SessionSettings.Builder().withPrivateBrowsing(privateMode).build()
+        state.mSessionState = TestSessionState(ENGINE_STATE)
+        return state
+    }
+
+    @Test
+    fun sessionStateIsRestoredLazily() {
+        val gson = Gson()
+        val saved = gson.toJson(createState(false))
+
+        val restored = gson.fromJson(saved, SessionState::class.java)
+        assertEquals("https://example.org/", restored.mUri)
+        assertTrue(restored.mSessionState is LazySessionState)
+        assertEquals(JsonParser.parseString(ENGINE_STATE), JsonParser.parseString(restored.mSessionState.toJson()))
+    }
+
+    @Test
+    fun restoredSessionStateIsSavedUnchanged() {
+        val gson = Gson()
+        val saved = gson.toJson(createState(false))
+
+        val restored = gson.fromJson(saved, SessionState::class.java)
+        val savedAgain = gson.toJson(restored)
+        assertEquals(JsonParser.parseString(saved), JsonParser.parseString(savedAgain))
+
+        val restoredAgain = gson.fromJson(savedAgain, SessionState::class.java)
+        assertNotNull(restoredAgain.mSessionState)
+        assertEquals(JsonParser.parseString(ENGINE_STATE), JsonParser.parseString(restoredAgain.mSessionState.toJson()))
+    }
+
+    @Test
+    fun sessionStateIsRestoredAsWritten() {
+        val engineState = "{\"scroll\":1.50,\"zoom\":1e2,\"form\":null,\"entries\":[true,\"\\u00e9\"]}"
+        val gson = Gson()
+        val saved = JsonParser.parseString(gson.toJson(createState(false))).asJsonObject
+        saved.add("mSessionState", JsonParser.parseString("{}"))
+        val json = saved.toString().replace("\"mSessionState\":{}", "\"mSessionState\":$engineState")
+
+        val restored = gson.fromJson(json, SessionState::class.java)
+        assertEquals("{\"scroll\":1.50,\"zoom\":1e2,\"form\":null,\"entries\":[true,\"\u00e9\"]}", restored.mSessionState.toJson())
+    }
+
+    @Test
+    fun sessionStateSavedAsStringIsRestored() {
+        val gson = Gson()
+        val saved = JsonParser.parseString(gson.toJson(createState(false))).asJsonObject
+        saved.addProperty("mSessionState", ENGINE_STATE)
+
+        val restored = gson.fromJson(saved.toString(), SessionState::class.java)
+        assertEquals(ENGINE_STATE, restored.mSessionState.toJson())
+    }
+
+    @Test
+    fun privateSessionStateIsNotSaved() {
+        val gson = Gson()
+        val restored = gson.fromJson(gson.toJson(createState(true)), SessionState::class.java)
+        assertNull(restored.mSessionState)
+    }
+}
@@ -0,0 +1,247 @@
+package com.igalia.wolvic.ui.keyboards
+
+import android.content.Context
+import android.database.sqlite.SQLiteDatabase
+import androidx.test.core.app.ApplicationProvider
+import com.google.gson.JsonObject
+import com.igalia.wolvic.TestApplication
+import com.igalia.wolvic.browser.SettingsStore
+import com.igalia.wolvic.ui.keyboards.KeyboardInterface.CandidatesResult
+import com.igalia.wolvic.utils.DictionaryUtils
+import com.igalia.wolvic.utils.TestFileUtils
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.io.File
+import java.lang.management.ManagementFactory
+import java.util.Locale
+import java.util.Random
+
+/**
+ * Replays recorded keystrokes through the keyboards and prints the time and the memory allocated
+ * by every keystroke, to compare the candidates lookups between changes.
+ *
+ * The Chinese keyboards use the dictionaries bundled with the app, the Latin keyboard uses a
+ * generated dictionary with the words of its recording and enough random words to make the
+ * lookups realistic. The recordings are in the keyboards test resources, one typed text per line.
+ *
+ * It takes too long to run with the rest of the unit tests, so it is skipped unless Gradle is run
+ * with -PkeyboardBenchmark. Every keyboard fails if its p99 time goes over its budget, and the
+ * stats of every keyboard are written as JSON to build/reports/keyboard-benchmark, to compare
+ * them between runs.
+ */
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE, application = TestApplication::class)
+class KeyboardCandidatesBenchmark {
+
+    companion object {
+        private const val WARM_UP_PASSES = 3
+        private const val MEASURED_PASSES = 10
+        private const val LATIN_DICTIONARY_SIZE = 50000
+
+        // Budgets for the p99 time of a keystroke, in microseconds. They are well above the usual
+        // times so that only a regression in the lookups, not a slower machine, goes over them.
+        private val P99_BUDGETS_US = mapOf(
+                "latin" to 20_000L,
+                "pinyin" to 30_000L,
+                "zhuyin" to 30_000L,
+                "korean" to 1_000L,
+                "thai" to 5_000L)
+    }
+
+    private class Stats(val name: String) {
+        val times = ArrayList<Long>()
+        val allocations = ArrayList<Long>()
+
+        fun percentile(values: List<Long>, percent: Int): Long {
+            val sorted = values.sorted()
+            return sorted[minOf(sorted.size - 1, sorted.size * percent / 100)]
+        }
+
+        fun summary(): String {
+            val time = String.format(Locale.US, "p50=%dus p99=%dus max=%dus",
+                    percentile(times, 50) / 1000, percentile(times, 99) / 1000, times.max() / 1000)
+            val allocated = if (threadBean == null) "n/a" else String.format(Locale.US, "p50=%.1fKB p99=%.1fKB",
+                    percentile(allocations, 50) / 1024f, percentile(allocations, 99) / 1024f)
+            return "$name: ${times.size} keystrokes, time $time, allocated $allocated"
+        }
+
+        fun toJson(): String {
+            val json = JsonObject()
+            json.addProperty("name", name)
+            json.addProperty("keystrokes", times.size)
+            json.addProperty("p50Us", percentile(times, 50) / 1000)
+            json.addProperty("p99Us", percentile(times, 99) / 1000)
+            json.addProperty("maxUs", times.max() / 1000)
+            if (threadBean != null) {
+                json.addProperty("p50AllocatedBytes", percentile(allocations, 50))
+                json.addProperty("p99AllocatedBytes", percentile(allocations, 99))
+            }
+            return json.toString()
+        }
+    }
+
+    private lateinit var context: Context
+
+    @Before
+    fun setup() {
+        assumeTrue("Run with -PkeyboardBenchmark", System.getProperty("wolvic.keyboardBenchmark") == "true")
+        context = ApplicationProvider.getApplicationContext()
+        SettingsStore.getInstance(context).setLatinAutoComplete(true)
+        for (name in DictionaryUtils.getBuiltinDicNames("zh_CN") + DictionaryUtils.getBuiltinDicNames("zh_TW")) {
+            installBundledDictionary(name)
+        }
+        createLatinDictionary(DictionaryUtils.getExternalDicFullName(Locale.ENGLISH.toString()))
+    }
+
+    private fun installBundledDictionary(name: String) {
+        val file = context.getDatabasePath(name)
+        file.parentFile?.mkdirs()
+        context.assets.open(DictionaryUtils.getBuiltinDicPath() + name).use { input ->
+            file.outputStream().use { output -> input.copyTo(output) }
+        }
+    }
+
+    private fun createLatinDictionary(name: String) {
+        val file = context.getDatabasePath(name)
+        file.parentFile?.mkdirs()
+        file.delete()
+        val words = readRecording("latin").flatMap { it.split(Regex("[^\\p{L}]+")) }.filter { it.isNotEmpty() }.toMutableSet()
+        val random = Random(42)
+        val letters = "etaoinshrdlcumwfgypbvkjxqz"
+        while (words.size < LATIN_DICTIONARY_SIZE) {
+            val word = StringBuilder()
+            repeat(2 + random.nextInt(9)) {
+                // Skewed towards the most frequent letters, like real words.
+                word.append(letters[(random.nextInt(letters.length) * random.nextInt(letters.length)) / letters.length])
+            }
+            words.add(word.toString())
+        }
+        SQLiteDatabase.openOrCreateDatabase(file, null).use { database ->
+            database.execSQL("CREATE TABLE autocorrect (word TEXT, originalFreq INTEGER)")
+            database.beginTransaction()
+            database.compileStatement("INSERT INTO autocorrect (word, originalFreq) VALUES (?, ?)").use { insert ->
+                for (word in words) {
+                    insert.bindString(1, word)
+                    insert.bindLong(2, random.nextInt(255).toLong())
+                    insert.executeInsert()
+                }
+            }
+            database.setTransactionSuccessful()
+            database.endTransaction()
+        }
+    }
+
+    private fun readRecording(recording: String): List<String> {
+        return TestFileUtils.readTextFile(javaClass.classLoader!!, "keyboards/$recording.txt")!!
+                .lines().filter { it.isNotEmpty() }
+    }
+
+    /**
+     * Types every line of a recording, keystroke gets the text typed so far in the line and the
+     * new character, and returns the text after the keystroke.
+     */
+    private fun replay(recording: String, keystroke: (String, Char) -> String): Stats {
+        val lines = readRecording(recording)
+        // Loads the dictionaries and lets the JIT compile the lookups before measuring.
+        repeat(WARM_UP_PASSES) { type(lines, keystroke, null) }
+        val stats = Stats(recording)
+        repeat(MEASURED_PASSES) { type(lines, keystroke, stats) }
+        println("KeyboardCandidatesBenchmark ${stats.summary()}")
+        System.getProperty("wolvic.keyboardBenchmarkResults")?.let { path ->
+            val directory = File(path)
+            directory.mkdirs()
+            File(directory, "$recording.json").writeText(stats.toJson())
+        }
+
+        val p99 = stats.percentile(stats.times, 99) / 1000
+        val budget = P99_BUDGETS_US.getValue(recording)
+        assertTrue("$recording p99 ${p99}us is over its ${budget}us budget", p99 <= budget)
+        return stats
+    }
+
+    private fun type(lines: List<String>, keystroke: (String, Char) -> String, stats: Stats?) {
+        for (line in lines) {
+            var text = ""
+            for (key in line) {
+                val allocated = allocatedBytes()
+                val start = System.nanoTime()
+                text = keystroke(text, key)
+                val time = System.nanoTime() - start
+                stats?.times?.add(time)
+                stats?.allocations?.add(allocatedBytes() - allocated)
+            }
+        }
+    }
+
+    // Returns the text that stays composing after a keystroke, like KeyboardWidget does.
+    private fun compose(keyboard: KeyboardInterface, composing: String, key: Char, results: MutableList<CandidatesResult>): String {
+        val text = composing + key
+        val result = keyboard.getCandidates(text) ?: return ""
+        results.add(result)
+        return if (result.action == CandidatesResult.Action.AUTO_COMPOSE) "" else text
+    }
+
+    private fun hasChineseCandidates(results: List<CandidatesResult>): Boolean {
+        return results.any { result ->
+            result.words.any { word -> word.value.any { Character.UnicodeScript.of(it.code) == Character.UnicodeScript.HAN } }
+        }
+    }
+
+    @Test
+    fun latinCandidates() {
+        val keyboard = EnglishKeyboard(context)
+        keyboard.alphabeticKeyboard
+        keyboard.warmUp()
+        val results = ArrayList<CandidatesResult>()
+        replay("latin") { text, key -> compose(keyboard, text, key, results) }
+        // Besides the typed text, the dictionary words must be suggested.
+        assertTrue(results.any { it.words.size > 1 })
+    }
+
+    @Test
+    fun pinyinCandidates() {
+        val keyboard = ChinesePinyinKeyboard(context)
+        keyboard.alphabeticKeyboard
+        keyboard.warmUp()
+        val results = ArrayList<CandidatesResult>()
+        replay("pinyin") { text, key -> compose(keyboard, text, key, results) }
+        assertTrue(hasChineseCandidates(results))
+    }
+
+    @Test
+    fun zhuyinCandidates() {
+        val keyboard = ChineseZhuyinKeyboard(context)
+        keyboard.alphabeticKeyboard
+        keyboard.warmUp()
+        val results = ArrayList<CandidatesResult>()
+        replay("zhuyin") { text, key -> compose(keyboard, text, key, results) }
+        assertTrue(hasChineseCandidates(results))
+    }
+
+    @Test
+    fun koreanComposition() {
+        // Korean doesn't have candidates, the work of a keystroke is composing the Hangul.
+        val keyboard = KoreanKeyboard(context)
+        replay("korean") { text, key -> keyboard.overrideAddText(text, key.toString()) ?: text + key }
+    }
+
+    @Test
+    fun thaiCandidates() {
+        val keyboard = ThaiKeyboard(context)
+        keyboard.alphabeticKeyboard
+        replay("thai") { text, key ->
+            keyboard.getCandidates(text + key)
+            text + key
+        }
+    }
+}
+
+private val threadBean = ManagementFactory.getThreadMXBean() as? com.sun.management.ThreadMXBean
+
+// Bytes allocated by the current thread, or 0 if the JVM doesn't report them.
+private fun allocatedBytes(): Long = threadBean?.getThreadAllocatedBytes(Thread.currentThread().id) ?: 0
@@ -186,7 +186,7 @@ public class PlatformActivity extends ComponentActivity implements SensorEventLi
         Log.d(LOGTAG, "Starting IMU");
 
         mWasImuStarted = true;
-        VisionGlass.getInstance().startImu((w, x, y, z) -> queueRunnable(() -> setHead(x, y, z, w)));
+        VisionGlass.getInstance().startImu((w, x, y, z) -> queueRenderRunnable(() -> setHead(x, y, z, w)));
 
         VisionGlass.getInstance().setDisplayMode(DisplayMode.vr3d, new DisplayModeCallback() {
             @Override
@@ -209,7 +209,7 @@ public class PlatformActivity extends ComponentActivity implements SensorEventLi
         touchpad.setOnClickListener(v -> {
             // We don't really need the coordinates of the click because we use the position
             // of the aim in the 3D environment.
-            queueRunnable(() -> touchEvent(false, 0, 0));
+            queueRenderRunnable(() -> touchEvent(false, 0, 0));
         });
 
         touchpad.setOnTouchListener((view, event) -> {
@@ -218,7 +218,7 @@ public class PlatformActivity extends ComponentActivity implements SensorEventLi
                 case MotionEvent.ACTION_MOVE:
                     // We don't really need the coordinates of the click because we use the position
                     // of the aim in the 3D environment.
-                    queueRunnable(() -> touchEvent(true, 0, 0));
+                    queueRenderRunnable(() -> touchEvent(true, 0, 0));
                     break;
                 case MotionEvent.ACTION_UP:
                     // We'd emit the touchEvent in the onClick listener of the view. This way both
@@ -268,7 +268,7 @@ public class PlatformActivity extends ComponentActivity implements SensorEventLi
         SensorManager.getQuaternionFromVector(quaternion, event.values);
         // The quaternion is returned in the form [w, x, z, y] but we use it as [x, y, z, w].
         // See https://developer.android.com/reference/android/hardware/Sensor#TYPE_ROTATION_VECTOR
-        queueRunnable(() -> setControllerOrientation(quaternion[1], quaternion[3], quaternion[2], quaternion[0]));
+        queueRenderRunnable(() -> setControllerOrientation(quaternion[1], quaternion[3], quaternion[2], quaternion[0]));
     }
 
     @Override
@@ -289,7 +289,7 @@ public class PlatformActivity extends ComponentActivity implements SensorEventLi
 
         final float xx = aEvent.getX(0);
         final float yy = aEvent.getY(0);
-        queueRunnable(() -> touchEvent(false, xx, yy));
+        queueRenderRunnable(() -> touchEvent(false, xx, yy));
         return true;
     }
 
@@ -301,7 +301,7 @@ public class PlatformActivity extends ComponentActivity implements SensorEventLi
         // This check is needed to prevent a crash when pausing before 3D mode has started.
         if (mWasImuStarted) {
             synchronized (mRenderLock) {
-                queueRunnable(activityPausedRunnable);
+                queueRenderRunnable(activityPausedRunnable);
                 try {
                     mRenderLock.wait();
                 } catch(InterruptedException e) {
@@ -333,7 +333,7 @@ public class PlatformActivity extends ComponentActivity implements SensorEventLi
         if (mActivePresentation != null && mActivePresentation.mGLView != null)
             mActivePresentation.mGLView.onResume();
 
-        queueRunnable(activityResumedRunnable);
+        queueRenderRunnable(activityResumedRunnable);
         setImmersiveSticky();
     }
 
@@ -374,6 +374,12 @@ public class PlatformActivity extends ComponentActivity implements SensorEventLi
         }
     }
 
+    // Queues a runnable in the render thread. VRBrowserActivity overrides it to keep the order of
+    // these runnables relative to its render commands.
+    protected void queueRenderRunnable(Runnable aRunnable) {
+        queueRunnable(aRunnable);
+    }
+
     boolean queueRunnable(@NonNull Runnable aRunnable) {
         if (mActivePresentation != null) {
             mActivePresentation.mGLView.queueEvent(aRunnable);